@@ -0,0 +1,123 @@
+/*
+ * IsLeaderBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the {@link com.github.toolarium.leader.election.ILeaderElector#isLeader()} hot path. Run it with the gc profiler 
+ * (default of the jmh task) to verify that <code>gc.alloc.rate.norm</code> is 0 B/op. 
+ * 
+ * @author patrick
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsLeaderBenchmark {
+    @Param({"true", "false"})
+    private boolean leader;
+    @Param({"false", "true"})
+    private boolean lease;
+    private StaticLeaderElectorImpl leaderElector;
+    
+
+    /**
+     * Setup the leader elector
+     *
+     * @throws IOException in case of an i/o error
+     */
+    @Setup
+    public void setup() throws IOException {
+        // a long timeout, the lease must not expire during the benchmark
+        leaderElector = new StaticLeaderElectorImpl(new LeaderElectionInformation("namespace", "name", "benchmark"), new LeaderElectionConfiguration(3600));
+        if (lease) {
+            leaderElector.renewLease();
+        }
+        
+        leaderElector.changeLeader(leader);
+    }
+
+    
+    /**
+     * Read the leadership from one thread
+     *
+     * @return true if in lead
+     */
+    @Benchmark
+    @Threads(1)
+    public boolean isLeaderOneThread() {
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * Read the leadership from four threads
+     *
+     * @return true if in lead
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean isLeaderFourThreads() {
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * Read the leadership from as many threads as available processors
+     *
+     * @return true if in lead
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean isLeaderMaxThreads() {
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * Read the leadership while another thread changes it
+     *
+     * @return true if in lead
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean isLeaderContended() {
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * Change the leadership concurrent to the readers
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void changeLeaderContended() {
+        leaderElector.changeLeader(!leaderElector.isLeader());
+    }
+}
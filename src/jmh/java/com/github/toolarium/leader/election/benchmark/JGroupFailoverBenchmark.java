@@ -0,0 +1,134 @@
+/*
+ * JGroupFailoverBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.jgroup.JGroupLeaderElectorImpl;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jgroups.JChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the jgroup failover time: the time between stopping the leader and the follower observing its own leadership.
+ * Both members run in the same jvm.
+ * 
+ * @author patrick
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class JGroupFailoverBenchmark {
+    private final AtomicInteger counter = new AtomicInteger(0);
+    private BenchmarkJGroupLeaderElectorImpl leader;
+    private BenchmarkJGroupLeaderElectorImpl follower;
+    private CountDownLatch followerElected;
+
+    
+    /**
+     * Start a leader and a follower
+     *
+     * @throws IOException in case of an i/o error
+     */
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        // different identities to get a channel per member
+        final int id = counter.incrementAndGet();
+        leader = new BenchmarkJGroupLeaderElectorImpl(new LeaderElectionInformation("benchmark-" + id, "failover", "leader"), new LeaderElectionConfiguration(2));
+        follower = new BenchmarkJGroupLeaderElectorImpl(new LeaderElectionInformation("benchmark-" + id, "failover", "follower"), new LeaderElectionConfiguration(2));
+        if (!leader.isLeader() || follower.isLeader()) {
+            throw new IllegalStateException("Unexpected leadership after setup!");
+        }
+        
+        followerElected = new CountDownLatch(1);
+        follower.addLeaderElectionListener(new ILeaderElectionListener() {
+            @Override
+            public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                followerElected.countDown();
+            }
+
+            @Override
+            public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                // NOP
+            }
+
+            @Override
+            public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                // NOP
+            }
+        });
+    }
+
+    
+    /**
+     * Stop the leader and wait until the follower is in lead
+     *
+     * @throws InterruptedException in case of an interruption
+     */
+    @Benchmark
+    public void failover() throws InterruptedException {
+        leader.getChannel().close();
+        if (!followerElected.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("No new leader elected!");
+        }
+    }
+
+    
+    /**
+     * Close both leader electors, the channel of the stopped leader is released as well
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        leader.close();
+        follower.close();
+    }
+
+    
+    /**
+     * Gives access to the channel of the jgroup leader elector
+     */
+    static class BenchmarkJGroupLeaderElectorImpl extends JGroupLeaderElectorImpl {
+        
+        /**
+         * Constructor for BenchmarkJGroupLeaderElectorImpl
+         *
+         * @param leaderElectionInformation the leader election information
+         * @param leaderElectionConfiguration the leader election configuration
+         * @throws IOException in case of an i/o error
+         */
+        BenchmarkJGroupLeaderElectorImpl(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+            super(leaderElectionInformation, leaderElectionConfiguration);
+        }
+
+        
+        /**
+         * @see com.github.toolarium.leader.election.impl.jgroup.JGroupLeaderElectorImpl#getChannel()
+         */
+        @Override
+        public JChannel getChannel() {
+            return super.getChannel();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * JGroupFailureDetectionBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.benchmark.JGroupFailoverBenchmark.BenchmarkJGroupLeaderElectorImpl;
+import com.github.toolarium.leader.election.dto.JGroupStack;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jgroups.protocols.DISCARD;
+import org.jgroups.protocols.TP;
+import org.jgroups.stack.ProtocolStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the failure detection time of the jgroup stack presets: the time between a hanging leader (it doesn't send 
+ * or receive any message anymore, its sockets stay open) and the follower observing its own leadership. 
+ * Both members run in the same jvm on loopback.
+ * 
+ * @author patrick
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(1)
+public class JGroupFailureDetectionBenchmark {
+    private final AtomicInteger counter = new AtomicInteger(0);
+    
+    @Param({"SHARED_LOOPBACK", "TCP_FAST", "TCP"})
+    private JGroupStack stack;
+    private BenchmarkJGroupLeaderElectorImpl leader;
+    private BenchmarkJGroupLeaderElectorImpl follower;
+    private CountDownLatch followerElected;
+
+    
+    /**
+     * Start a leader and a follower
+     *
+     * @throws IOException in case of an i/o error
+     */
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+        leaderElectionConfiguration.setJGroupStack(stack);
+        leaderElectionConfiguration.setJGroupBindAddress("127.0.0.1");
+        leaderElectionConfiguration.setJGroupInitialHosts("127.0.0.1[7800]");
+
+        // different identities to get a channel per member
+        final int id = counter.incrementAndGet();
+        leader = new BenchmarkJGroupLeaderElectorImpl(new LeaderElectionInformation("detection-" + stack + "-" + id, "failover", "leader"), leaderElectionConfiguration);
+        follower = new BenchmarkJGroupLeaderElectorImpl(new LeaderElectionInformation("detection-" + stack + "-" + id, "failover", "follower"), leaderElectionConfiguration);
+        if (!leader.isLeader() || follower.isLeader()) {
+            throw new IllegalStateException("Unexpected leadership after setup!");
+        }
+        
+        followerElected = new CountDownLatch(1);
+        follower.addLeaderElectionListener(new ILeaderElectionListener() {
+            @Override
+            public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                followerElected.countDown();
+            }
+
+            @Override
+            public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                // NOP
+            }
+
+            @Override
+            public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                // NOP
+            }
+        });
+    }
+
+    
+    /**
+     * Let the leader hang and wait until the follower is in lead
+     *
+     * @throws Exception in case of an error
+     */
+    @Benchmark
+    public void detectHangingLeader() throws Exception {
+        leader.getChannel().getProtocolStack().insertProtocol(new DISCARD().discardAll(true), ProtocolStack.Position.ABOVE, TP.class);
+        if (!followerElected.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("No new leader elected!");
+        }
+    }
+
+    
+    /**
+     * Close both leader electors and release their channels
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        leader.close();
+        follower.close();
+    }
+}
@@ -0,0 +1,662 @@
+/*
+ * JGroupFaultInjectionHarness.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.benchmark.JGroupFailoverBenchmark.BenchmarkJGroupLeaderElectorImpl;
+import com.github.toolarium.leader.election.dto.JGroupStack;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.dto.LeaderInformation;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.jgroups.Message;
+import org.jgroups.protocols.DISCARD;
+import org.jgroups.protocols.TP;
+import org.jgroups.stack.Protocol;
+import org.jgroups.stack.ProtocolStack;
+import org.jgroups.util.MessageBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Fault injection harness of the jgroup backend: N members run in the same jvm, in every round the leader gets a
+ * fault injected and the harness measures the time until another member is in lead (failover latency) and the time
+ * in which more than one member was in lead (overlapping leadership). The results are reported per scenario as
+ * percentiles of the failover latency and the total overlapping leadership, as table and as json.
+ *
+ * <p>The scenarios: {@link Scenario#KILL} closes the channel of the leader, {@link Scenario#PARTITION} discards all
+ * messages of the leader until a new leader is elected and heals the partition afterwards, {@link Scenario#PAUSE}
+ * holds all messages of the leader for the pause duration (like a stop-the-world pause: nothing is sent or processed
+ * and the messages are delivered late).</p>
+ *
+ * <p>The arguments are name=value pairs: nodes (default 3), rounds (default 10), scenarios (default KILL,PARTITION,PAUSE),
+ * stack (default SHARED_LOOPBACK, TCP_FAST and TCP use loopback), pause in milliseconds (default 5000) and result
+ * (the json file, default build/reports/failover/results.json).</p>
+ *
+ * @author patrick
+ */
+public final class JGroupFaultInjectionHarness {
+    private static final Logger LOG = LoggerFactory.getLogger(JGroupFaultInjectionHarness.class);
+    private static final long CONVERGENCE_TIMEOUT_MILLIS = 60000;
+    private static final long FAILOVER_TIMEOUT_MILLIS = 60000;
+    private final int nodes;
+    private final int rounds;
+    private final List<Scenario> scenarioList;
+    private final JGroupStack stack;
+    private final long pauseMillis;
+    private final Path resultPath;
+
+    
+    /**
+     * The fault injection scenarios
+     */
+    public enum Scenario {
+        /** The channel of the leader gets closed */
+        KILL,
+        
+        /** The leader is cut off until a new leader is elected, afterwards the partition gets healed */
+        PARTITION,
+        
+        /** The leader holds all messages for the pause duration */
+        PAUSE;
+    }
+
+    
+    /**
+     * Constructor for JGroupFaultInjectionHarness
+     *
+     * @param nodes the number of members
+     * @param rounds the number of rounds per scenario
+     * @param scenarioList the scenarios
+     * @param stack the jgroup stack
+     * @param pauseMillis the pause duration in milliseconds
+     * @param resultPath the path of the json result
+     */
+    public JGroupFaultInjectionHarness(int nodes, int rounds, List<Scenario> scenarioList, JGroupStack stack, long pauseMillis, Path resultPath) {
+        if (nodes < 2) {
+            throw new IllegalArgumentException("Invalid nodes. There must be at least two members!");
+        }
+        
+        this.nodes = nodes;
+        this.rounds = rounds;
+        this.scenarioList = scenarioList;
+        this.stack = stack;
+        this.pauseMillis = pauseMillis;
+        this.resultPath = resultPath;
+    }
+
+    
+    /**
+     * Run the harness
+     *
+     * @param args the arguments as name=value pairs
+     * @throws Exception in case of an error
+     */
+    public static void main(String[] args) throws Exception {
+        int nodes = 3;
+        int rounds = 10;
+        List<Scenario> scenarioList = Arrays.asList(Scenario.values());
+        JGroupStack stack = JGroupStack.SHARED_LOOPBACK;
+        long pauseMillis = 5000;
+        Path resultPath = Paths.get("build", "reports", "failover", "results.json");
+        
+        for (String arg : args) {
+            final int index = arg.indexOf('=');
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid argument [" + arg + "], expected name=value!");
+            }
+            
+            final String name = arg.substring(0, index).trim();
+            final String value = arg.substring(index + 1).trim();
+            switch (name) {
+                case "nodes":
+                    nodes = Integer.parseInt(value);
+                    break;
+                case "rounds":
+                    rounds = Integer.parseInt(value);
+                    break;
+                case "scenarios":
+                    scenarioList = new ArrayList<Scenario>();
+                    for (String scenario : value.split(",")) {
+                        scenarioList.add(Scenario.valueOf(scenario.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                case "stack":
+                    stack = JGroupStack.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "pause":
+                    pauseMillis = Long.parseLong(value);
+                    break;
+                case "result":
+                    resultPath = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument [" + name + "]!");
+            }
+        }
+        
+        new JGroupFaultInjectionHarness(nodes, rounds, scenarioList, stack, pauseMillis, resultPath).run();
+        System.exit(0);
+    }
+
+    
+    /**
+     * Run all scenarios, report and write the results
+     *
+     * @throws IOException in case of an i/o error
+     * @throws InterruptedException in case of an interruption
+     */
+    public void run() throws IOException, InterruptedException {
+        final List<ScenarioResult> resultList = new ArrayList<ScenarioResult>();
+        for (Scenario scenario : scenarioList) {
+            final ScenarioResult result = new ScenarioResult(scenario);
+            for (int round = 1; round <= rounds; round++) {
+                runRound(scenario, round, result);
+            }
+            
+            resultList.add(result);
+        }
+        
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-10s %6s %6s %8s %8s %8s %8s %8s %12s%n", "Scenario", "Nodes", "Rounds", "Failed", "p50[ms]", "p90[ms]", "p99[ms]", "max[ms]", "overlap[ms]"));
+        for (ScenarioResult result : resultList) {
+            report.append(String.format(Locale.ROOT, "%-10s %6d %6d %8d %8d %8d %8d %8d %12d%n", result.scenario, nodes, rounds, result.failedRounds,
+                                        result.getPercentile(50), result.getPercentile(90), result.getPercentile(99), result.getPercentile(100),
+                                        TimeUnit.NANOSECONDS.toMillis(result.overlapNanos)));
+        }
+        
+        System.out.println(report);
+        
+        if (resultPath.getParent() != null) {
+            Files.createDirectories(resultPath.getParent());
+        }
+        
+        Files.write(resultPath, toJson(resultList).getBytes(StandardCharsets.UTF_8));
+        LOG.info("Results written to [" + resultPath.toAbsolutePath() + "].");
+    }
+
+    
+    /**
+     * Run a round: start the members, inject the fault into the leader and wait until the members converged
+     *
+     * @param scenario the scenario
+     * @param round the round
+     * @param result the result of the scenario
+     * @throws IOException in case of an i/o error
+     * @throws InterruptedException in case of an interruption
+     */
+    private void runRound(Scenario scenario, int round, ScenarioResult result) throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+        leaderElectionConfiguration.setJGroupStack(stack);
+        leaderElectionConfiguration.setJGroupBindAddress("127.0.0.1");
+        leaderElectionConfiguration.setJGroupInitialHosts("127.0.0.1[7800]");
+        
+        // a cluster per round, different identities to get a channel per member
+        final String clusterName = "harness-" + scenario.name().toLowerCase(Locale.ROOT) + "-" + round + "-" + System.nanoTime();
+        final List<BenchmarkJGroupLeaderElectorImpl> memberList = new ArrayList<BenchmarkJGroupLeaderElectorImpl>();
+        LeadershipTracker tracker = null;
+        PauseProtocol pauseProtocol = null;
+        try {
+            for (int i = 0; i < nodes; i++) {
+                memberList.add(new BenchmarkJGroupLeaderElectorImpl(new LeaderElectionInformation(clusterName, "election", "node-" + i), leaderElectionConfiguration));
+            }
+            
+            tracker = new LeadershipTracker(memberList);
+            if (!await(tracker::isConverged, CONVERGENCE_TIMEOUT_MILLIS)) {
+                LOG.warn("Round " + round + " of [" + scenario + "]: the members didn't converge before the fault injection.");
+                result.failedRounds++;
+                return;
+            }
+            
+            final int leaderIndex = tracker.getLeaderIndex();
+            final BenchmarkJGroupLeaderElectorImpl leader = memberList.get(leaderIndex);
+            final long startNanos = System.nanoTime();
+            tracker.expectNewLeader(leaderIndex);
+            switch (scenario) {
+                case KILL:
+                    // a killed member doesn't lead anymore: its channel drops without a clean leave, then its 
+                    // leader elector is released as well
+                    tracker.kill(leaderIndex);
+                    leader.getChannel().close();
+                    leader.close();
+                    break;
+                case PARTITION:
+                    insertProtocol(leader, new DISCARD().discardAll(true));
+                    break;
+                case PAUSE:
+                    pauseProtocol = new PauseProtocol();
+                    insertProtocol(leader, pauseProtocol);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported scenario [" + scenario + "]!");
+            }
+            
+            long failoverTimeoutMillis = FAILOVER_TIMEOUT_MILLIS;
+            if (scenario == Scenario.PAUSE) {
+                failoverTimeoutMillis = pauseMillis;
+            }
+            
+            final long newLeaderNanos = tracker.awaitNewLeader(failoverTimeoutMillis);
+            long failoverMillis = -1;
+            if (newLeaderNanos >= 0) {
+                failoverMillis = TimeUnit.NANOSECONDS.toMillis(newLeaderNanos - startNanos);
+                result.failoverNanosList.add(newLeaderNanos - startNanos);
+            } else if (scenario != Scenario.PAUSE) {
+                LOG.warn("Round " + round + " of [" + scenario + "]: no new leader elected.");
+                result.failedRounds++;
+            }
+            
+            // heal the partition or end the pause
+            if (scenario == Scenario.PARTITION) {
+                leader.getChannel().getProtocolStack().removeProtocol(DISCARD.class);
+            } else if (scenario == Scenario.PAUSE) {
+                final long remainingMillis = pauseMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                if (remainingMillis > 0) {
+                    Thread.sleep(remainingMillis);
+                }
+                
+                pauseProtocol.resume();
+            }
+            
+            if (!await(tracker::isConverged, CONVERGENCE_TIMEOUT_MILLIS)) {
+                LOG.warn("Round " + round + " of [" + scenario + "]: the members didn't converge after the fault injection.");
+                result.failedRounds++;
+            }
+            
+            result.overlapNanos += tracker.getOverlapNanos();
+            LOG.info("Round " + round + " of [" + scenario + "]: failover " + failoverMillis + "ms, overlap "
+                     + TimeUnit.NANOSECONDS.toMillis(tracker.getOverlapNanos()) + "ms.");
+        } finally {
+            if (pauseProtocol != null) {
+                pauseProtocol.resume();
+            }
+            
+            for (BenchmarkJGroupLeaderElectorImpl member : memberList) {
+                member.close();
+            }
+        }
+    }
+
+    
+    /**
+     * Insert a protocol above the transport of a member
+     *
+     * @param member the member
+     * @param protocol the protocol
+     * @throws IOException in case the protocol could not be inserted
+     */
+    private static void insertProtocol(BenchmarkJGroupLeaderElectorImpl member, Protocol protocol) throws IOException {
+        try {
+            member.getChannel().getProtocolStack().insertProtocol(protocol, ProtocolStack.Position.ABOVE, TP.class);
+        } catch (Exception e) {
+            throw new IOException("Could not insert protocol [" + protocol.getName() + "]: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Wait until a condition is fulfilled
+     *
+     * @param condition the condition
+     * @param timeoutMillis the timeout in milliseconds
+     * @return true if the condition is fulfilled
+     * @throws InterruptedException in case of an interruption
+     */
+    private static boolean await(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return false;
+            }
+            
+            Thread.sleep(5);
+        }
+        
+        return true;
+    }
+
+    
+    /**
+     * Convert the results to json
+     *
+     * @param resultList the results
+     * @return the json
+     */
+    private String toJson(List<ScenarioResult> resultList) {
+        final StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < resultList.size(); i++) {
+            final ScenarioResult result = resultList.get(i);
+            json.append("  {\"scenario\": \"").append(result.scenario).append("\", \"stack\": \"").append(stack)
+                .append("\", \"nodes\": ").append(nodes).append(", \"rounds\": ").append(rounds)
+                .append(", \"failedRounds\": ").append(result.failedRounds)
+                .append(", \"failoverMillis\": {\"p50\": ").append(result.getPercentile(50)).append(", \"p90\": ").append(result.getPercentile(90))
+                .append(", \"p99\": ").append(result.getPercentile(99)).append(", \"max\": ").append(result.getPercentile(100)).append("}")
+                .append(", \"overlapMillis\": ").append(TimeUnit.NANOSECONDS.toMillis(result.overlapNanos)).append("}");
+            if (i < resultList.size() - 1) {
+                json.append(",");
+            }
+            
+            json.append("\n");
+        }
+        
+        return json.append("]\n").toString();
+    }
+
+    
+    /**
+     * The result of a scenario
+     */
+    private static class ScenarioResult {
+        private final Scenario scenario;
+        private final List<Long> failoverNanosList;
+        private long overlapNanos;
+        private int failedRounds;
+
+        
+        /**
+         * Constructor for ScenarioResult
+         *
+         * @param scenario the scenario
+         */
+        ScenarioResult(Scenario scenario) {
+            this.scenario = scenario;
+            this.failoverNanosList = new ArrayList<Long>();
+            this.overlapNanos = 0;
+            this.failedRounds = 0;
+        }
+
+        
+        /**
+         * Get a percentile of the failover latency (nearest rank)
+         *
+         * @param percentile the percentile, 100 for the maximum
+         * @return the failover latency in milliseconds or -1 if there was no failover
+         */
+        long getPercentile(int percentile) {
+            if (failoverNanosList.isEmpty()) {
+                return -1;
+            }
+            
+            final List<Long> sortedList = new ArrayList<Long>(failoverNanosList);
+            Collections.sort(sortedList);
+            final int rank = (int) Math.ceil(percentile / 100.0 * sortedList.size());
+            return TimeUnit.NANOSECONDS.toMillis(sortedList.get(Math.max(rank, 1) - 1));
+        }
+    }
+
+    
+    /**
+     * Tracks the leadership of all members: the time in which more than one member was in lead and the first election
+     * of a new leader after the fault injection
+     */
+    private static class LeadershipTracker {
+        private final List<BenchmarkJGroupLeaderElectorImpl> memberList;
+        private final boolean[] leaderArray;
+        private final boolean[] killedArray;
+        private int leaderCount;
+        private long lastChangeNanos;
+        private long overlapNanos;
+        private int oldLeaderIndex;
+        private CountDownLatch newLeaderLatch;
+        private long newLeaderNanos;
+
+        
+        /**
+         * Constructor for LeadershipTracker
+         *
+         * @param memberList the members
+         */
+        LeadershipTracker(List<BenchmarkJGroupLeaderElectorImpl> memberList) {
+            this.memberList = memberList;
+            this.leaderArray = new boolean[memberList.size()];
+            this.killedArray = new boolean[memberList.size()];
+            this.leaderCount = 0;
+            this.lastChangeNanos = System.nanoTime();
+            this.overlapNanos = 0;
+            this.oldLeaderIndex = -1;
+            this.newLeaderLatch = null;
+            this.newLeaderNanos = -1;
+            
+            // a listener gets notified immediately in case the member is already in lead
+            for (int i = 0; i < memberList.size(); i++) {
+                final int index = i;
+                memberList.get(i).addLeaderElectionListener(new ILeaderElectionListener() {
+                    @Override
+                    public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                        update(index, true);
+                    }
+                    
+                    @Override
+                    public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                        update(index, false);
+                    }
+                    
+                    @Override
+                    public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                        // NOP
+                    }
+                });
+            }
+        }
+
+        
+        /**
+         * Update the leadership of a member
+         *
+         * @param index the index of the member
+         * @param isLeader true if the member is in lead
+         */
+        synchronized void update(int index, boolean isLeader) {
+            if (killedArray[index] || leaderArray[index] == isLeader) {
+                return;
+            }
+            
+            final long nowNanos = System.nanoTime();
+            accumulate(nowNanos);
+            leaderArray[index] = isLeader;
+            if (isLeader) {
+                leaderCount++;
+                if (newLeaderLatch != null && index != oldLeaderIndex && newLeaderNanos < 0) {
+                    newLeaderNanos = nowNanos;
+                    newLeaderLatch.countDown();
+                }
+            } else {
+                leaderCount--;
+            }
+        }
+
+        
+        /**
+         * A killed member doesn't lead anymore
+         *
+         * @param index the index of the member
+         */
+        synchronized void kill(int index) {
+            update(index, false);
+            killedArray[index] = true;
+        }
+
+        
+        /**
+         * Expect a new leader after the fault injection into the current leader
+         *
+         * @param leaderIndex the index of the current leader
+         */
+        synchronized void expectNewLeader(int leaderIndex) {
+            oldLeaderIndex = leaderIndex;
+            newLeaderNanos = -1;
+            newLeaderLatch = new CountDownLatch(1);
+        }
+
+        
+        /**
+         * Wait for a new leader
+         *
+         * @param timeoutMillis the timeout in milliseconds
+         * @return the {@link System#nanoTime()} of the election of the new leader or -1 if there is none
+         * @throws InterruptedException in case of an interruption
+         */
+        long awaitNewLeader(long timeoutMillis) throws InterruptedException {
+            final CountDownLatch latch;
+            synchronized (this) {
+                latch = newLeaderLatch;
+            }
+            
+            latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                return newLeaderNanos;
+            }
+        }
+
+        
+        /**
+         * Get the index of the leader
+         *
+         * @return the index of the leader or -1
+         */
+        synchronized int getLeaderIndex() {
+            for (int i = 0; i < leaderArray.length; i++) {
+                if (leaderArray[i]) {
+                    return i;
+                }
+            }
+            
+            return -1;
+        }
+
+        
+        /**
+         * Check if the members converged: exactly one leader and all alive members know it
+         *
+         * @return true if the members converged
+         */
+        synchronized boolean isConverged() {
+            final int leaderIndex = getLeaderIndex();
+            if (leaderCount != 1 || leaderIndex < 0) {
+                return false;
+            }
+            
+            final String leaderIdentity = memberList.get(leaderIndex).getLeader().getIdentity();
+            for (int i = 0; i < memberList.size(); i++) {
+                final LeaderInformation leader = memberList.get(i).getLeader();
+                if (!killedArray[i] && (leader == null || !leaderIdentity.equals(leader.getIdentity()))) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+
+        
+        /**
+         * Get the time in which more than one member was in lead
+         *
+         * @return the overlapping leadership in nanoseconds
+         */
+        synchronized long getOverlapNanos() {
+            accumulate(System.nanoTime());
+            return overlapNanos;
+        }
+
+        
+        /**
+         * Accumulate the overlapping leadership up to now
+         *
+         * @param nowNanos the {@link System#nanoTime()}
+         */
+        private void accumulate(long nowNanos) {
+            if (leaderCount > 1) {
+                overlapNanos += nowNanos - lastChangeNanos;
+            }
+            
+            lastChangeNanos = nowNanos;
+        }
+    }
+
+    
+    /**
+     * Holds all messages of a member while it is paused, like a stop-the-world pause of the process: the member neither
+     * sends nor processes messages and they are delivered late after the pause
+     */
+    private static class PauseProtocol extends Protocol {
+        private boolean paused;
+
+        
+        /**
+         * Constructor for PauseProtocol, the member is paused from the start
+         */
+        PauseProtocol() {
+            this.paused = true;
+        }
+
+        
+        /**
+         * Resume the member
+         */
+        synchronized void resume() {
+            paused = false;
+            notifyAll();
+        }
+
+        
+        /**
+         * @see org.jgroups.stack.Protocol#up(org.jgroups.Message)
+         */
+        @Override
+        public Object up(Message msg) {
+            awaitResume();
+            return super.up(msg);
+        }
+
+        
+        /**
+         * @see org.jgroups.stack.Protocol#up(org.jgroups.util.MessageBatch)
+         */
+        @Override
+        public void up(MessageBatch batch) {
+            awaitResume();
+            super.up(batch);
+        }
+
+        
+        /**
+         * @see org.jgroups.stack.Protocol#down(org.jgroups.Message)
+         */
+        @Override
+        public Object down(Message msg) {
+            awaitResume();
+            return super.down(msg);
+        }
+
+        
+        /**
+         * Wait until the member is resumed
+         */
+        private synchronized void awaitResume() {
+            while (paused) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
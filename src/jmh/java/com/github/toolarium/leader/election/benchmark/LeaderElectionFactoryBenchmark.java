@@ -0,0 +1,69 @@
+/*
+ * LeaderElectionFactoryBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the construction latency of {@link LeaderElectionFactory#getLeaderElection(LeaderElectionInformation, LeaderElectionConfiguration)}.
+ * Every invocation creates a new election in its own namespace, which is closed after the invocation. Therefore the 
+ * number of invocations is kept small.
+ * 
+ * @author patrick
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class LeaderElectionFactoryBenchmark {
+    private final AtomicInteger counter = new AtomicInteger(0);
+    private ILeaderElector leaderElector;
+
+    
+    /**
+     * Create a new leader elector
+     *
+     * @return the leader elector
+     * @throws IOException in case of an i/o error
+     */
+    @Benchmark
+    public ILeaderElector getLeaderElection() throws IOException {
+        leaderElector = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("benchmark-" + counter.incrementAndGet(), "factory", "node"), new LeaderElectionConfiguration(2));
+        return leaderElector;
+    }
+
+    
+    /**
+     * Close the leader elector of the invocation
+     */
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        if (leaderElector != null) {
+            leaderElector.close();
+            leaderElector = null;
+        }
+    }
+}
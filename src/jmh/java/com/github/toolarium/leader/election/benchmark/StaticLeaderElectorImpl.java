@@ -0,0 +1,68 @@
+/*
+ * StaticLeaderElectorImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.benchmark;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
+import java.io.IOException;
+
+
+/**
+ * Leader elector without any backend, the leadership is set by the benchmark.
+ * 
+ * @author patrick
+ */
+public class StaticLeaderElectorImpl extends AbstractLeaderElectorImpl {
+
+    /**
+     * Constructor for StaticLeaderElectorImpl
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @throws IOException in case of an i/o error
+     */
+    public StaticLeaderElectorImpl(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) 
+        throws IOException {
+        super(leaderElectionInformation, leaderElectionConfiguration);
+    }
+
+    
+    /**
+     * Change the leadership
+     *
+     * @param isLeader true to get in lead
+     */
+    public void changeLeader(boolean isLeader) {
+        setLeader(isLeader, getLeaderElectionInformation().getIdentity());
+    }
+
+    
+    /**
+     * Renew the lease, the leadership ends after the renew deadline
+     */
+    public void renewLease() {
+        setLeaseRenewed(System.nanoTime());
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#init()
+     */
+    @Override
+    protected void init() {
+        // NOP
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+     */
+    @Override
+    protected void release() {
+        // NOP
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * ILeaderElectionListener.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+
+
+/**
+ * Leader election listener interface. The listener gets notified by the backend as soon as a leadership transition
+ * happens, there is no need to poll {@link ILeaderElector#isLeader()}. The listeners are called one after the other on 
+ * a worker thread in the order of the transitions, never under a lock of the leader elector or the backend.
+ *  
+ * @author patrick
+ */
+public interface ILeaderElectionListener {
+
+    /**
+     * The caller got in lead
+     *
+     * @param leaderElectionInformation the leader election information
+     */
+    void onElected(LeaderElectionInformation leaderElectionInformation);
+
+    
+    /**
+     * The caller lost the lead
+     *
+     * @param leaderElectionInformation the leader election information
+     */
+    void onRevoked(LeaderElectionInformation leaderElectionInformation);
+
+    
+    /**
+     * A new leader was observed
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderIdentity the identity of the new leader
+     */
+    void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity);
+}
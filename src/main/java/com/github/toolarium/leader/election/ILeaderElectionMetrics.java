@@ -0,0 +1,56 @@
+/*
+ * ILeaderElectionMetrics.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+
+
+/**
+ * Leader election metrics interface (SPI). The leader electors report leadership transitions and lease renewals, 
+ * never on the {@link ILeaderElector#isLeader()} path. The implementation must not block, it is called by the 
+ * election loops. The metrics are set by {@link LeaderElectionFactory#setMetrics(ILeaderElectionMetrics)}, e.g. to
+ * bridge them to a metrics library. A candidate is identified by its leader elector instance, two candidates with 
+ * the same leader election information are reported separately.
+ *  
+ * @author patrick
+ */
+public interface ILeaderElectionMetrics {
+
+    /**
+     * The leadership state of an election changed: this candidate got or lost the lead or an other leader was 
+     * observed. The transitions of an election are reported in order.
+     *
+     * @param leaderElector the leader elector of the reporting candidate
+     * @param leaderElectionInformation the leader election information of the reporting candidate
+     * @param isLeader true if the reporting candidate is in lead
+     * @param leaderIdentity the identity of the current leader or null if there is no known leader
+     * @param timeNanos the {@link System#nanoTime()} of the transition
+     */
+    void onTransition(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation, boolean isLeader, String leaderIdentity, long timeNanos);
+
+    
+    /**
+     * A lease acquisition or renewal was tried
+     *
+     * @param leaderElector the leader elector of the reporting candidate
+     * @param leaderElectionInformation the leader election information of the reporting candidate
+     * @param successful true if the lease is held after the renewal
+     * @param latencyNanos the duration of the renewal in nanoseconds
+     */
+    void onRenewal(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation, boolean successful, long latencyNanos);
+
+    
+    /**
+     * The reporting candidate was closed, it doesn't report anymore. The implementation can release its state of 
+     * the candidate, by default nothing is done.
+     *
+     * @param leaderElector the leader elector of the closed candidate
+     * @param leaderElectionInformation the leader election information of the closed candidate
+     */
+    default void onClose(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation) {
+        // NOP
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * ILeaderElectionScheduler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+
+
+/**
+ * Leader election scheduler interface (SPI). One scheduler is shared by all leader electors of the JVM, the number 
+ * of threads must not depend on the number of leader electors. The scheduler is resolved by the 
+ * {@link java.util.ServiceLoader} or set by {@link LeaderElectionFactory#setScheduler(ILeaderElectionScheduler)}.
+ *  
+ * @author patrick
+ */
+public interface ILeaderElectionScheduler {
+
+    /**
+     * Schedule a task periodically (e.g. an election loop), the task must not block
+     *
+     * @param task the task
+     * @param initialDelay the initial delay
+     * @param delay the delay between the end of an execution and the start of the next
+     * @return the scheduled future to cancel the task
+     */
+    ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration initialDelay, Duration delay);
+
+    
+    /**
+     * Schedule a task once, the task must not block
+     *
+     * @param task the task
+     * @param delay the delay
+     * @return the scheduled future to cancel the task
+     */
+    ScheduledFuture<?> schedule(Runnable task, Duration delay);
+
+    
+    /**
+     * Execute blocking work (e.g. the asynchronous construction of a leader elector). The work may be queued, it must 
+     * not wait for an other task of the scheduler and must not block forever.
+     *
+     * @param task the task
+     */
+    void execute(Runnable task);
+}
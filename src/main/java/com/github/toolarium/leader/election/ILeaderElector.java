@@ -0,0 +1,74 @@
+/*
+ * ILeaderElector.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import com.github.toolarium.leader.election.dto.LeaderInformation;
+
+/**
+ * Leader elector interface. A leader elector should be closed on shutdown: it releases the lead immediately, so a 
+ * successor takes over without waiting for the timeout.
+ *  
+ * @author patrick
+ */
+public interface ILeaderElector extends AutoCloseable {
+    
+    /**
+     * Is leader
+     * 
+     * @return true if the caller is the elected leader otherwise false
+     */
+    boolean isLeader();
+
+    
+    /**
+     * Get the epoch of the current leadership, it can be used as fencing token: it increases monotonically with every 
+     * leadership change, so a store can reject writes of a stale leader with a lower epoch. The kubernetes backend uses 
+     * the leader transitions of the lock, in the jgroup backend the leader decides the epoch and announces it to the 
+     * other members.
+     * 
+     * @return the epoch or 0 if there is no decision yet
+     */
+    long getEpoch();
+
+    
+    /**
+     * Get the current leader as observed by this candidate, e.g. to forward requests to the leader. It is cached locally 
+     * and updated by the backend: the jgroup view and announcements or the lock holder record of kubernetes, jdbc and 
+     * file. The observed timestamp tells the age of the information.
+     * 
+     * @return the leader or null if there is no leader known
+     */
+    LeaderInformation getLeader();
+
+    
+    /**
+     * Add a leader election listener. In case the caller is already in lead the listener gets notified right away 
+     * (on the worker of the listener notifications).
+     *
+     * @param leaderElectionListener the listener to add
+     */
+    void addLeaderElectionListener(ILeaderElectionListener leaderElectionListener);
+
+    
+    /**
+     * Remove a leader election listener
+     *
+     * @param leaderElectionListener the listener to remove
+     * @return true if the listener was removed
+     */
+    boolean removeLeaderElectionListener(ILeaderElectionListener leaderElectionListener);
+
+    
+    /**
+     * Close the leader elector: the caller loses the lead (the listeners get notified) and the lead is released in the
+     * backend, e.g. the jgroup member leaves the election and the kubernetes lease gets cleared. Closing a closed 
+     * leader elector has no effect.
+     * 
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,51 @@
+/*
+ * IPartitionedLeaderElector.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import java.util.Set;
+
+
+/**
+ * Partitioned leader elector interface: the election owns a fixed number of partitions which are spread over all 
+ * candidates, so the work can be shared between the members. A key belongs to exactly one partition.
+ *  
+ * @author patrick
+ */
+public interface IPartitionedLeaderElector extends ILeaderElector {
+
+    /**
+     * Get the number of partitions
+     * 
+     * @return the number of partitions
+     */
+    int getPartitionCount();
+
+    
+    /**
+     * Get the partition of a key
+     * 
+     * @param key the key, its hash code must be stable across the members (e.g. a string or a number)
+     * @return the partition
+     */
+    int getPartition(Object key);
+
+    
+    /**
+     * Is leader for the partition of the key
+     * 
+     * @param key the key, its hash code must be stable across the members (e.g. a string or a number)
+     * @return true if the caller is the elected leader of the partition of the key otherwise false
+     */
+    boolean isLeaderFor(Object key);
+
+    
+    /**
+     * Get the partitions which are owned by the caller
+     * 
+     * @return the owned partitions
+     */
+    Set<Integer> ownedPartitions();
+}
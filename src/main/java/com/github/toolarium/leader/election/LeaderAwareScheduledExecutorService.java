@@ -0,0 +1,594 @@
+/*
+ * LeaderAwareScheduledExecutorService.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.DaemonThreadFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A scheduled executor service which runs its tasks only in lead of a {@link ILeaderElector}. The tasks are scheduled
+ * when the lead is acquired: a follower has no task wakeups at all. When the lead is lost, the running tasks are
+ * interrupted, the one-shot tasks are cancelled and the periodic tasks start again with the next lead. Every run
+ * checks {@link ILeaderElector#isLeader()} before it starts, so a task doesn't run after a local lease expiry which
+ * is not notified yet. The threads are daemon threads.
+ *
+ * <p>Closing the executor releases the lead: the running tasks can finish within the grace period before the leader
+ * elector gets closed.</p>
+ *
+ * @author patrick
+ */
+public class LeaderAwareScheduledExecutorService extends AbstractExecutorService implements ScheduledExecutorService, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LeaderAwareScheduledExecutorService.class);
+    private final ILeaderElector leaderElector;
+    private final Duration gracePeriod;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<LeaderTask<?>> taskSet;
+    private final ILeaderElectionListener leaderElectionListener;
+    private boolean leader;
+    private volatile boolean shutdown;
+
+    
+    /**
+     * Constructor for LeaderAwareScheduledExecutorService, the running tasks are interrupted on close
+     *
+     * @param leaderElector the leader elector
+     * @param corePoolSize the number of threads
+     */
+    public LeaderAwareScheduledExecutorService(ILeaderElector leaderElector, int corePoolSize) {
+        this(leaderElector, corePoolSize, Duration.ZERO);
+    }
+
+    
+    /**
+     * Constructor for LeaderAwareScheduledExecutorService
+     *
+     * @param leaderElector the leader elector
+     * @param corePoolSize the number of threads
+     * @param gracePeriod the time the running tasks can finish on close before the lead is released
+     * @throws IllegalArgumentException In case of a parameter failure
+     */
+    public LeaderAwareScheduledExecutorService(ILeaderElector leaderElector, int corePoolSize, Duration gracePeriod) throws IllegalArgumentException {
+        if (leaderElector == null) {
+            throw new IllegalArgumentException("Invalid leader elector!");
+        }
+        
+        if (gracePeriod == null || gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("Invalid grace period!");
+        }
+        
+        this.leaderElector = leaderElector;
+        this.gracePeriod = gracePeriod;
+        this.executor = new ScheduledThreadPoolExecutor(corePoolSize, new DaemonThreadFactory("leader-aware-executor-"));
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        this.taskSet = ConcurrentHashMap.newKeySet();
+        this.leader = false;
+        this.shutdown = false;
+        this.leaderElectionListener = new LeaderListener();
+        
+        // an elector in lead notifies immediately
+        leaderElector.addLeaderElectionListener(leaderElectionListener);
+    }
+
+    
+    /**
+     * Get the leader elector
+     *
+     * @return the leader elector
+     */
+    public ILeaderElector getLeaderElector() {
+        return leaderElector;
+    }
+
+    
+    /**
+     * Schedule a one-shot task, it runs only in lead: the delay starts in lead, otherwise with the next lead. In case 
+     * the lead is lost before the task is done, the task is cancelled (a running task gets interrupted) and it is not 
+     * run again with the next lead: the future completes exceptionally with a {@link java.util.concurrent.CancellationException}.
+     *
+     * @see java.util.concurrent.ScheduledExecutorService#schedule(java.lang.Runnable, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return add(new LeaderTask<Object>(Executors.callable(command), unit.toNanos(delay), 0, null));
+    }
+
+    
+    /**
+     * Schedule a one-shot task, it runs only in lead: the delay starts in lead, otherwise with the next lead. In case 
+     * the lead is lost before the task is done, the task is cancelled (a running task gets interrupted) and it is not 
+     * run again with the next lead: the future completes exceptionally with a {@link java.util.concurrent.CancellationException}.
+     *
+     * @see java.util.concurrent.ScheduledExecutorService#schedule(java.util.concurrent.Callable, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return add(new LeaderTask<V>(callable, unit.toNanos(delay), 0, null));
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Invalid period!");
+        }
+        
+        return add(new LeaderTask<Object>(Executors.callable(command), unit.toNanos(initialDelay), unit.toNanos(period), null));
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay(java.lang.Runnable, long, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Invalid delay!");
+        }
+        
+        return add(new LeaderTask<Object>(Executors.callable(command), unit.toNanos(initialDelay), -unit.toNanos(delay), null));
+    }
+
+    
+    /**
+     * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable command) {
+        // a future of invokeAll or invokeAny gets cancelled together with its task
+        Future<?> source = null;
+        if (command instanceof Future) {
+            source = (Future<?>) command;
+        }
+        
+        add(new LeaderTask<Object>(Executors.callable(command), 0, 0, source));
+    }
+
+    
+    /**
+     * @see java.util.concurrent.AbstractExecutorService#submit(java.lang.Runnable)
+     */
+    @Override
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    
+    /**
+     * @see java.util.concurrent.AbstractExecutorService#submit(java.lang.Runnable, java.lang.Object)
+     */
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, TimeUnit.NANOSECONDS);
+    }
+
+    
+    /**
+     * @see java.util.concurrent.AbstractExecutorService#submit(java.util.concurrent.Callable)
+     */
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, TimeUnit.NANOSECONDS);
+    }
+
+    
+    /**
+     * Shutdown: no new tasks are accepted, the periodic and the waiting one-shot tasks are cancelled and the running 
+     * tasks can finish. The lead is kept until the executor gets closed.
+     *
+     * @see java.util.concurrent.ExecutorService#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            for (LeaderTask<?> task : new ArrayList<LeaderTask<?>>(taskSet)) {
+                task.cancelWaiting();
+            }
+        }
+        
+        executor.shutdown();
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ExecutorService#shutdownNow()
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        synchronized (this) {
+            shutdown = true;
+            for (LeaderTask<?> task : new ArrayList<LeaderTask<?>>(taskSet)) {
+                task.cancel(true);
+            }
+        }
+        
+        return executor.shutdownNow();
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ExecutorService#isShutdown()
+     */
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ExecutorService#isTerminated()
+     */
+    @Override
+    public boolean isTerminated() {
+        return shutdown && executor.isTerminated();
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    
+    /**
+     * Close the executor and release the lead: the running tasks can finish within the grace period, afterwards they
+     * get interrupted and the leader elector is closed.
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        shutdown();
+        try {
+            if (!executor.awaitTermination(gracePeriod.toNanos(), TimeUnit.NANOSECONDS)) {
+                LOG.info("Interrupt the running tasks of [" + leaderElector + "] after the grace period of " + gracePeriod.toMillis() + "ms.");
+                shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        leaderElector.removeLeaderElectionListener(leaderElectionListener);
+        leaderElector.close();
+    }
+
+    
+    /**
+     * Add a task, it is scheduled immediately in lead
+     *
+     * @param <V> the result type
+     * @param task the task
+     * @return the task
+     * @throws RejectedExecutionException in case the executor is shutdown
+     */
+    private synchronized <V> LeaderTask<V> add(LeaderTask<V> task) throws RejectedExecutionException {
+        if (shutdown) {
+            throw new RejectedExecutionException("The executor is shutdown!");
+        }
+        
+        taskSet.add(task);
+        if (leader) {
+            task.start();
+        }
+        
+        return task;
+    }
+
+    
+    /**
+     * The lead was acquired: all tasks are scheduled
+     */
+    private synchronized void onElected() {
+        if (leader || shutdown) {
+            return;
+        }
+        
+        leader = true;
+        for (LeaderTask<?> task : taskSet) {
+            task.start();
+        }
+    }
+
+    
+    /**
+     * The lead was lost: the running tasks are interrupted, the one-shot tasks are cancelled and the periodic tasks
+     * wait for the next lead
+     */
+    private synchronized void onRevoked() {
+        if (!leader) {
+            return;
+        }
+        
+        leader = false;
+        for (LeaderTask<?> task : new ArrayList<LeaderTask<?>>(taskSet)) {
+            if (task.isPeriodic()) {
+                task.stop();
+            } else {
+                task.cancel(true);
+            }
+        }
+    }
+
+    
+    /**
+     * The listener of the leader elector
+     *
+     * @author patrick
+     */
+    private class LeaderListener implements ILeaderElectionListener {
+        
+        /**
+         * @see com.github.toolarium.leader.election.ILeaderElectionListener#onElected(com.github.toolarium.leader.election.dto.LeaderElectionInformation)
+         */
+        @Override
+        public void onElected(LeaderElectionInformation leaderElectionInformation) {
+            LeaderAwareScheduledExecutorService.this.onElected();
+        }
+
+        
+        /**
+         * @see com.github.toolarium.leader.election.ILeaderElectionListener#onRevoked(com.github.toolarium.leader.election.dto.LeaderElectionInformation)
+         */
+        @Override
+        public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+            LeaderAwareScheduledExecutorService.this.onRevoked();
+        }
+
+        
+        /**
+         * @see com.github.toolarium.leader.election.ILeaderElectionListener#onLeaderChanged(com.github.toolarium.leader.election.dto.LeaderElectionInformation, java.lang.String)
+         */
+        @Override
+        public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+            // NOP
+        }
+    }
+
+    
+    /**
+     * A task of the executor: it is scheduled in the thread pool only in lead. The future completes with the result of
+     * a one-shot task; the future of a periodic task completes only by a cancel or an exception of the task.
+     *
+     * @param <V> the result type
+     * @author patrick
+     */
+    private class LeaderTask<V> implements ScheduledFuture<V> {
+        private final Callable<V> callable;
+        private final long initialDelayNanos;
+        private final long periodNanos;
+        private final Future<?> source;
+        private final CompletableFuture<V> result;
+        private final AtomicBoolean claimed;
+        private volatile ScheduledFuture<?> current;
+
+        
+        /**
+         * Constructor for LeaderTask
+         *
+         * @param callable the callable
+         * @param initialDelayNanos the delay after the lead is acquired in nanoseconds
+         * @param periodNanos the period (positive), the delay (negative) or 0 for a one-shot task
+         * @param source the source future which gets cancelled with the task or null
+         */
+        LeaderTask(Callable<V> callable, long initialDelayNanos, long periodNanos, Future<?> source) {
+            this.callable = callable;
+            this.initialDelayNanos = initialDelayNanos;
+            this.periodNanos = periodNanos;
+            this.source = source;
+            this.result = new CompletableFuture<V>();
+            this.claimed = new AtomicBoolean(false);
+            this.current = null;
+        }
+
+        
+        /**
+         * Check if the task is periodic
+         *
+         * @return true if the task is periodic
+         */
+        boolean isPeriodic() {
+            return periodNanos != 0;
+        }
+
+        
+        /**
+         * Schedule the task in the thread pool, guarded by the executor
+         */
+        void start() {
+            if (current != null || result.isDone()) {
+                return;
+            }
+            
+            if (periodNanos == 0) {
+                current = executor.schedule(this::runOnce, initialDelayNanos, TimeUnit.NANOSECONDS);
+            } else if (periodNanos > 0) {
+                current = executor.scheduleAtFixedRate(this::runPeriodic, initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+            } else {
+                current = executor.scheduleWithFixedDelay(this::runPeriodic, initialDelayNanos, -periodNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        
+        /**
+         * Remove the task from the thread pool and interrupt a running task, guarded by the executor
+         */
+        void stop() {
+            if (current != null) {
+                current.cancel(true);
+                current = null;
+            }
+        }
+
+        
+        /**
+         * Cancel a periodic task or a one-shot task which is not running yet
+         */
+        void cancelWaiting() {
+            if (isPeriodic() || claimed.compareAndSet(false, true)) {
+                cancel(false);
+            }
+        }
+
+        
+        /**
+         * Run a one-shot task
+         */
+        private void runOnce() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            
+            if (!leaderElector.isLeader()) {
+                cancel(false);
+                return;
+            }
+            
+            try {
+                result.complete(callable.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                taskSet.remove(this);
+            }
+        }
+
+        
+        /**
+         * Run a periodic task, an exception suppresses the subsequent runs
+         */
+        private void runPeriodic() {
+            if (!leaderElector.isLeader()) {
+                return;
+            }
+            
+            try {
+                callable.call();
+            } catch (Exception e) {
+                LOG.warn("Error occured in periodic task of [" + leaderElector + "]: " + e.getMessage(), e);
+                result.completeExceptionally(e);
+                synchronized (LeaderAwareScheduledExecutorService.this) {
+                    taskSet.remove(this);
+                    stop();
+                }
+            }
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#cancel(boolean)
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // the result is cancelled before the interrupt, an interrupted task can not complete it anymore
+            final boolean cancelled = result.cancel(mayInterruptIfRunning);
+            synchronized (LeaderAwareScheduledExecutorService.this) {
+                taskSet.remove(this);
+                if (current != null) {
+                    current.cancel(mayInterruptIfRunning);
+                    current = null;
+                }
+            }
+            
+            if (source != null) {
+                source.cancel(mayInterruptIfRunning);
+            }
+            
+            return cancelled;
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#isCancelled()
+         */
+        @Override
+        public boolean isCancelled() {
+            return result.isCancelled();
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#isDone()
+         */
+        @Override
+        public boolean isDone() {
+            return result.isDone();
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#get()
+         */
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return result.get();
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return result.get(timeout, unit);
+        }
+
+        
+        /**
+         * Get the delay of the next run, it is not scheduled while not in lead
+         *
+         * @see java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public long getDelay(TimeUnit unit) {
+            final ScheduledFuture<?> scheduledFuture = current;
+            if (scheduledFuture == null) {
+                return Long.MAX_VALUE;
+            }
+            
+            return scheduledFuture.getDelay(unit);
+        }
+
+        
+        /**
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
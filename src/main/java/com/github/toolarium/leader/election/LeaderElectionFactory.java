@@ -6,12 +6,20 @@
 
 package com.github.toolarium.leader.election;
 
+import com.github.toolarium.leader.election.dto.LeaderElectionBackend;
 import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.LeaderElectionScheduler;
+import com.github.toolarium.leader.election.impl.file.FileLeaderElectorImpl;
+import com.github.toolarium.leader.election.impl.jdbc.JdbcLeaderElectorImpl;
 import com.github.toolarium.leader.election.impl.jgroup.JGroupLeaderElectorImpl;
 import com.github.toolarium.leader.election.impl.kubernetes.KubernetesLeaderElectorImpl;
 import com.github.toolarium.leader.election.impl.kubernetes.KubernetesUtil;
+import com.github.toolarium.leader.election.impl.metrics.LeaderElectionMetrics;
 import java.io.IOException;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +31,8 @@ import org.slf4j.LoggerFactory;
  */
 public final class LeaderElectionFactory {
     private static final Logger LOG = LoggerFactory.getLogger(LeaderElectionFactory.class);
+    private volatile ILeaderElectionScheduler scheduler;
+    private volatile ILeaderElectionMetrics metrics;
 
 
     /**
@@ -38,7 +48,8 @@ public final class LeaderElectionFactory {
      * Constructor
      */
     private LeaderElectionFactory() {
-        // NOP
+        scheduler = null;
+        metrics = null;
     }
 
     /**
@@ -74,7 +85,23 @@ public final class LeaderElectionFactory {
     public ILeaderElector getLeaderElection(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
         ILeaderElector leaderElector = null;
         
-        if (KubernetesUtil.getInstance().isAvailable(leaderElectionInformation)) {
+        final LeaderElectionBackend backend = leaderElectionConfiguration.getBackend();
+        if (backend == LeaderElectionBackend.KUBERNETES) {
+            LOG.info("Use kubernetes leader elector (configured).");
+            return new KubernetesLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration);
+        }
+        
+        if (backend == LeaderElectionBackend.JDBC) {
+            LOG.info("Use jdbc leader elector (configured).");
+            return new JdbcLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration);
+        }
+        
+        if (backend == LeaderElectionBackend.FILE) {
+            LOG.info("Use file leader elector (configured).");
+            return new FileLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration);
+        }
+        
+        if (backend != LeaderElectionBackend.JGROUP && KubernetesUtil.getInstance().isAvailable(leaderElectionInformation, leaderElectionConfiguration.getKubernetesLockType())) {
             try {
                 leaderElector = new KubernetesLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration);
                 LOG.info("Use kubernetes leader elector.");
@@ -90,4 +117,115 @@ public final class LeaderElectionFactory {
         
         return leaderElector;
     }
+
+
+    /**
+     * Get the leader electior asynchronous: the backend detection and the initialization (e.g. joining the cluster) 
+     * run on a managed thread and don't block the caller. The elector is not in lead until the first decision.
+     *
+     * @param leaderElectionInformation the leader election information
+     * @return the leader elector future, it completes exceptionally with an {@link IOException} in case of an i/o error
+     */
+    public CompletableFuture<ILeaderElector> getLeaderElectionAsync(LeaderElectionInformation leaderElectionInformation) {
+        return getLeaderElectionAsync(leaderElectionInformation, new LeaderElectionConfiguration());
+    }
+
+    
+    /**
+     * Get the leader electior asynchronous: the backend detection and the initialization (e.g. joining the cluster) 
+     * run on a managed thread and don't block the caller. The elector is not in lead until the first decision.
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the leader elector future, it completes exceptionally with an {@link IOException} in case of an i/o error
+     */
+    public CompletableFuture<ILeaderElector> getLeaderElectionAsync(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getLeaderElection(leaderElectionInformation, leaderElectionConfiguration);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, getScheduler()::execute);
+    }
+
+    
+    /**
+     * Get the scheduler which is shared by all leader electors: the scheduler which was set, the first scheduler 
+     * found by the {@link ServiceLoader} or the default {@link LeaderElectionScheduler}.
+     *
+     * @return the scheduler
+     */
+    public ILeaderElectionScheduler getScheduler() {
+        ILeaderElectionScheduler result = scheduler;
+        if (result == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    scheduler = ServiceLoader.load(ILeaderElectionScheduler.class).findFirst().orElseGet(LeaderElectionScheduler::getInstance);
+                    LOG.debug("Use leader election scheduler [" + scheduler.getClass().getName() + "].");
+                }
+                
+                result = scheduler;
+            }
+        }
+        
+        return result;
+    }
+
+    
+    /**
+     * Set the scheduler which is shared by all leader electors, it is used by the leader electors created afterwards.
+     *
+     * @param scheduler the scheduler or null to resolve the default scheduler
+     */
+    public void setScheduler(ILeaderElectionScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    
+    /**
+     * Get the metrics which are shared by all leader electors: the metrics which were set or the default 
+     * {@link LeaderElectionMetrics}.
+     *
+     * @return the metrics
+     */
+    public ILeaderElectionMetrics getMetrics() {
+        ILeaderElectionMetrics result = metrics;
+        if (result == null) {
+            result = LeaderElectionMetrics.getInstance();
+        }
+        
+        return result;
+    }
+
+    
+    /**
+     * Set the metrics which are shared by all leader electors, e.g. to bridge them to a metrics library.
+     *
+     * @param metrics the metrics or null to use the default metrics
+     */
+    public void setMetrics(ILeaderElectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    
+    /**
+     * Get a partitioned leader electior: the partitions of the configuration are spread over all candidates. 
+     * The partitioned leader election is based on jgroup.
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the partitioned leader elector
+     * @throws IOException in case of an i/o error
+     * @throws IllegalArgumentException in case an other backend than jgroup is configured
+     */
+    public IPartitionedLeaderElector getPartitionedLeaderElection(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) 
+        throws IOException, IllegalArgumentException {
+        if (leaderElectionConfiguration.getBackend() != LeaderElectionBackend.AUTO && leaderElectionConfiguration.getBackend() != LeaderElectionBackend.JGROUP) {
+            throw new IllegalArgumentException("Partitioned leader election is not supported by the backend [" + leaderElectionConfiguration.getBackend() + "]!");
+        }
+        
+        LOG.info("Use jgroup partitioned leader elector (" + leaderElectionConfiguration.getPartitions() + " partitions).");
+        return new JGroupLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration);
+    }
 }
@@ -0,0 +1,26 @@
+/*
+ * JGroupStack.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.dto;
+
+
+/**
+ * Defines the jgroup protocol stack presets
+ * 
+ * @author patrick
+ */
+public enum JGroupStack {
+    /** The jgroup default stack: udp multicast with the default failure detection */
+    DEFAULT,
+    
+    /** Tcp with a static member list (TCPPING), no multicast needed; with the jgroup default failure detection timeouts */
+    TCP,
+    
+    /** Tcp with a static member list (TCPPING) and fast failure detection (FD_SOCK2, FD_ALL3 and a short VERIFY_SUSPECT) */
+    TCP_FAST,
+    
+    /** In-jvm loopback transport with fast failure detection, e.g. for tests */
+    SHARED_LOOPBACK;
+}
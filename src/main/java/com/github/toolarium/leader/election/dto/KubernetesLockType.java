@@ -0,0 +1,20 @@
+/*
+ * KubernetesLockType.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.dto;
+
+
+/**
+ * Defines the kubernetes resource which is used as lock
+ * 
+ * @author patrick
+ */
+public enum KubernetesLockType {
+    /** A coordination.k8s.io/v1 Lease: a small dedicated object, renewals don't affect other watchers */
+    LEASE,
+    
+    /** An annotation on an Endpoints object: every renewal notifies all endpoints watchers of the namespace */
+    ENDPOINTS;
+}
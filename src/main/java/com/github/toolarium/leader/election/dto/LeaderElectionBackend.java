@@ -0,0 +1,29 @@
+/*
+ * LeaderElectionBackend.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.dto;
+
+
+/**
+ * Defines the backend of the leader election
+ * 
+ * @author patrick
+ */
+public enum LeaderElectionBackend {
+    /** Kubernetes if it is available, otherwise jgroup; the jdbc and the file backend are never detected */
+    AUTO,
+    
+    /** Kubernetes without detection */
+    KUBERNETES,
+    
+    /** Jgroup without detection */
+    JGROUP,
+    
+    /** A lease table in a database, the data source has to be set (see JdbcUtil); it is only used if it is configured */
+    JDBC,
+    
+    /** A file lock of a lease file, the candidates have to run on the same host (see LeaderElectionConfiguration#setFileLeaseDirectory) */
+    FILE;
+}
@@ -17,6 +17,17 @@ public class LeaderElectionConfiguration {
     private Duration timeout;
     private Duration renewDeadline;
     private Duration retryPeriod;
+    private LeaderElectionBackend backend;
+    private KubernetesLockType kubernetesLockType;
+    private boolean kubernetesWatch;
+    private int partitions;
+    private JGroupStack jgroupStack;
+    private String jgroupConfiguration;
+    private String jgroupBindAddress;
+    private String jgroupInitialHosts;
+    private int jgroupPriority;
+    private int jgroupPriorityHysteresis;
+    private String fileLeaseDirectory;
 
     
     /**
@@ -36,11 +47,37 @@ public class LeaderElectionConfiguration {
      * @throws IllegalArgumentException In case of a parameter failure
      */
     public LeaderElectionConfiguration(long timeoutInSeconds) throws IllegalArgumentException {
-        this.timeout = Duration.ofSeconds(timeoutInSeconds);
-        this.retryPeriod = Duration.ofSeconds(timeoutInSeconds).dividedBy(2);
-        this.renewDeadline = Duration.ofSeconds(timeoutInSeconds - retryPeriod.toSeconds());
-        if (renewDeadline.toSeconds() <= retryPeriod.toSeconds()) {
-            this.renewDeadline = renewDeadline.plus(renewDeadline.dividedBy(2));
+        this(Duration.ofSeconds(timeoutInSeconds));
+    }
+
+    
+    /**
+     * Constructor for LeaderElectionConfiguration, the renew deadline and retry period are derived from the timeout. 
+     * The full precision of the duration is supported, e.g. a timeout of 600 milliseconds.
+     *
+     * @param timeout the timeout
+     * @throws IllegalArgumentException In case of a parameter failure
+     */
+    public LeaderElectionConfiguration(Duration timeout) throws IllegalArgumentException {
+        this.backend = LeaderElectionBackend.AUTO;
+        this.kubernetesLockType = KubernetesLockType.LEASE;
+        this.kubernetesWatch = false;
+        this.partitions = 1;
+        this.jgroupStack = JGroupStack.DEFAULT;
+        this.jgroupConfiguration = null;
+        this.jgroupBindAddress = null;
+        this.jgroupInitialHosts = null;
+        this.jgroupPriority = 0;
+        this.jgroupPriorityHysteresis = 0;
+        this.fileLeaseDirectory = null;
+        this.timeout = timeout;
+        
+        if (timeout != null) {
+            this.retryPeriod = timeout.dividedBy(2);
+            this.renewDeadline = timeout.minus(retryPeriod);
+            if (renewDeadline.compareTo(retryPeriod) <= 0) {
+                this.renewDeadline = renewDeadline.plus(renewDeadline.dividedBy(2));
+            }
         }
         
         validate();
@@ -60,6 +97,17 @@ public class LeaderElectionConfiguration {
         this.timeout = timeout;
         this.renewDeadline = renewDeadline;
         this.retryPeriod = retryPeriod;
+        this.backend = LeaderElectionBackend.AUTO;
+        this.kubernetesLockType = KubernetesLockType.LEASE;
+        this.kubernetesWatch = false;
+        this.partitions = 1;
+        this.jgroupStack = JGroupStack.DEFAULT;
+        this.jgroupConfiguration = null;
+        this.jgroupBindAddress = null;
+        this.jgroupInitialHosts = null;
+        this.jgroupPriority = 0;
+        this.jgroupPriorityHysteresis = 0;
+        this.fileLeaseDirectory = null;
         
         validate();
     }
@@ -70,15 +118,15 @@ public class LeaderElectionConfiguration {
      * @throws IllegalArgumentException In case of a parameter failure
      */
     private void validate() throws IllegalArgumentException {
-        if (timeout == null || timeout.isZero()) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
             throw new IllegalArgumentException("Invalid timeout!");
         }
 
-        if (renewDeadline == null || renewDeadline.isZero() || renewDeadline.toSeconds() >= timeout.toSeconds()) {
+        if (renewDeadline == null || renewDeadline.isZero() || renewDeadline.isNegative() || renewDeadline.compareTo(timeout) >= 0) {
             throw new IllegalArgumentException("Invalid renewDeadline. The renew deadline must be < timeout!");
         }
 
-        if (retryPeriod == null || retryPeriod.isZero() || renewDeadline.toSeconds() > retryPeriod.toSeconds()) {
+        if (retryPeriod == null || retryPeriod.isZero() || retryPeriod.isNegative() || retryPeriod.compareTo(renewDeadline) >= 0) {
             throw new IllegalArgumentException("Invalid retryPeriod. The retry period must be < renewDeadline!");
         }
     }
@@ -144,12 +192,249 @@ public class LeaderElectionConfiguration {
     }
 
 
+    /**
+     * Get the backend
+     *
+     * @return the backend
+     */
+    public LeaderElectionBackend getBackend() {
+        return backend;
+    }
+
+    
+    /**
+     * Set the backend, by default it is detected
+     *
+     * @param backend the backend
+     */
+    public void setBackend(LeaderElectionBackend backend) {
+        this.backend = backend;
+    }
+
+    
+    /**
+     * Get the kubernetes lock type
+     *
+     * @return the kubernetes lock type
+     */
+    public KubernetesLockType getKubernetesLockType() {
+        return kubernetesLockType;
+    }
+
+    
+    /**
+     * Set the kubernetes lock type, by default a lease is used
+     *
+     * @param kubernetesLockType the kubernetes lock type
+     */
+    public void setKubernetesLockType(KubernetesLockType kubernetesLockType) {
+        this.kubernetesLockType = kubernetesLockType;
+    }
+
+
+    /**
+     * Check if the kubernetes followers watch the lock
+     *
+     * @return true if the kubernetes followers watch the lock
+     */
+    public boolean isKubernetesWatch() {
+        return kubernetesWatch;
+    }
+
+    
+    /**
+     * Set if the kubernetes followers watch the lock instead of reading it every retry period: a follower tries to acquire 
+     * the lock only when it is released or about to expire. It is supported by the lease lock type, by default the lock is read.
+     *
+     * @param kubernetesWatch true if the kubernetes followers watch the lock
+     */
+    public void setKubernetesWatch(boolean kubernetesWatch) {
+        this.kubernetesWatch = kubernetesWatch;
+    }
+
+
+    /**
+     * Get the number of partitions
+     *
+     * @return the number of partitions
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    
+    /**
+     * Set the number of partitions of a partitioned leader election, by default there is one partition owned by the leader
+     *
+     * @param partitions the number of partitions
+     * @throws IllegalArgumentException In case of a parameter failure
+     */
+    public void setPartitions(int partitions) throws IllegalArgumentException {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Invalid partitions. There must be at least one partition!");
+        }
+        
+        this.partitions = partitions;
+    }
+
+
+    /**
+     * Get the jgroup protocol stack preset
+     *
+     * @return the jgroup protocol stack preset
+     */
+    public JGroupStack getJGroupStack() {
+        return jgroupStack;
+    }
+
+    
+    /**
+     * Set the jgroup protocol stack preset, by default the jgroup default stack (udp multicast) is used
+     *
+     * @param jgroupStack the jgroup protocol stack preset
+     */
+    public void setJGroupStack(JGroupStack jgroupStack) {
+        this.jgroupStack = jgroupStack;
+    }
+
+    
+    /**
+     * Get the jgroup configuration
+     *
+     * @return the jgroup configuration or null
+     */
+    public String getJGroupConfiguration() {
+        return jgroupConfiguration;
+    }
+
+    
+    /**
+     * Set the jgroup configuration: a path, url or classpath resource of a jgroup xml configuration. It has precedence 
+     * over the jgroup protocol stack preset.
+     *
+     * @param jgroupConfiguration the jgroup configuration or null
+     */
+    public void setJGroupConfiguration(String jgroupConfiguration) {
+        this.jgroupConfiguration = jgroupConfiguration;
+    }
+
+    
+    /**
+     * Get the jgroup bind address
+     *
+     * @return the jgroup bind address or null
+     */
+    public String getJGroupBindAddress() {
+        return jgroupBindAddress;
+    }
+
+    
+    /**
+     * Set the jgroup bind address of the tcp presets, e.g. 127.0.0.1 or site_local. By default the system property 
+     * jgroups.bind_addr or a site local address is used.
+     *
+     * @param jgroupBindAddress the jgroup bind address or null
+     */
+    public void setJGroupBindAddress(String jgroupBindAddress) {
+        this.jgroupBindAddress = jgroupBindAddress;
+    }
+
+    
+    /**
+     * Get the jgroup initial hosts
+     *
+     * @return the jgroup initial hosts or null
+     */
+    public String getJGroupInitialHosts() {
+        return jgroupInitialHosts;
+    }
+
+    
+    /**
+     * Set the jgroup initial hosts of the tcp presets, e.g. host1[7800],host2[7800]. By default the system property 
+     * jgroups.tcpping.initial_hosts or localhost[7800] is used.
+     *
+     * @param jgroupInitialHosts the jgroup initial hosts or null
+     */
+    public void setJGroupInitialHosts(String jgroupInitialHosts) {
+        this.jgroupInitialHosts = jgroupInitialHosts;
+    }
+
+
+    /**
+     * Get the jgroup priority of the candidate
+     *
+     * @return the jgroup priority
+     */
+    public int getJGroupPriority() {
+        return jgroupPriority;
+    }
+
+    
+    /**
+     * Set the jgroup priority of the candidate, e.g. its capacity: the candidate with the highest priority gets in 
+     * lead, on the same priority the oldest member. By default all candidates have the priority 0.
+     *
+     * @param jgroupPriority the jgroup priority
+     */
+    public void setJGroupPriority(int jgroupPriority) {
+        this.jgroupPriority = jgroupPriority;
+    }
+
+    
+    /**
+     * Get the jgroup priority hysteresis
+     *
+     * @return the jgroup priority hysteresis
+     */
+    public int getJGroupPriorityHysteresis() {
+        return jgroupPriorityHysteresis;
+    }
+
+    
+    /**
+     * Set the jgroup priority hysteresis: a candidate takes over the lead from the current leader only if its priority 
+     * is higher by more than the hysteresis. It has to be the same for all candidates of an election, by default 0.
+     *
+     * @param jgroupPriorityHysteresis the jgroup priority hysteresis
+     * @throws IllegalArgumentException In case of a parameter failure
+     */
+    public void setJGroupPriorityHysteresis(int jgroupPriorityHysteresis) throws IllegalArgumentException {
+        if (jgroupPriorityHysteresis < 0) {
+            throw new IllegalArgumentException("Invalid jgroup priority hysteresis. It must not be negative!");
+        }
+        
+        this.jgroupPriorityHysteresis = jgroupPriorityHysteresis;
+    }
+
+    
+    /**
+     * Get the directory of the file leases
+     *
+     * @return the directory of the file leases or null
+     */
+    public String getFileLeaseDirectory() {
+        return fileLeaseDirectory;
+    }
+
+    
+    /**
+     * Set the directory of the file leases of the file backend: all candidates of the host have to use the same 
+     * directory on a local file system. By default the directory leader-election in java.io.tmpdir is used.
+     *
+     * @param fileLeaseDirectory the directory of the file leases or null
+     */
+    public void setFileLeaseDirectory(String fileLeaseDirectory) {
+        this.fileLeaseDirectory = fileLeaseDirectory;
+    }
+
+
     /**
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return Objects.hash(retryPeriod, renewDeadline, timeout);
+        return Objects.hash(retryPeriod, renewDeadline, timeout, backend, kubernetesLockType, kubernetesWatch, partitions, jgroupStack, jgroupConfiguration, jgroupBindAddress, jgroupInitialHosts, jgroupPriority, jgroupPriorityHysteresis, fileLeaseDirectory);
     }
 
 
@@ -171,7 +456,11 @@ public class LeaderElectionConfiguration {
         }
         
         LeaderElectionConfiguration other = (LeaderElectionConfiguration) obj;
-        return Objects.equals(retryPeriod, other.retryPeriod) && Objects.equals(renewDeadline, other.renewDeadline) && Objects.equals(timeout, other.timeout);
+        return Objects.equals(retryPeriod, other.retryPeriod) && Objects.equals(renewDeadline, other.renewDeadline) && Objects.equals(timeout, other.timeout) 
+               && backend == other.backend && kubernetesLockType == other.kubernetesLockType && kubernetesWatch == other.kubernetesWatch
+               && partitions == other.partitions && jgroupStack == other.jgroupStack && Objects.equals(jgroupConfiguration, other.jgroupConfiguration) 
+               && Objects.equals(jgroupBindAddress, other.jgroupBindAddress) && Objects.equals(jgroupInitialHosts, other.jgroupInitialHosts)
+               && jgroupPriority == other.jgroupPriority && jgroupPriorityHysteresis == other.jgroupPriorityHysteresis && Objects.equals(fileLeaseDirectory, other.fileLeaseDirectory);
     }
 
 
@@ -180,6 +469,8 @@ public class LeaderElectionConfiguration {
      */
     @Override
     public String toString() {
-        return "LeaderElectionConfiguration [timeout=" + timeout + ", renewDeadline=" + renewDeadline + ", retryPeriod=" + retryPeriod + "]";
+        return "LeaderElectionConfiguration [timeout=" + timeout + ", renewDeadline=" + renewDeadline + ", retryPeriod=" + retryPeriod + ", backend=" + backend + ", kubernetesLockType=" + kubernetesLockType + ", kubernetesWatch=" + kubernetesWatch + ", partitions=" + partitions
+               + ", jgroupStack=" + jgroupStack + ", jgroupConfiguration=" + jgroupConfiguration + ", jgroupBindAddress=" + jgroupBindAddress + ", jgroupInitialHosts=" + jgroupInitialHosts
+               + ", jgroupPriority=" + jgroupPriority + ", jgroupPriorityHysteresis=" + jgroupPriorityHysteresis + ", fileLeaseDirectory=" + fileLeaseDirectory + "]";
     }
 }
@@ -133,6 +133,28 @@ public class LeaderElectionInformation {
     }
 
     
+    /**
+     * Get the election name: the namespace and name which are shared by all candidates of the election
+     * 
+     * @return the election name
+     */
+    public String getElectionName() {
+        String electionName = "";
+        if (getNamespace() != null && !getNamespace().isBlank()) {
+            electionName = getNamespace();
+        }
+        
+        if (getName() != null && !getName().isBlank()) {
+            if (!electionName.isEmpty()) {
+                electionName += ".";
+            }
+            electionName += getName();
+        }
+        
+        return electionName;
+    }
+
+    
     /**
      * Get the unique name
      * 
@@ -0,0 +1,108 @@
+/*
+ * LeaderInformation.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.dto;
+
+import java.time.Instant;
+import java.util.Objects;
+
+
+/**
+ * Defines the information of the current leader as observed by a candidate. It is immutable, a candidate gets a new
+ * instance with every observation of the backend.
+ *
+ * @author patrick
+ */
+public class LeaderInformation {
+    private final String identity;
+    private final String address;
+    private final Instant observedTimestamp;
+
+    
+    /**
+     * Constructor for LeaderInformation
+     *
+     * @param identity the identity of the leader
+     * @param address the address of the leader or null if the backend doesn't know it
+     * @param observedTimestamp the timestamp of the observation
+     */
+    public LeaderInformation(String identity, String address, Instant observedTimestamp) {
+        this.identity = identity;
+        this.address = address;
+        this.observedTimestamp = observedTimestamp;
+    }
+
+    
+    /**
+     * Get the identity of the leader
+     *
+     * @return the identity
+     */
+    public String getIdentity() {
+        return identity;
+    }
+
+    
+    /**
+     * Get the address of the leader: the jgroup backend provides the physical address of the leader member (e.g.
+     * 10.0.0.1:7800), the other backends know only the identity.
+     *
+     * @return the address or null
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    
+    /**
+     * Get the timestamp when the leader was observed the last time in the backend, e.g. the last read of the kubernetes
+     * lease or the last view or announcement of the jgroup members
+     *
+     * @return the timestamp of the observation
+     */
+    public Instant getObservedTimestamp() {
+        return observedTimestamp;
+    }
+
+    
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(identity, address, observedTimestamp);
+    }
+
+    
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        
+        if (obj == null) {
+            return false;
+        }
+        
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        
+        LeaderInformation other = (LeaderInformation) obj;
+        return Objects.equals(identity, other.identity) && Objects.equals(address, other.address) && Objects.equals(observedTimestamp, other.observedTimestamp);
+    }
+
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "LeaderInformation [identity=" + identity + ", address=" + address + ", observedTimestamp=" + observedTimestamp + "]";
+    }
+}
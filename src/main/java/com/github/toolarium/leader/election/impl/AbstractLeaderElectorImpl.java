@@ -5,10 +5,24 @@
  */
 package com.github.toolarium.leader.election.impl;
 
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.ILeaderElectionMetrics;
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
 import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.LeaderElectionFactory;
 import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.dto.LeaderInformation;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,10 +34,21 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractLeaderElectorImpl.class);
+    private static final long NO_LEASE_DEADLINE = Long.MIN_VALUE;
     private LeaderElectionInformation leaderElectionInformation;
     private LeaderElectionConfiguration leaderElectionConfiguration;
     private final String uniqueName;
-    private volatile Boolean isLeader;
+    private final List<ILeaderElectionListener> leaderElectionListenerList;
+    private volatile LeaderState leaderState;
+    private volatile String leaderIdentity;
+    private volatile LeaderInformation leader;
+    private volatile long epoch;
+    private volatile long leaseDeadlineNanos;
+    private final AtomicBoolean leaseDeadlineCheckScheduled;
+    private final Queue<Runnable> notificationQueue;
+    private final AtomicBoolean notificationScheduled;
+    private boolean hasLeader;
+    private volatile boolean closed;
 
     
     /**
@@ -38,7 +63,17 @@ public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
         this.leaderElectionInformation = leaderElectionInformation;
         this.leaderElectionConfiguration = leaderElectionConfiguration;
         this.uniqueName = leaderElectionInformation.getUniqueName();
-        isLeader = null;
+        this.leaderElectionListenerList = new CopyOnWriteArrayList<ILeaderElectionListener>();
+        this.leaseDeadlineCheckScheduled = new AtomicBoolean(false);
+        this.notificationQueue = new ConcurrentLinkedQueue<Runnable>();
+        this.notificationScheduled = new AtomicBoolean(false);
+        leaderState = LeaderState.UNKNOWN;
+        leaderIdentity = null;
+        leader = null;
+        epoch = 0;
+        leaseDeadlineNanos = NO_LEASE_DEADLINE;
+        hasLeader = false;
+        closed = false;
         
         init();
     }
@@ -49,16 +84,82 @@ public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
      */
     @Override
     public boolean isLeader() {
-        if ((isLeader != null) && isLeader.booleanValue()) {
-            LOG.debug("In lead of [" + getUniqueName() + "].");
-            return true;
+        // hot path: no allocation and no logging; a follower needs a single volatile read, a leader of a lease 
+        // based backend additionally checks locally the lease deadline (without any network i/o)
+        if (leaderState != LeaderState.LEADER) {
+            return false;
         }
         
-        if (isLeader != null) {
-            LOG.debug("New leader found for [" + getUniqueName() + "].");
+        final long deadline = leaseDeadlineNanos;
+        return deadline == NO_LEASE_DEADLINE || nanoTime() - deadline < 0;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElector#getEpoch()
+     */
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElector#getLeader()
+     */
+    @Override
+    public LeaderInformation getLeader() {
+        return leader;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElector#addLeaderElectionListener(com.github.toolarium.leader.election.ILeaderElectionListener)
+     */
+    @Override
+    public void addLeaderElectionListener(ILeaderElectionListener leaderElectionListener) {
+        if (leaderElectionListener == null) {
+            return;
+        }
+        
+        synchronized (this) {
+            leaderElectionListenerList.add(leaderElectionListener);
+            
+            if (leaderState == LeaderState.LEADER) {
+                notificationQueue.add(() -> notifyElected(leaderElectionListener));
+                scheduleNotification();
+            }
+        }
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElector#removeLeaderElectionListener(com.github.toolarium.leader.election.ILeaderElectionListener)
+     */
+    @Override
+    public boolean removeLeaderElectionListener(ILeaderElectionListener leaderElectionListener) {
+        return leaderElectionListenerList.remove(leaderElectionListener);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElector#close()
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            
+            // stop acting as leader before the lead is released in the backend
+            setLeader(null, null);
+            closed = true;
         }
         
-        return false;
+        LOG.debug("Release leader election [" + getUniqueName() + "]...");
+        release();
+        getMetrics().onClose(this, leaderElectionInformation);
     }
 
     
@@ -71,36 +172,284 @@ public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
 
     
     /**
-     * Set the leader
+     * Release the lead in the backend, called once on close after the leader state was reset. Later leader updates 
+     * of the backend are ignored.
+     */
+    protected abstract void release();
+
+    
+    /**
+     * Check if the leader elector is closed
+     *
+     * @return true if it is closed
+     */
+    protected boolean isClosed() {
+        return closed;
+    }
+
+    
+    /**
+     * Set the time of a successful lease renewal: the leadership ends locally after the renew deadline unless the lease
+     * gets renewed again. Only lease based backends call it, without it the leadership lasts until the backend revokes it.
+     * A check at the deadline revokes the lead, the listeners don't have to wait for the next election of the backend.
+     *
+     * @param renewTimeNanos the {@link #nanoTime()} when the renewal was started
+     */
+    protected void setLeaseRenewed(long renewTimeNanos) {
+        leaseDeadlineNanos = renewTimeNanos + leaderElectionConfiguration.getRenewDeadline().toNanos();
+        if (leaseDeadlineCheckScheduled.compareAndSet(false, true)) {
+            scheduleLeaseDeadlineCheck(leaseDeadlineNanos - nanoTime());
+        }
+    }
+
+    
+    /**
+     * Check if the leader state is set but the lease is expired locally
+     *
+     * @return true if the lease is expired
+     */
+    protected boolean isLeaseExpired() {
+        final long deadline = leaseDeadlineNanos;
+        return leaderState == LeaderState.LEADER && deadline != NO_LEASE_DEADLINE && nanoTime() - deadline >= 0;
+    }
+
+    
+    /**
+     * Check the lease deadline: the lead is revoked in case the lease was not renewed in time, otherwise the check is 
+     * scheduled for the current deadline. There is at most one scheduled check per leader elector.
+     */
+    private void checkLeaseDeadline() {
+        synchronized (this) {
+            if (closed || leaderState != LeaderState.LEADER || leaseDeadlineNanos == NO_LEASE_DEADLINE) {
+                leaseDeadlineCheckScheduled.set(false);
+                return;
+            }
+            
+            if (isLeaseExpired()) {
+                leaseDeadlineCheckScheduled.set(false);
+                LOG.info("Lease of [" + getUniqueName() + "] not renewed within the renew deadline, step down.");
+                setLeader(false, null);
+                return;
+            }
+        }
+        
+        scheduleLeaseDeadlineCheck(leaseDeadlineNanos - nanoTime());
+    }
+
+    
+    /**
+     * Schedule the check of the lease deadline, it runs on a worker of the scheduler because it waits for the monitor
+     *
+     * @param delayNanos the delay in nanoseconds
+     */
+    private void scheduleLeaseDeadlineCheck(long delayNanos) {
+        final ILeaderElectionScheduler scheduler = getScheduler();
+        scheduler.schedule(() -> scheduler.execute(this::checkLeaseDeadline), Duration.ofNanos(Math.max(0, delayNanos)));
+    }
+
+    
+    /**
+     * Set the leader. The registered listeners get notified in case of a transition.
+     *
+     * @param isLeader the leader
+     * @param leaderIdentity the identity of the current leader or null if it is not known
+     */
+    protected void setLeader(final Boolean isLeader, final String leaderIdentity) {
+        setLeader(isLeader, leaderIdentity, epoch);
+    }
+
+    
+    /**
+     * Set the leader. The registered listeners get notified in case of a transition. It has no effect after close.
+     *
+     * @param isLeader the leader
+     * @param leaderIdentity the identity of the current leader or null if it is not known
+     * @param epoch the epoch of the leadership, it is only taken if it is higher than the current epoch
+     */
+    protected void setLeader(final Boolean isLeader, final String leaderIdentity, final long epoch) {
+        setLeader(isLeader, leaderIdentity, null, epoch);
+    }
+
+    
+    /**
+     * Set the leader. The registered listeners get notified in case of a transition. The transition is captured under 
+     * the monitor but the listeners are called afterwards on a worker of the scheduler, in the order of the transitions: 
+     * a slow listener doesn't block the backend and a listener can call back into the leader elector. It has no effect 
+     * after close.
      *
      * @param isLeader the leader
-     * @param inputDescription the description
+     * @param leaderIdentity the identity of the current leader or null if it is not known
+     * @param leaderAddress the address of the current leader or null if it is not known
+     * @param epoch the epoch of the leadership, it is only taken if it is higher than the current epoch
      */
-    protected void setLeader(final Boolean isLeader, final String inputDescription) {
-        final String description;
-        if (inputDescription != null) {
-            description = "(" + inputDescription + ")"; 
-        } else {
-            description = "";
+    protected synchronized void setLeader(final Boolean isLeader, final String leaderIdentity, final String leaderAddress, final long epoch) {
+        if (closed) {
+            return;
         }
         
+        final LeaderState newLeaderState = LeaderState.toLeaderState(isLeader);
+        final boolean wasLeader = leaderState == LeaderState.LEADER;
+        final boolean nowLeader = newLeaderState == LeaderState.LEADER;
+        final boolean leaderChanged = leaderIdentity != null && !Objects.equals(this.leaderIdentity, leaderIdentity);
+        final boolean hadLeader = hasLeader;
+        hasLeader = nowLeader || leaderIdentity != null;
+        
         if (isLeader == null) {
-            if (this.isLeader != null && this.isLeader) {
+            if (wasLeader) {
                 LOG.debug("Losed lead of [" + getUniqueName() + "].");
             }            
-        } else if (isLeader.booleanValue()) {
-            if (this.isLeader == null || !this.isLeader) {
+        } else if (nowLeader) {
+            if (!wasLeader) {
                 LOG.debug("Get in lead of [" + getUniqueName() + "].");
             }
-        } else {
-            if (this.isLeader == null) {
-                LOG.debug("New lead found for [" + getUniqueName() + "] " + description + ".");
-            } else if (this.isLeader) {
-                LOG.debug("New lead found for [" + getUniqueName() + "] " + description + ".");
-            }
+        } else if (leaderState == LeaderState.UNKNOWN || wasLeader || leaderChanged) {
+            LOG.debug("New lead found for [" + getUniqueName() + "] (" + leaderIdentity + ").");
         }        
         
-        this.isLeader = isLeader;
+        // the epoch is written before the state: a reader which sees the new state sees the new epoch
+        if (epoch > this.epoch) {
+            this.epoch = epoch;
+        }
+        
+        this.leaderState = newLeaderState;
+        if (leaderIdentity != null || isLeader == null) {
+            this.leaderIdentity = leaderIdentity;
+        }
+        
+        // the leader is cached for the routing, every observation refreshes its timestamp; an unknown or expired leader
+        // is not routed to
+        if (isLeader == null || (!nowLeader && leaderIdentity == null)) {
+            this.leader = null;
+        } else if (leaderIdentity != null) {
+            this.leader = new LeaderInformation(leaderIdentity, leaderAddress, currentTime());
+        } else if (nowLeader) {
+            this.leader = new LeaderInformation(leaderElectionInformation.getIdentity(), leaderAddress, currentTime());
+        }
+        
+        if ((wasLeader != nowLeader || leaderChanged) && !leaderElectionListenerList.isEmpty()) {
+            final List<ILeaderElectionListener> listenerList = new ArrayList<ILeaderElectionListener>(leaderElectionListenerList);
+            notificationQueue.add(() -> notifyListeners(listenerList, wasLeader, nowLeader, leaderChanged, leaderIdentity));
+            scheduleNotification();
+        }
+        
+        if (wasLeader != nowLeader || leaderChanged || hadLeader != hasLeader) {
+            try {
+                getMetrics().onTransition(this, leaderElectionInformation, nowLeader, leaderIdentity, nanoTime());
+            } catch (RuntimeException e) {
+                LOG.warn("Error occured in metrics of [" + getUniqueName() + "]: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    
+    /**
+     * Record a lease acquisition or renewal in the metrics
+     *
+     * @param successful true if the lease is held after the renewal
+     * @param latencyNanos the duration of the renewal in nanoseconds
+     */
+    protected void recordRenewal(boolean successful, long latencyNanos) {
+        try {
+            getMetrics().onRenewal(this, leaderElectionInformation, successful, latencyNanos);
+        } catch (RuntimeException e) {
+            LOG.warn("Error occured in metrics of [" + getUniqueName() + "]: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Schedule the notification of the listeners on a worker of the scheduler. There is at most one worker per leader 
+     * elector, it takes the notifications in the order of the transitions.
+     */
+    private void scheduleNotification() {
+        if (notificationScheduled.compareAndSet(false, true)) {
+            getScheduler().execute(this::runNotifications);
+        }
+    }
+
+    
+    /**
+     * Run the queued notifications of the listeners
+     */
+    private void runNotifications() {
+        Runnable notification = notificationQueue.poll();
+        while (notification != null) {
+            notification.run();
+            notification = notificationQueue.poll();
+        }
+        
+        // a notification which was queued after the last poll is taken by a new worker
+        notificationScheduled.set(false);
+        if (!notificationQueue.isEmpty()) {
+            scheduleNotification();
+        }
+    }
+
+    
+    /**
+     * Notify the listeners of a transition
+     *
+     * @param listenerList the listeners which were registered at the transition
+     * @param wasLeader true if the caller was in lead before the transition
+     * @param nowLeader true if the caller is in lead after the transition
+     * @param leaderChanged true if a new leader was observed
+     * @param leaderIdentity the identity of the new leader
+     */
+    private void notifyListeners(List<ILeaderElectionListener> listenerList, boolean wasLeader, boolean nowLeader, boolean leaderChanged, String leaderIdentity) {
+        for (ILeaderElectionListener leaderElectionListener : listenerList) {
+            if (!wasLeader && nowLeader) {
+                notifyElected(leaderElectionListener);
+            } else if (wasLeader && !nowLeader) {
+                notifyRevoked(leaderElectionListener);
+            }
+            
+            if (leaderChanged) {
+                notifyLeaderChanged(leaderElectionListener, leaderIdentity);
+            }
+        }
+    }
+
+    
+    /**
+     * Notify a listener that the caller got in lead
+     *
+     * @param leaderElectionListener the listener
+     */
+    private void notifyElected(ILeaderElectionListener leaderElectionListener) {
+        try {
+            leaderElectionListener.onElected(leaderElectionInformation);
+        } catch (RuntimeException e) {
+            LOG.warn("Error occured in listener of [" + getUniqueName() + "]: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Notify a listener that the caller lost the lead
+     *
+     * @param leaderElectionListener the listener
+     */
+    private void notifyRevoked(ILeaderElectionListener leaderElectionListener) {
+        try {
+            leaderElectionListener.onRevoked(leaderElectionInformation);
+        } catch (RuntimeException e) {
+            LOG.warn("Error occured in listener of [" + getUniqueName() + "]: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Notify a listener that a new leader was observed
+     *
+     * @param leaderElectionListener the listener
+     * @param leaderIdentity the identity of the new leader
+     */
+    private void notifyLeaderChanged(ILeaderElectionListener leaderElectionListener, String leaderIdentity) {
+        try {
+            leaderElectionListener.onLeaderChanged(leaderElectionInformation, leaderIdentity);
+        } catch (RuntimeException e) {
+            LOG.warn("Error occured in listener of [" + getUniqueName() + "]: " + e.getMessage(), e);
+        }
     }
 
 
@@ -114,6 +463,16 @@ public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
     }
     
     
+    /**
+     * Get the identity of the current leader
+     *
+     * @return the identity of the current leader or null if it is not known
+     */
+    protected String getLeaderIdentity() {
+        return leaderIdentity;
+    }
+
+    
     /**
      * Get the leader election information
      *
@@ -132,4 +491,76 @@ public abstract class AbstractLeaderElectorImpl implements ILeaderElector {
     protected LeaderElectionConfiguration getLeaderElectionConfiguration() {
         return leaderElectionConfiguration;
     }
+
+
+    /**
+     * Get the scheduler which is shared by all leader electors
+     *
+     * @return the scheduler
+     */
+    protected ILeaderElectionScheduler getScheduler() {
+        return LeaderElectionFactory.getInstance().getScheduler();
+    }
+
+
+    /**
+     * Get the time source of the lease deadline and the metrics, by default {@link System#nanoTime()}. A simulation 
+     * replaces it by a virtual clock.
+     *
+     * @return the current value of the time source in nanoseconds
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+
+    /**
+     * Get the current time of the leader observations, by default the system clock
+     *
+     * @return the current time
+     */
+    protected Instant currentTime() {
+        return Instant.now();
+    }
+
+
+    /**
+     * Get the metrics which are shared by all leader electors
+     *
+     * @return the metrics
+     */
+    protected ILeaderElectionMetrics getMetrics() {
+        return LeaderElectionFactory.getInstance().getMetrics();
+    }
+
+
+    /**
+     * Defines the leader state
+     * 
+     * @author patrick
+     */
+    private enum LeaderState {
+        UNKNOWN, 
+        LEADER, 
+        FOLLOWER;
+        
+        
+        /**
+         * Get the leader state
+         *
+         * @param isLeader true if in lead, false if not and null if it is not known
+         * @return the leader state
+         */
+        static LeaderState toLeaderState(Boolean isLeader) {
+            if (isLeader == null) {
+                return UNKNOWN;
+            }
+            
+            if (isLeader.booleanValue()) {
+                return LEADER;
+            }
+            
+            return FOLLOWER;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * DaemonThreadFactory.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Creates named daemon threads: the threads of the leader election don't keep the jvm alive.
+ * 
+ * @author patrick
+ */
+public final class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter;
+    
+    
+    /**
+     * Constructor for DaemonThreadFactory
+     *
+     * @param prefix the thread name prefix
+     */
+    public DaemonThreadFactory(String prefix) {
+        this.prefix = prefix;
+        this.counter = new AtomicInteger(0);
+    }
+
+    
+    /**
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
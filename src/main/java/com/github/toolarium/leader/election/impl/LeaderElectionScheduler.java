@@ -0,0 +1,137 @@
+/*
+ * LeaderElectionScheduler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl;
+
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
+import java.time.Duration;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The default {@link ILeaderElectionScheduler}: one shared timer with a fixed number of threads for the election loops 
+ * of all leader electors and a bounded pool of workers for blocking work like the renewals of a remote lease or the 
+ * asynchronous construction of leader electors. A worker is only started if no other worker is idle, idle workers end 
+ * after a minute. In case all workers are busy the tasks are queued, the number of threads never depends on the number
+ * of leader electors. All threads are daemon threads.
+ * 
+ * @author patrick
+ */
+public final class LeaderElectionScheduler implements ILeaderElectionScheduler {
+    /** The number of timer threads, independent of the number of leader electors */
+    public static final int SCHEDULER_THREADS = 2;
+    
+    /** The name prefix of the timer threads */
+    public static final String SCHEDULER_THREAD_PREFIX = "leader-election-scheduler-";
+    
+    /** The maximum number of worker threads, independent of the number of leader electors */
+    public static final int WORKER_THREADS = 16;
+    
+    /** The name prefix of the worker threads */
+    public static final String WORKER_THREAD_PREFIX = "leader-election-worker-";
+    
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+    private final ScheduledThreadPoolExecutor scheduledExecutorService;
+    private final ThreadPoolExecutor executorService;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final LeaderElectionScheduler INSTANCE = new LeaderElectionScheduler();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private LeaderElectionScheduler() {
+        scheduledExecutorService = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, new DaemonThreadFactory(SCHEDULER_THREAD_PREFIX));
+        
+        // a closed leader elector must not leave its cancelled task in the queue
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        
+        // the queue takes a task only if all workers are busy, see WorkerQueue
+        final WorkerQueue workerQueue = new WorkerQueue();
+        executorService = new ThreadPoolExecutor(0, WORKER_THREADS, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, workerQueue, 
+                                                 new DaemonThreadFactory(WORKER_THREAD_PREFIX), (task, executor) -> workerQueue.enqueue(task));
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static LeaderElectionScheduler getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#scheduleWithFixedDelay(java.lang.Runnable, java.time.Duration, java.time.Duration)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration initialDelay, Duration delay) {
+        return scheduledExecutorService.scheduleWithFixedDelay(task, initialDelay.toNanos(), delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#schedule(java.lang.Runnable, java.time.Duration)
+     */
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Duration delay) {
+        return scheduledExecutorService.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable task) {
+        executorService.execute(task);
+    }
+
+
+    
+    /**
+     * The queue of the workers: the executor offers a task first to an idle worker. If there is none, the offer fails 
+     * and the executor starts a new worker, at most {@link LeaderElectionScheduler#WORKER_THREADS}. A task which is 
+     * rejected by a busy pool gets queued and is taken by the next free worker.
+     * 
+     * @author patrick
+     */
+    private static class WorkerQueue extends LinkedTransferQueue<Runnable> {
+        private static final long serialVersionUID = 1L;
+
+        
+        /**
+         * @see java.util.concurrent.LinkedTransferQueue#offer(java.lang.Object)
+         */
+        @Override
+        public boolean offer(Runnable task) {
+            return tryTransfer(task);
+        }
+
+        
+        /**
+         * Queue a task for the next free worker
+         *
+         * @param task the task
+         */
+        void enqueue(Runnable task) {
+            super.offer(task);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * RenewalBackoff.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * The adaptive delay between two attempts of a follower: exactly one retry period after a successful attempt and an
+ * exponential backoff with decorrelated jitter on consecutive failed attempts, e.g. on a throttling (429) or failing 
+ * (5xx) backend, so the followers of a fleet don't hit the recovering backend in lockstep. The delay never exceeds the 
+ * maximum, e.g. the lease timeout: a follower notices an expired lease at the latest one timeout later. A holder of 
+ * the lease doesn't wait for the backoff, it renews every retry period to keep its lease (renewal floor), but its 
+ * failures are counted to back off as soon as it falls back to a follower. It is not thread safe, it is used under 
+ * the monitor of its leader elector.
+ *
+ * @author patrick
+ */
+public final class RenewalBackoff {
+    private final long baseNanos;
+    private final long maxNanos;
+    private int failures;
+    private long delayNanos;
+
+    
+    /**
+     * Constructor for RenewalBackoff
+     *
+     * @param base the base delay, the retry period
+     * @param max the maximum delay
+     * @throws IllegalArgumentException in case of an invalid delay
+     */
+    public RenewalBackoff(Duration base, Duration max) throws IllegalArgumentException {
+        if (base == null || base.isNegative() || base.isZero()) {
+            throw new IllegalArgumentException("Invalid base delay. It must be positive!");
+        }
+        
+        if (max == null || max.compareTo(base) < 0) {
+            throw new IllegalArgumentException("Invalid maximum delay. It must not be shorter than the base delay!");
+        }
+        
+        this.baseNanos = base.toNanos();
+        this.maxNanos = max.toNanos();
+        this.failures = 0;
+        this.delayNanos = baseNanos;
+    }
+
+    
+    /**
+     * Get the delay until the next attempt
+     *
+     * @param failed true if the last attempt failed
+     * @return the delay in nanoseconds
+     */
+    public long nextDelayNanos(boolean failed) {
+        if (!failed) {
+            // the backoff is reset: the next attempt is due after the retry period
+            failures = 0;
+            delayNanos = baseNanos;
+            return delayNanos;
+        }
+        
+        failures++;
+        
+        // exponential backoff: the lower bound doubles with every consecutive failure
+        long lowerNanos = baseNanos;
+        for (int i = 0; i < failures && lowerNanos < maxNanos; i++) {
+            lowerNanos *= 2;
+        }
+        
+        long upperNanos = 3 * delayNanos;
+        
+        // decorrelated jitter: a random delay between the lower bound and the upper bound derived from the last delay
+        lowerNanos = Math.min(lowerNanos, maxNanos);
+        upperNanos = Math.min(Math.max(upperNanos, lowerNanos), maxNanos);
+        if (upperNanos > lowerNanos) {
+            delayNanos = ThreadLocalRandom.current().nextLong(lowerNanos, upperNanos + 1);
+        } else {
+            delayNanos = lowerNanos;
+        }
+        
+        return delayNanos;
+    }
+
+    
+    /**
+     * Get the number of consecutive failed attempts
+     *
+     * @return the number of consecutive failed attempts
+     */
+    public int getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * FileLeaderElectorImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.file;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+
+
+/**
+ * Implements the {@link ILeaderElector} for candidates on the same host based on a file lock of a lease file, see 
+ * {@link FileLease}. The leader holds the lock as long as it is alive, there is no lease to renew. The operating system 
+ * releases the lock when the holder process dies: a follower takes over with its next attempt, which is done at least 
+ * every {@link #MAX_POLL_INTERVAL}. The holder identity and epoch are read from the memory mapped lease record.
+ * 
+ * @author patrick
+ */
+public class FileLeaderElectorImpl extends AbstractLeaderElectorImpl {
+    /** The maximal interval between two attempts to acquire the lock, a lock attempt is a cheap local system call */
+    public static final Duration MAX_POLL_INTERVAL = Duration.ofMillis(100);
+    private FileLease fileLease;
+    private ScheduledFuture<?> scheduledFuture;
+
+    
+    /**
+     * Constructor for FileLeaderElectorImpl
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @throws IOException in case of an i/o error
+     */
+    public FileLeaderElectorImpl(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        super(leaderElectionInformation, leaderElectionConfiguration);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#init()
+     */
+    @Override
+    protected void init() throws IOException {
+        final FileLeaseRegistry registry = FileLeaseRegistry.getInstance();
+        fileLease = registry.acquire(registry.getLeasePath(getLeaderElectionConfiguration().getFileLeaseDirectory(), getLeaderElectionInformation().getElectionName()));
+        
+        Duration pollInterval = getLeaderElectionConfiguration().getRetryPeriod();
+        if (pollInterval.compareTo(MAX_POLL_INTERVAL) > 0) {
+            pollInterval = MAX_POLL_INTERVAL;
+        }
+        
+        runElection();
+        scheduledFuture = getScheduler().scheduleWithFixedDelay(this::runElection, pollInterval, pollInterval);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+     */
+    @Override
+    protected synchronized void release() {
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        
+        fileLease.release(this);
+        FileLeaseRegistry.getInstance().release(fileLease);
+    }
+
+    
+    /**
+     * Get the identity of this candidate
+     *
+     * @return the identity
+     */
+    String getIdentity() {
+        return getLeaderElectionInformation().getIdentity();
+    }
+
+    
+    /**
+     * Try to acquire the lock and update the leader from the lease record
+     */
+    protected synchronized void runElection() {
+        if (isClosed()) {
+            return;
+        }
+        
+        if (fileLease.tryAcquire(this)) {
+            setLeader(true, getIdentity(), fileLease.readEpoch());
+        } else {
+            setLeader(false, fileLease.readHolderIdentity(), fileLease.readEpoch());
+        }
+    }
+}
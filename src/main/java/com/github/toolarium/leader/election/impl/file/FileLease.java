@@ -0,0 +1,236 @@
+/*
+ * FileLease.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.file;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A lease file which is shared by all file leader electors of the jvm with the same lease. The leadership is an 
+ * exclusive {@link FileChannel#tryLock(long, long, boolean) file lock} behind the lease record: the operating system 
+ * releases it as soon as the holder process dies. The lease record is memory mapped and contains the holder 
+ * identity and the epoch; it is written by the lock holder only and read without any system call.
+ * 
+ * <p>Record layout (native byte order): sequence (long, odd while a write is in progress), epoch (long), length of 
+ * the holder identity (int), holder identity (utf-8).</p>
+ * 
+ * @author patrick
+ */
+class FileLease {
+    private static final Logger LOG = LoggerFactory.getLogger(FileLease.class);
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int EPOCH_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int IDENTITY_OFFSET = 20;
+    private static final int RECORD_SIZE = 256;
+    private static final int MAX_IDENTITY_LENGTH = RECORD_SIZE - IDENTITY_OFFSET;
+    private static final long LOCK_POSITION = RECORD_SIZE;
+    private static final int MAX_READ_RETRIES = 100;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer record;
+    private FileLock lock;
+    private FileLeaderElectorImpl holder;
+    private int references;
+
+    
+    /**
+     * Constructor for FileLease
+     *
+     * @param path the path of the lease file
+     * @throws IOException in case of an i/o error
+     */
+    FileLease(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.record = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORD_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        
+        this.lock = null;
+        this.holder = null;
+        this.references = 0;
+    }
+
+    
+    /**
+     * Get the path of the lease file
+     *
+     * @return the path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    
+    /**
+     * Try to acquire the lease: on success the lease record gets the identity of the leader elector and the next epoch
+     *
+     * @param leaderElector the leader elector
+     * @return true if the leader elector holds the lease
+     */
+    synchronized boolean tryAcquire(FileLeaderElectorImpl leaderElector) {
+        if (holder != null) {
+            return holder == leaderElector;
+        }
+        
+        try {
+            lock = channel.tryLock(LOCK_POSITION, 1, false);
+        } catch (OverlappingFileLockException e) {
+            // held by an other channel of this jvm
+            lock = null;
+        } catch (IOException e) {
+            LOG.warn("Could not lock lease file [" + path + "]: " + e.getMessage(), e);
+            lock = null;
+        }
+        
+        if (lock == null) {
+            return false;
+        }
+        
+        holder = leaderElector;
+        write(readEpoch() + 1, leaderElector.getIdentity());
+        return true;
+    }
+
+    
+    /**
+     * Release the lease if the leader elector holds it: the holder identity is cleared and the lock released
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void release(FileLeaderElectorImpl leaderElector) {
+        if (holder != leaderElector) {
+            return;
+        }
+        
+        write(readEpoch(), "");
+        try {
+            lock.release();
+        } catch (IOException e) {
+            LOG.warn("Could not release lease file [" + path + "]: " + e.getMessage(), e);
+        }
+        
+        lock = null;
+        holder = null;
+    }
+
+    
+    /**
+     * Increment the references
+     */
+    synchronized void retain() {
+        references++;
+    }
+
+    
+    /**
+     * Decrement the references and close the file on the last reference
+     *
+     * @return true if the file was closed
+     */
+    synchronized boolean releaseReference() {
+        references--;
+        if (references > 0) {
+            return false;
+        }
+        
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close lease file [" + path + "]: " + e.getMessage(), e);
+        }
+        
+        return true;
+    }
+
+    
+    /**
+     * Read the epoch of the lease record
+     *
+     * @return the epoch
+     */
+    long readEpoch() {
+        for (int i = 0; i < MAX_READ_RETRIES; i++) {
+            final long sequence = (long) LONG_HANDLE.getVolatile(record, SEQUENCE_OFFSET);
+            final long epoch = (long) LONG_HANDLE.getVolatile(record, EPOCH_OFFSET);
+            if ((sequence & 1) == 0 && sequence == (long) LONG_HANDLE.getVolatile(record, SEQUENCE_OFFSET)) {
+                return epoch;
+            }
+            
+            Thread.onSpinWait();
+        }
+        
+        // a writer died during the write
+        return (long) LONG_HANDLE.getVolatile(record, EPOCH_OFFSET);
+    }
+
+    
+    /**
+     * Read the holder identity of the lease record
+     *
+     * @return the holder identity or null if the lease is free
+     */
+    String readHolderIdentity() {
+        for (int i = 0; i < MAX_READ_RETRIES; i++) {
+            final long sequence = (long) LONG_HANDLE.getVolatile(record, SEQUENCE_OFFSET);
+            final int length = Math.max(0, Math.min(MAX_IDENTITY_LENGTH, record.getInt(LENGTH_OFFSET)));
+            final byte[] identity = new byte[length];
+            record.get(IDENTITY_OFFSET, identity);
+            if ((sequence & 1) == 0 && sequence == (long) LONG_HANDLE.getVolatile(record, SEQUENCE_OFFSET)) {
+                if (length == 0) {
+                    return null;
+                }
+                
+                return new String(identity, StandardCharsets.UTF_8);
+            }
+            
+            Thread.onSpinWait();
+        }
+
+        // a writer died during the write
+        return null;
+    }
+
+    
+    /**
+     * Write the lease record, only the lock holder writes
+     *
+     * @param epoch the epoch
+     * @param identity the holder identity
+     */
+    private void write(long epoch, String identity) {
+        byte[] identityBytes = identity.getBytes(StandardCharsets.UTF_8);
+        if (identityBytes.length > MAX_IDENTITY_LENGTH) {
+            identityBytes = Arrays.copyOf(identityBytes, MAX_IDENTITY_LENGTH);
+        }
+        
+        // the sequence is odd during the write; a sequence which was left odd by a died writer is reused
+        final long begin = ((long) LONG_HANDLE.getVolatile(record, SEQUENCE_OFFSET) & ~1L) + 1;
+        LONG_HANDLE.setVolatile(record, SEQUENCE_OFFSET, begin);
+        LONG_HANDLE.setVolatile(record, EPOCH_OFFSET, epoch);
+        record.putInt(LENGTH_OFFSET, identityBytes.length);
+        record.put(IDENTITY_OFFSET, identityBytes);
+        LONG_HANDLE.setVolatile(record, SEQUENCE_OFFSET, begin + 1);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * FileLeaseRegistry.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Registry of the shared file leases: all file leader electors of the jvm with the same lease file share one file 
+ * channel. Closing a channel releases all locks of the process on the file on most operating systems, a lease file 
+ * is therefore opened only once per jvm.
+ * 
+ * @author patrick
+ */
+public final class FileLeaseRegistry {
+    /** The default directory of the lease files in java.io.tmpdir */
+    public static final String DEFAULT_DIRECTORY_NAME = "leader-election";
+    
+    /** The file extension of the lease files */
+    public static final String LEASE_FILE_EXTENSION = ".lease";
+    private final Map<Path, FileLease> fileLeaseMap;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final FileLeaseRegistry INSTANCE = new FileLeaseRegistry();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private FileLeaseRegistry() {
+        fileLeaseMap = new ConcurrentHashMap<Path, FileLease>();
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static FileLeaseRegistry getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Get the path of a lease file
+     *
+     * @param directory the directory or null to use the default directory
+     * @param leaseName the name of the lease
+     * @return the path of the lease file
+     */
+    public Path getLeasePath(String directory, String leaseName) {
+        Path directoryPath;
+        if (directory == null || directory.isBlank()) {
+            directoryPath = Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY_NAME);
+        } else {
+            directoryPath = Paths.get(directory);
+        }
+        
+        return directoryPath.resolve(leaseName.replaceAll("[^A-Za-z0-9._-]", "_") + LEASE_FILE_EXTENSION).toAbsolutePath().normalize();
+    }
+
+    
+    /**
+     * Get the number of open lease files
+     *
+     * @return the number of open lease files
+     */
+    public int size() {
+        return fileLeaseMap.size();
+    }
+
+    
+    /**
+     * Get the file lease, the lease file will be created and mapped on the first access
+     *
+     * @param path the path of the lease file
+     * @return the file lease
+     * @throws IOException in case of an i/o error
+     */
+    synchronized FileLease acquire(Path path) throws IOException {
+        FileLease fileLease = fileLeaseMap.get(path);
+        if (fileLease == null) {
+            Files.createDirectories(path.getParent());
+            fileLease = new FileLease(path);
+            fileLeaseMap.put(path, fileLease);
+        }
+        
+        fileLease.retain();
+        return fileLease;
+    }
+
+    
+    /**
+     * Release a reference of the file lease, the lease file is closed with the last reference
+     *
+     * @param fileLease the file lease
+     */
+    synchronized void release(FileLease fileLease) {
+        if (fileLease.releaseReference()) {
+            fileLeaseMap.remove(fileLease.getPath());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * JdbcLeaderElectorImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jdbc;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
+import java.io.IOException;
+import java.util.Objects;
+
+
+/**
+ * Implements the {@link ILeaderElector} based on a lease table in a database, see {@link JdbcUtil}. The leases of all
+ * jdbc leader electors of the jvm with the same retry period are renewed together by one {@link JdbcLeaseGroup}: one 
+ * batched statement per retry period instead of one round trip per election.
+ * 
+ * @author patrick
+ */
+public class JdbcLeaderElectorImpl extends AbstractLeaderElectorImpl {
+    private static final long NO_VERSION = -1;
+    private JdbcLeaseGroup leaseGroup;
+    private boolean holder;
+    private String observedHolder;
+    private long observedVersion;
+    private long observedEpoch;
+    private long observedTimeNanos;
+
+    
+    /**
+     * Constructor for JdbcLeaderElectorImpl
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @throws IOException in case of an i/o error
+     */
+    public JdbcLeaderElectorImpl(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        super(leaderElectionInformation, leaderElectionConfiguration);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#init()
+     */
+    @Override
+    protected void init() throws IOException {
+        if (!JdbcUtil.getInstance().isAvailable()) {
+            throw new IOException("No data source set for the jdbc leader election [" + getUniqueName() + "]!");
+        }
+        
+        holder = false;
+        observedHolder = null;
+        observedVersion = NO_VERSION;
+        observedEpoch = 0;
+        observedTimeNanos = 0;
+        leaseGroup = JdbcLeaseRenewer.getInstance().register(this);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+     */
+    @Override
+    protected void release() {
+        JdbcLeaseRenewer.getInstance().unregister(this);
+    }
+
+    
+    /**
+     * Get the name of the lease, it is shared by all candidates of the election
+     *
+     * @return the name of the lease
+     */
+    String getLeaseName() {
+        return getLeaderElectionInformation().getElectionName();
+    }
+
+    
+    /**
+     * Get the identity of this candidate
+     *
+     * @return the identity
+     */
+    String getIdentity() {
+        return getLeaderElectionInformation().getIdentity();
+    }
+
+    
+    /**
+     * Get the configuration
+     *
+     * @return the configuration
+     */
+    LeaderElectionConfiguration getConfiguration() {
+        return getLeaderElectionConfiguration();
+    }
+
+    
+    /**
+     * Get the lease group
+     *
+     * @return the lease group
+     */
+    JdbcLeaseGroup getLeaseGroup() {
+        return leaseGroup;
+    }
+
+    
+    /**
+     * Check if this candidate holds the lease according to its last observation
+     *
+     * @return true if this candidate holds the lease
+     */
+    boolean isHolder() {
+        return holder;
+    }
+
+    
+    /**
+     * Get the observed version of the lease
+     *
+     * @return the observed version
+     */
+    long getObservedVersion() {
+        return observedVersion;
+    }
+
+    
+    /**
+     * Get the observed epoch of the lease
+     *
+     * @return the observed epoch
+     */
+    long getObservedEpoch() {
+        return observedEpoch;
+    }
+
+    
+    /**
+     * Observe the lease: the local observation time is updated on every change of the lease
+     *
+     * @param holderIdentity the holder or null
+     * @param version the version
+     * @param epoch the epoch
+     * @param timeNanos the {@link System#nanoTime()} of the observation
+     */
+    void observe(String holderIdentity, long version, long epoch, long timeNanos) {
+        if (version != observedVersion || !Objects.equals(holderIdentity, observedHolder)) {
+            observedTimeNanos = timeNanos;
+        }
+        
+        observedHolder = holderIdentity;
+        observedVersion = version;
+        observedEpoch = epoch;
+        holder = getIdentity().equals(holderIdentity);
+    }
+
+    
+    /**
+     * Check if the observed lease is expired: it didn't change within the timeout
+     *
+     * @param timeNanos the current {@link System#nanoTime()}
+     * @return true if the observed lease is expired
+     */
+    boolean isObservedLeaseExpired(long timeNanos) {
+        return observedVersion == NO_VERSION || timeNanos - observedTimeNanos >= getLeaderElectionConfiguration().getTimeout().toNanos();
+    }
+
+    
+    /**
+     * The lease is held by this candidate after an acquisition or renewal
+     *
+     * @param version the new version
+     * @param epoch the epoch
+     * @param startTimeNanos the {@link System#nanoTime()} when the renewal was started
+     */
+    void onLeaseHeld(long version, long epoch, long startTimeNanos) {
+        observe(getIdentity(), version, epoch, startTimeNanos);
+        
+        // the lease is counted from the start of the statement
+        setLeaseRenewed(startTimeNanos);
+        setLeader(true, getIdentity(), epoch);
+    }
+
+    
+    /**
+     * The lease is not held by this candidate: a leader steps down as soon as its lease expired locally
+     */
+    void onLeaseNotHeld() {
+        holder = holder && isLeader();
+        if (!isLeader()) {
+            String leaderIdentity = observedHolder;
+            if (getIdentity().equals(leaderIdentity) || isObservedLeaseExpired(System.nanoTime())) {
+                leaderIdentity = null;
+            }
+            
+            setLeader(false, leaderIdentity, observedEpoch);
+        }
+    }
+
+    
+    /**
+     * Record a renewal in the metrics
+     *
+     * @param successful true if the lease is held after the renewal
+     * @param latencyNanos the duration of the renewal in nanoseconds
+     */
+    void onRenewal(boolean successful, long latencyNanos) {
+        recordRenewal(successful, latencyNanos);
+    }
+}
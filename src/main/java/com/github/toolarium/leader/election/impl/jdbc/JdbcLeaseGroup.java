@@ -0,0 +1,412 @@
+/*
+ * JdbcLeaseGroup.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jdbc;
+
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The jdbc leader electors with the same retry period. Every retry period the group runs one cycle with a constant 
+ * number of round trips, independent of the number of elections:
+ * <ol>
+ *  <li>one batched compare-and-set update renews all held leases,</li>
+ *  <li>one query reads all leases of the group,</li>
+ *  <li>one batched compare-and-set update acquires the free and expired leases (only if there is any).</li>
+ * </ol>
+ * A missing lease is inserted once. All accesses to the electors of the group are serialized by the group. The cycles 
+ * run on the workers of the scheduler, a slow database doesn't stall the timer of the other election loops.
+ * 
+ * @author patrick
+ */
+class JdbcLeaseGroup {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcLeaseGroup.class);
+    private static final int MAX_NAMES_PER_QUERY = 500;
+    private final Duration retryPeriod;
+    private final List<JdbcLeaderElectorImpl> leaderElectorList;
+    private ScheduledFuture<?> scheduledFuture;
+    private final AtomicBoolean cyclePending;
+    private final AtomicBoolean cycleRequested;
+
+    
+    /**
+     * Constructor for JdbcLeaseGroup
+     *
+     * @param retryPeriod the retry period
+     */
+    JdbcLeaseGroup(Duration retryPeriod) {
+        this.retryPeriod = retryPeriod;
+        this.leaderElectorList = new ArrayList<JdbcLeaderElectorImpl>();
+        this.scheduledFuture = null;
+        this.cyclePending = new AtomicBoolean(false);
+        this.cycleRequested = new AtomicBoolean(false);
+    }
+
+    
+    /**
+     * Get the retry period
+     *
+     * @return the retry period
+     */
+    Duration getRetryPeriod() {
+        return retryPeriod;
+    }
+
+    
+    /**
+     * Set the scheduled future of the cycle
+     *
+     * @param scheduledFuture the scheduled future
+     */
+    synchronized void setScheduledFuture(ScheduledFuture<?> scheduledFuture) {
+        this.scheduledFuture = scheduledFuture;
+    }
+
+    
+    /**
+     * Add a leader elector
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void add(JdbcLeaderElectorImpl leaderElector) {
+        leaderElectorList.add(leaderElector);
+    }
+
+    
+    /**
+     * Remove a leader elector and release its lease
+     *
+     * @param leaderElector the leader elector
+     * @return true if the group is empty
+     */
+    synchronized boolean remove(JdbcLeaderElectorImpl leaderElector) {
+        if (leaderElectorList.remove(leaderElector) && leaderElector.isHolder()) {
+            // clear the holder: the candidates take over with their next cycle instead of waiting for the expiry
+            try (Connection connection = JdbcUtil.getInstance().getConnection();
+                 PreparedStatement statement = connection.prepareStatement("UPDATE " + JdbcUtil.getInstance().getTableName() 
+                         + " SET HOLDER = NULL, VERSION = VERSION + 1, EXPIRY = ? WHERE NAME = ? AND HOLDER = ? AND VERSION = ?")) {
+                statement.setLong(1, System.currentTimeMillis());
+                statement.setString(2, leaderElector.getLeaseName());
+                statement.setString(3, leaderElector.getIdentity());
+                statement.setLong(4, leaderElector.getObservedVersion());
+                if (statement.executeUpdate() > 0) {
+                    LOG.info("Released lease [" + leaderElector.getLeaseName() + "].");
+                }
+            } catch (SQLException e) {
+                LOG.warn("Could not release lease [" + leaderElector.getLeaseName() + "], it expires after the timeout: " + e.getMessage(), e);
+            }
+        }
+        
+        if (leaderElectorList.isEmpty() && scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        
+        return leaderElectorList.isEmpty();
+    }
+
+    
+    /**
+     * Hand a cycle over to a worker of the scheduler, called by the timer. A cycle is skipped in case the previous one 
+     * is still pending.
+     */
+    void runOnWorker() {
+        if (!cyclePending.compareAndSet(false, true)) {
+            LOG.debug("Skipped jdbc lease cycle, the previous one is still pending.");
+            return;
+        }
+        
+        LeaderElectionFactory.getInstance().getScheduler().execute(this::runPendingCycles);
+    }
+
+    
+    /**
+     * Request a cycle without waiting for the timer, e.g. for the first decision of a new leader elector. The requests 
+     * are coalesced: in case a cycle is pending, one more cycle runs after it.
+     */
+    void requestCycle() {
+        cycleRequested.set(true);
+        if (cyclePending.compareAndSet(false, true)) {
+            LeaderElectionFactory.getInstance().getScheduler().execute(this::runPendingCycles);
+        }
+    }
+
+    
+    /**
+     * Run the pending cycle and the cycles which were requested meanwhile, called by a worker of the scheduler
+     */
+    private void runPendingCycles() {
+        do {
+            try {
+                cycleRequested.set(false);
+                run();
+            } finally {
+                cyclePending.set(false);
+            }
+        } while (cycleRequested.get() && cyclePending.compareAndSet(false, true));
+    }
+
+    
+    /**
+     * Run a cycle: renew, read and acquire the leases of all leader electors of the group
+     */
+    synchronized void run() {
+        if (leaderElectorList.isEmpty()) {
+            return;
+        }
+        
+        final long startTimeNanos = System.nanoTime();
+        final Set<JdbcLeaderElectorImpl> heldSet = new LinkedHashSet<JdbcLeaderElectorImpl>();
+        try (Connection connection = JdbcUtil.getInstance().getConnection()) {
+            // renew all held leases in one batch
+            final Map<JdbcLeaderElectorImpl, Long> renewedVersionMap = renew(connection);
+            final long renewalLatencyNanos = System.nanoTime() - startTimeNanos;
+            
+            // read all leases in one query
+            final long readTimeNanos = System.nanoTime();
+            final Map<String, Lease> leaseMap = read(connection);
+            
+            final List<JdbcLeaderElectorImpl> acquireList = new ArrayList<JdbcLeaderElectorImpl>();
+            final List<JdbcLeaderElectorImpl> insertList = new ArrayList<JdbcLeaderElectorImpl>();
+            for (JdbcLeaderElectorImpl leaderElector : leaderElectorList) {
+                final Lease lease = leaseMap.get(leaderElector.getLeaseName());
+                final Long renewedVersion = renewedVersionMap.get(leaderElector);
+                if (lease == null) {
+                    insertList.add(leaderElector);
+                } else if (renewedVersion != null && leaderElector.getIdentity().equals(lease.holder) && renewedVersion.longValue() == lease.version) {
+                    leaderElector.onRenewal(true, renewalLatencyNanos);
+                    leaderElector.onLeaseHeld(lease.version, lease.epoch, startTimeNanos);
+                    heldSet.add(leaderElector);
+                } else {
+                    if (renewedVersion != null) {
+                        leaderElector.onRenewal(false, renewalLatencyNanos);
+                    }
+                    
+                    final boolean wasHolder = leaderElector.isHolder();
+                    leaderElector.observe(lease.holder, lease.version, lease.epoch, readTimeNanos);
+                    if (lease.holder == null || leaderElector.isObservedLeaseExpired(readTimeNanos) 
+                            || (leaderElector.isHolder() && !wasHolder)) {
+                        acquireList.add(leaderElector);
+                    }
+                }
+            }
+
+            // acquire the free and expired leases in one batch
+            heldSet.addAll(acquire(connection, acquireList, leaseMap));
+            heldSet.addAll(insert(connection, insertList));
+        } catch (SQLException e) {
+            LOG.warn("Error occured while renewing jdbc leases: " + e.getMessage(), e);
+            for (JdbcLeaderElectorImpl leaderElector : leaderElectorList) {
+                if (leaderElector.isHolder()) {
+                    leaderElector.onRenewal(false, System.nanoTime() - startTimeNanos);
+                }
+            }
+        }
+        
+        for (JdbcLeaderElectorImpl leaderElector : leaderElectorList) {
+            if (!heldSet.contains(leaderElector)) {
+                leaderElector.onLeaseNotHeld();
+            }
+        }
+    }
+
+    
+    /**
+     * Renew all held leases in one batch
+     *
+     * @param connection the connection
+     * @return the expected versions after the renewal by leader elector
+     * @throws SQLException in case of a database error
+     */
+    private Map<JdbcLeaderElectorImpl, Long> renew(Connection connection) throws SQLException {
+        final Map<JdbcLeaderElectorImpl, Long> renewedVersionMap = new HashMap<JdbcLeaderElectorImpl, Long>();
+        final List<JdbcLeaderElectorImpl> holderList = new ArrayList<JdbcLeaderElectorImpl>();
+        for (JdbcLeaderElectorImpl leaderElector : leaderElectorList) {
+            if (leaderElector.isHolder()) {
+                holderList.add(leaderElector);
+            }
+        }
+        
+        if (holderList.isEmpty()) {
+            return renewedVersionMap;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + JdbcUtil.getInstance().getTableName() 
+                + " SET VERSION = VERSION + 1, EXPIRY = ? WHERE NAME = ? AND HOLDER = ? AND VERSION = ?")) {
+            final long now = System.currentTimeMillis();
+            for (JdbcLeaderElectorImpl leaderElector : holderList) {
+                statement.setLong(1, now + leaderElector.getConfiguration().getTimeout().toMillis());
+                statement.setString(2, leaderElector.getLeaseName());
+                statement.setString(3, leaderElector.getIdentity());
+                statement.setLong(4, leaderElector.getObservedVersion());
+                statement.addBatch();
+                renewedVersionMap.put(leaderElector, leaderElector.getObservedVersion() + 1);
+            }
+            
+            // the update counts are not reliable with every driver: the result is verified by the following query
+            statement.executeBatch();
+        }
+        
+        return renewedVersionMap;
+    }
+
+    
+    /**
+     * Read all leases of the group
+     *
+     * @param connection the connection
+     * @return the leases by name
+     * @throws SQLException in case of a database error
+     */
+    private Map<String, Lease> read(Connection connection) throws SQLException {
+        final List<String> nameList = new ArrayList<String>();
+        for (JdbcLeaderElectorImpl leaderElector : leaderElectorList) {
+            if (!nameList.contains(leaderElector.getLeaseName())) {
+                nameList.add(leaderElector.getLeaseName());
+            }
+        }
+
+        final Map<String, Lease> leaseMap = new HashMap<String, Lease>();
+        for (int from = 0; from < nameList.size(); from += MAX_NAMES_PER_QUERY) {
+            final List<String> names = nameList.subList(from, Math.min(nameList.size(), from + MAX_NAMES_PER_QUERY));
+            final StringBuilder sql = new StringBuilder("SELECT NAME, HOLDER, EPOCH, VERSION FROM " + JdbcUtil.getInstance().getTableName() + " WHERE NAME IN (");
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                
+                sql.append('?');
+            }
+            
+            sql.append(')');
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < names.size(); i++) {
+                    statement.setString(i + 1, names.get(i));
+                }
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        leaseMap.put(resultSet.getString(1), new Lease(resultSet.getString(2), resultSet.getLong(3), resultSet.getLong(4)));
+                    }
+                }
+            }
+        }
+        
+        return leaseMap;
+    }
+
+    
+    /**
+     * Acquire the free and expired leases in one batch
+     *
+     * @param connection the connection
+     * @param acquireList the leader electors which try to acquire their lease
+     * @param leaseMap the leases by name
+     * @return the leader electors which acquired their lease
+     * @throws SQLException in case of a database error
+     */
+    private List<JdbcLeaderElectorImpl> acquire(Connection connection, List<JdbcLeaderElectorImpl> acquireList, Map<String, Lease> leaseMap) throws SQLException {
+        final List<JdbcLeaderElectorImpl> acquiredList = new ArrayList<JdbcLeaderElectorImpl>();
+        if (acquireList.isEmpty()) {
+            return acquiredList;
+        }
+
+        final long startTimeNanos = System.nanoTime();
+        final int[] updateCounts;
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE " + JdbcUtil.getInstance().getTableName() 
+                + " SET HOLDER = ?, EPOCH = EPOCH + 1, VERSION = VERSION + 1, EXPIRY = ? WHERE NAME = ? AND VERSION = ?")) {
+            final long now = System.currentTimeMillis();
+            for (JdbcLeaderElectorImpl leaderElector : acquireList) {
+                statement.setString(1, leaderElector.getIdentity());
+                statement.setLong(2, now + leaderElector.getConfiguration().getTimeout().toMillis());
+                statement.setString(3, leaderElector.getLeaseName());
+                statement.setLong(4, leaseMap.get(leaderElector.getLeaseName()).version);
+                statement.addBatch();
+            }
+            
+            updateCounts = statement.executeBatch();
+        }
+        
+        for (int i = 0; i < acquireList.size(); i++) {
+            // an unknown update count is verified with the next cycle
+            if (i < updateCounts.length && updateCounts[i] > 0) {
+                final JdbcLeaderElectorImpl leaderElector = acquireList.get(i);
+                final Lease lease = leaseMap.get(leaderElector.getLeaseName());
+                leaderElector.onLeaseHeld(lease.version + 1, lease.epoch + 1, startTimeNanos);
+                acquiredList.add(leaderElector);
+            }
+        }
+        
+        return acquiredList;
+    }
+
+    
+    /**
+     * Insert the missing leases, an other candidate may insert it concurrently
+     *
+     * @param connection the connection
+     * @param insertList the leader electors without lease
+     * @return the leader electors which inserted their lease
+     */
+    private List<JdbcLeaderElectorImpl> insert(Connection connection, List<JdbcLeaderElectorImpl> insertList) {
+        final List<JdbcLeaderElectorImpl> insertedList = new ArrayList<JdbcLeaderElectorImpl>();
+        for (JdbcLeaderElectorImpl leaderElector : insertList) {
+            final long startTimeNanos = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + JdbcUtil.getInstance().getTableName() 
+                    + " (NAME, HOLDER, EPOCH, VERSION, EXPIRY) VALUES (?, ?, 1, 1, ?)")) {
+                statement.setString(1, leaderElector.getLeaseName());
+                statement.setString(2, leaderElector.getIdentity());
+                statement.setLong(3, System.currentTimeMillis() + leaderElector.getConfiguration().getTimeout().toMillis());
+                statement.executeUpdate();
+                leaderElector.onLeaseHeld(1, 1, startTimeNanos);
+                insertedList.add(leaderElector);
+            } catch (SQLException e) {
+                LOG.debug("Could not insert lease [" + leaderElector.getLeaseName() + "]: " + e.getMessage());
+            }
+        }
+        
+        return insertedList;
+    }
+
+    
+    /**
+     * A lease row
+     * 
+     * @author patrick
+     */
+    private static final class Lease {
+        private final String holder;
+        private final long epoch;
+        private final long version;
+
+        
+        /**
+         * Constructor for Lease
+         *
+         * @param holder the holder or null
+         * @param epoch the epoch
+         * @param version the version
+         */
+        Lease(String holder, long epoch, long version) {
+            this.holder = holder;
+            this.epoch = epoch;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * JdbcLeaseRenewer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jdbc;
+
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Renews the leases of all jdbc leader electors of the jvm: the leader electors with the same retry period share one
+ * {@link JdbcLeaseGroup} which runs on the shared scheduler.
+ * 
+ * @author patrick
+ */
+public final class JdbcLeaseRenewer {
+    private final Map<Duration, JdbcLeaseGroup> leaseGroupMap;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final JdbcLeaseRenewer INSTANCE = new JdbcLeaseRenewer();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private JdbcLeaseRenewer() {
+        leaseGroupMap = new ConcurrentHashMap<Duration, JdbcLeaseGroup>();
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static JdbcLeaseRenewer getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Get the number of lease groups, one per retry period
+     *
+     * @return the number of lease groups
+     */
+    public int size() {
+        return leaseGroupMap.size();
+    }
+
+    
+    /**
+     * Register a leader elector: its lease is acquired immediately and renewed with its group
+     *
+     * @param leaderElector the leader elector
+     * @return the lease group of the leader elector
+     */
+    synchronized JdbcLeaseGroup register(JdbcLeaderElectorImpl leaderElector) {
+        final Duration retryPeriod = leaderElector.getConfiguration().getRetryPeriod();
+        JdbcLeaseGroup leaseGroup = leaseGroupMap.get(retryPeriod);
+        if (leaseGroup == null) {
+            leaseGroup = new JdbcLeaseGroup(retryPeriod);
+            leaseGroup.setScheduledFuture(LeaderElectionFactory.getInstance().getScheduler().scheduleWithFixedDelay(leaseGroup::runOnWorker, retryPeriod, retryPeriod));
+            leaseGroupMap.put(retryPeriod, leaseGroup);
+        }
+        
+        leaseGroup.add(leaderElector);
+        
+        // the first decision doesn't wait for the next cycle, the requests of many new leader electors are coalesced
+        leaseGroup.requestCycle();
+        return leaseGroup;
+    }
+
+    
+    /**
+     * Unregister a leader elector and release its lease
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void unregister(JdbcLeaderElectorImpl leaderElector) {
+        final JdbcLeaseGroup leaseGroup = leaderElector.getLeaseGroup();
+        if (leaseGroup != null && leaseGroup.remove(leaderElector)) {
+            leaseGroupMap.remove(leaseGroup.getRetryPeriod(), leaseGroup);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * JdbcUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Jdbc util: the data source and the lease table of the jdbc leader electors. The lease table has one row per 
+ * election with the columns NAME (primary key), HOLDER (null if the lease is free), EPOCH (incremented on every 
+ * acquisition), VERSION (incremented on every change, used for compare-and-set) and EXPIRY (wall clock millis, 
+ * informational: the candidates check the expiry by local observation to be independent of clock skew).
+ * 
+ * @author patrick
+ */
+public final class JdbcUtil {
+    /** The default name of the lease table */
+    public static final String DEFAULT_TABLE_NAME = "LEADER_ELECTION_LEASE";
+    
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcUtil.class);
+    private volatile DataSource dataSource;
+    private volatile String tableName;
+    private volatile boolean tableVerified;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final JdbcUtil INSTANCE = new JdbcUtil();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private JdbcUtil() {
+        dataSource = null;
+        tableName = DEFAULT_TABLE_NAME;
+        tableVerified = false;
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static JdbcUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Check if a data source is set
+     *
+     * @return true if a data source is set
+     */
+    public boolean isAvailable() {
+        return dataSource != null;
+    }
+
+    
+    /**
+     * Get the data source which is shared by all jdbc leader electors
+     *
+     * @return the data source or null
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    
+    /**
+     * Set the data source which is shared by all jdbc leader electors
+     *
+     * @param dataSource the data source or null
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.tableVerified = false;
+    }
+
+    
+    /**
+     * Get the name of the lease table
+     *
+     * @return the name of the lease table
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    
+    /**
+     * Set the name of the lease table, by default {@link #DEFAULT_TABLE_NAME}
+     *
+     * @param tableName the name of the lease table
+     * @throws IllegalArgumentException in case of an invalid table name
+     */
+    public void setTableName(String tableName) throws IllegalArgumentException {
+        if (tableName == null || !tableName.matches("[A-Za-z_][A-Za-z0-9_.]*")) {
+            throw new IllegalArgumentException("Invalid table name [" + tableName + "]!");
+        }
+        
+        this.tableName = tableName;
+        this.tableVerified = false;
+    }
+
+    
+    /**
+     * Get a connection of the data source in auto-commit mode: every lease statement is committed on its own, also 
+     * with a pooled data source which hands out its connections without auto-commit.
+     *
+     * @return the connection
+     * @throws SQLException in case of a database error
+     */
+    public Connection getConnection() throws SQLException {
+        final DataSource currentDataSource = dataSource;
+        if (currentDataSource == null) {
+            throw new SQLException("No data source set for the jdbc leader election!");
+        }
+
+        final Connection connection = currentDataSource.getConnection();
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            
+            if (!tableVerified) {
+                createTable(connection);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        
+        return connection;
+    }
+
+    
+    /**
+     * Create the lease table if it doesn't exist
+     *
+     * @param connection the connection
+     * @throws SQLException in case of a database error
+     */
+    private void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try {
+                statement.executeQuery("SELECT NAME FROM " + tableName + " WHERE 1 = 0").close();
+            } catch (SQLException e) {
+                LOG.info("Create lease table [" + tableName + "].");
+                try {
+                    statement.executeUpdate("CREATE TABLE " + tableName + " (NAME VARCHAR(255) NOT NULL PRIMARY KEY, HOLDER VARCHAR(255), "
+                                            + "EPOCH BIGINT NOT NULL, VERSION BIGINT NOT NULL, EXPIRY BIGINT NOT NULL)");
+                } catch (SQLException ex) {
+                    // an other process created it in the meantime
+                    statement.executeQuery("SELECT NAME FROM " + tableName + " WHERE 1 = 0").close();
+                }
+            }
+        }
+        
+        tableVerified = true;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * JGroupChannelFactory.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jgroup;
+
+import com.github.toolarium.leader.election.dto.JGroupStack;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+import org.jgroups.JChannel;
+import org.jgroups.stack.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Creates the jgroup channels: by a programmatic protocol stack, a jgroup xml configuration or a protocol stack 
+ * preset, see {@link JGroupStack}. The presets are shipped as classpath resources and can be used as template.
+ * 
+ * @author patrick
+ */
+public final class JGroupChannelFactory {
+    /** The classpath resource of the tcp preset */
+    public static final String TCP_CONFIGURATION = "leader-election-jgroup-tcp.xml";
+
+    /** The classpath resource of the tcp preset with fast failure detection */
+    public static final String TCP_FAST_CONFIGURATION = "leader-election-jgroup-tcp-fast.xml";
+
+    /** The classpath resource of the shared loopback preset */
+    public static final String SHARED_LOOPBACK_CONFIGURATION = "leader-election-jgroup-shared-loopback.xml";
+    
+    private static final Logger LOG = LoggerFactory.getLogger(JGroupChannelFactory.class);
+    private static final String BIND_ADDRESS_PROPERTY = "${jgroups.bind_addr:site_local}";
+    private static final String INITIAL_HOSTS_PROPERTY = "${jgroups.tcpping.initial_hosts:localhost[7800]}";
+    private volatile Supplier<List<Protocol>> protocolStackSupplier;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final JGroupChannelFactory INSTANCE = new JGroupChannelFactory();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private JGroupChannelFactory() {
+        protocolStackSupplier = null;
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static JGroupChannelFactory getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Set a programmatic protocol stack: the supplier has to create new protocol instances on every call, it has 
+     * precedence over the configuration of the channels which are created afterwards.
+     *
+     * @param protocolStackSupplier the protocol stack supplier or null to use the configuration
+     */
+    public void setProtocolStackSupplier(Supplier<List<Protocol>> protocolStackSupplier) {
+        this.protocolStackSupplier = protocolStackSupplier;
+    }
+
+    
+    /**
+     * Create a channel (not yet connected)
+     *
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the channel
+     * @throws IOException in case the channel could not be created
+     */
+    public JChannel createChannel(LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        try {
+            final Supplier<List<Protocol>> supplier = protocolStackSupplier;
+            if (supplier != null) {
+                LOG.debug("Create jgroup channel with a programmatic protocol stack.");
+                return new JChannel(supplier.get());
+            }
+            
+            final String jgroupConfiguration = leaderElectionConfiguration.getJGroupConfiguration();
+            if (jgroupConfiguration != null && !jgroupConfiguration.isBlank()) {
+                LOG.debug("Create jgroup channel with configuration [" + jgroupConfiguration + "].");
+                return new JChannel(jgroupConfiguration);
+            }
+            
+            final JGroupStack jgroupStack = leaderElectionConfiguration.getJGroupStack();
+            if (jgroupStack == null || jgroupStack == JGroupStack.DEFAULT) {
+                return new JChannel();
+            }
+            
+            LOG.debug("Create jgroup channel with preset [" + jgroupStack + "].");
+            switch (jgroupStack) {
+                case TCP:
+                    return new JChannel(readPreset(TCP_CONFIGURATION, leaderElectionConfiguration));
+                case TCP_FAST:
+                    return new JChannel(readPreset(TCP_FAST_CONFIGURATION, leaderElectionConfiguration));
+                case SHARED_LOOPBACK:
+                    return new JChannel(readPreset(SHARED_LOOPBACK_CONFIGURATION, leaderElectionConfiguration));
+                default:
+                    throw new IOException("Unsupported jgroup stack [" + jgroupStack + "]!");
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not create jgroup channel: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Read a preset and apply the bind address and initial hosts of the configuration
+     *
+     * @param resource the classpath resource of the preset
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the preset configuration
+     * @throws IOException in case of an i/o error
+     */
+    private InputStream readPreset(String resource, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        String preset;
+        try (InputStream inputStream = JGroupChannelFactory.class.getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                throw new IOException("Could not find jgroup preset [" + resource + "]!");
+            }
+            
+            preset = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        
+        if (leaderElectionConfiguration.getJGroupBindAddress() != null) {
+            preset = preset.replace(BIND_ADDRESS_PROPERTY, leaderElectionConfiguration.getJGroupBindAddress());
+        }
+        
+        if (leaderElectionConfiguration.getJGroupInitialHosts() != null) {
+            preset = preset.replace(INITIAL_HOSTS_PROPERTY, leaderElectionConfiguration.getJGroupInitialHosts());
+        }
+
+        return new ByteArrayInputStream(preset.getBytes(StandardCharsets.UTF_8));
+    }
+}
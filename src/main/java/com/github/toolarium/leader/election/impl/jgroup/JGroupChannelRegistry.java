@@ -0,0 +1,143 @@
+/*
+ * JGroupChannelRegistry.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jgroup;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Registry of the shared jgroup election channels: all elections of the same cluster and identity share one channel. 
+ * 
+ * @author patrick
+ */
+public final class JGroupChannelRegistry {
+    private final Map<String, JGroupElectionChannel> electionChannelMap;
+    private final Map<String, String> protocolStackMap;
+    private final Map<String, Thread> shutdownHookMap;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final JGroupChannelRegistry INSTANCE = new JGroupChannelRegistry();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private JGroupChannelRegistry() {
+        electionChannelMap = new ConcurrentHashMap<String, JGroupElectionChannel>();
+        protocolStackMap = new ConcurrentHashMap<String, String>();
+        shutdownHookMap = new ConcurrentHashMap<String, Thread>();
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static JGroupChannelRegistry getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Get the election channel, it will be created and connected on the first access: the protocol stack is defined 
+     * by the configuration of the first election. A later election must have the same protocol stack (stack, jgroup 
+     * configuration, bind address and initial hosts), otherwise it is rejected.
+     *
+     * @param clusterName the cluster name
+     * @param identity the identity of this member
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the election channel
+     * @throws IOException in case of an i/o error or in case the channel is connected with another protocol stack
+     */
+    public synchronized JGroupElectionChannel getElectionChannel(String clusterName, String identity, LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        final String key = clusterName + "/" + identity;
+        final String protocolStack = getProtocolStack(leaderElectionConfiguration);
+        JGroupElectionChannel electionChannel = electionChannelMap.get(key);
+        if (electionChannel != null && !protocolStack.equals(protocolStackMap.get(key))) {
+            throw new IOException("The jgroup channel of [" + key + "] is already connected with another protocol stack (" + protocolStackMap.get(key) + ")!");
+        }
+        
+        if (electionChannel == null) {
+            electionChannel = new JGroupElectionChannel(clusterName, identity);
+            electionChannel.connect(leaderElectionConfiguration);
+            electionChannelMap.put(key, electionChannel);
+            protocolStackMap.put(key, protocolStack);
+            
+            final JGroupElectionChannel channelToClose = electionChannel;
+            final Thread shutdownHook = new Thread(() -> channelToClose.close(), JGroupChannelRegistry.class.getName() + ": Shutdown hook");
+            shutdownHookMap.put(key, shutdownHook);
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        
+        return electionChannel;
+    }
+
+    
+    /**
+     * Release an election: the election leaves the channel and the channel is closed (it leaves the view) as soon as 
+     * there is no election left.
+     *
+     * @param clusterName the cluster name
+     * @param identity the identity of this member
+     * @param electionName the name of the election
+     * @param leaderElector the leader elector
+     */
+    public synchronized void release(String clusterName, String identity, String electionName, JGroupLeaderElectorImpl leaderElector) {
+        final String key = clusterName + "/" + identity;
+        final JGroupElectionChannel electionChannel = electionChannelMap.get(key);
+        if (electionChannel == null || !electionChannel.unregister(electionName, leaderElector)) {
+            return;
+        }
+
+        electionChannelMap.remove(key);
+        protocolStackMap.remove(key);
+        electionChannel.close();
+        
+        final Thread shutdownHook = shutdownHookMap.remove(key);
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the jvm is already shutting down
+            }
+        }
+    }
+    
+    
+    /**
+     * Get the protocol stack definition of a configuration: all elections of a shared channel must have the same
+     *
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the protocol stack definition
+     */
+    private static String getProtocolStack(LeaderElectionConfiguration leaderElectionConfiguration) {
+        return "stack=" + leaderElectionConfiguration.getJGroupStack()
+               + ", configuration=" + leaderElectionConfiguration.getJGroupConfiguration()
+               + ", bindAddress=" + leaderElectionConfiguration.getJGroupBindAddress()
+               + ", initialHosts=" + leaderElectionConfiguration.getJGroupInitialHosts();
+    }
+
+    
+    /**
+     * Get the number of shared channels
+     *
+     * @return the number of shared channels
+     */
+    public int size() {
+        return electionChannelMap.size();
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * JGroupElectionChannel.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jgroup;
+
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.JChannel;
+import org.jgroups.MergeView;
+import org.jgroups.Message;
+import org.jgroups.ObjectMessage;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.stack.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A jgroup channel which is shared by all elections of the same cluster and identity. The candidates of an election
+ * are exchanged in-band: every member announces the elections it takes part of with its priority. The candidate with
+ * the highest priority is the leader of an election, on the same priority the oldest candidate in the view. An 
+ * election on the channel costs just a map entry.
+ * 
+ * <p>The current leader keeps the lead as long as no candidate has a priority higher by more than the hysteresis, 
+ * so a slightly better candidate which joins causes no churn. A leader marks its elections in the announcement, this
+ * way a joining member learns the current leaders. After a merge of partitions the leaders are evaluated without
+ * the hysteresis, the members of the partitions would not agree on the current leader.</p>
+ * 
+ * <p>The epoch of a leadership is decided by the new leader: it is higher than any epoch of the election the leader 
+ * knows and at least the id of the view in which it was elected plus one. The leader announces it, the other members 
+ * take it from the announcement, so all members report the same epoch for the same leadership. After a merge the leader 
+ * takes an epoch above the epochs announced by the other partition.</p>
+ * 
+ * <p>Every member announces its elections as soon as it sees new members in the view. A joining member takes no
+ * decision until it received the announcement of all members of its first view, this avoids that it takes over
+ * the lead of an election before it knows the older candidates.</p>
+ * 
+ * @author patrick
+ */
+public class JGroupElectionChannel implements Receiver {
+    private static final Logger LOG = LoggerFactory.getLogger(JGroupElectionChannel.class);
+    private static final String ANNOUNCE = "A:";
+    private static final String WITHDRAW = "W:";
+    private static final String SEPARATOR = "\n";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String LEADER_FLAG = "L";
+    private static final String FOLLOWER_FLAG = "F";
+    private final String clusterName;
+    private final String identity;
+    private final Map<String, JGroupLeaderElectorImpl> localElectionMap;
+    private final Map<String, Map<Address, Integer>> candidateMap;
+    private final Map<String, Address> leaderMap;
+    private final Map<String, Long> epochMap;
+    private final Set<Address> pendingAnnouncementSet;
+    private final Set<Address> earlyAnnouncementSet;
+    private volatile View view;
+    private JChannel channel;
+
+    
+    /**
+     * Constructor for JGroupElectionChannel
+     *
+     * @param clusterName the cluster name
+     * @param identity the identity of this member
+     */
+    JGroupElectionChannel(String clusterName, String identity) {
+        this.clusterName = clusterName;
+        this.identity = identity;
+        this.localElectionMap = new ConcurrentHashMap<String, JGroupLeaderElectorImpl>();
+        this.candidateMap = new HashMap<String, Map<Address, Integer>>();
+        this.leaderMap = new HashMap<String, Address>();
+        this.epochMap = new HashMap<String, Long>();
+        this.pendingAnnouncementSet = new HashSet<Address>();
+        this.earlyAnnouncementSet = new HashSet<Address>();
+        this.view = null;
+        this.channel = null;
+    }
+
+    
+    /**
+     * Connect the channel
+     *
+     * @param leaderElectionConfiguration the leader election configuration which defines the protocol stack
+     * @throws IOException in case of an i/o error
+     */
+    void connect(LeaderElectionConfiguration leaderElectionConfiguration) throws IOException {
+        try {
+            channel = JGroupChannelFactory.getInstance().createChannel(leaderElectionConfiguration);
+            for (Protocol p : channel.getProtocolStack().getProtocols()) {
+                if (p instanceof GMS) {
+                    ((GMS) p).printLocalAddress(false);
+                }
+            }
+            
+            if (identity != null && !identity.isBlank()) {
+                channel.name(identity);
+            }
+            
+            // the receiver must be registered before connect to get the initial view
+            channel.setReceiver(this);
+            channel.connect(clusterName);
+            LOG.info("Connected to cluster [" + clusterName + "] (" + channel.getAddress() + ").");
+        } catch (Exception e) {
+            throw new IOException("Could not join to jgroup cluster [" + clusterName + "]: " + e.getMessage(), e);
+        }
+    }
+
+    
+    /**
+     * Close the channel
+     */
+    void close() {
+        if (channel != null) {
+            LOG.info("Exited from cluster [" + clusterName + "] (" + channel.getAddress() + ").");
+            channel.close();
+        }
+    }
+
+    
+    /**
+     * Get the channel
+     *
+     * @return the channel
+     */
+    JChannel getChannel() {
+        return channel;
+    }
+
+    
+    /**
+     * Register a local election, an election can be registered only once on a channel
+     *
+     * @param electionName the name of the election
+     * @param leaderElector the leader elector
+     * @throws IOException in case the election is already registered
+     */
+    void register(String electionName, JGroupLeaderElectorImpl leaderElector) throws IOException {
+        if (localElectionMap.putIfAbsent(electionName, leaderElector) != null) {
+            throw new IOException("The election [" + electionName + "] of [" + identity + "] is already registered in the jgroup cluster [" + clusterName + "]!");
+        }
+        
+        synchronized (this) {
+            candidateMap.computeIfAbsent(electionName, k -> new HashMap<Address, Integer>()).put(channel.getAddress(), leaderElector.getPriority());
+            evaluate(electionName);
+        }
+        
+        send(ANNOUNCE + getAnnouncement(List.of(electionName)));
+    }
+
+    
+    /**
+     * Unregister a local election: the other candidates get the withdrawal and take over immediately
+     *
+     * @param electionName the name of the election
+     * @param leaderElector the leader elector
+     * @return true if there is no local election left
+     */
+    boolean unregister(String electionName, JGroupLeaderElectorImpl leaderElector) {
+        if (localElectionMap.remove(electionName, leaderElector)) {
+            synchronized (this) {
+                final Map<Address, Integer> candidates = candidateMap.get(electionName);
+                if (candidates != null) {
+                    candidates.remove(channel.getAddress());
+                }
+            }
+            
+            send(WITHDRAW + electionName);
+        }
+        
+        return localElectionMap.isEmpty();
+    }
+
+    
+    /**
+     * @see org.jgroups.Receiver#viewAccepted(org.jgroups.View)
+     */
+    @Override
+    public void viewAccepted(View newView) {
+        boolean hasNewMembers = false;
+        
+        synchronized (this) {
+            final View oldView = view;
+            view = newView;
+            
+            // remove the candidates which left the cluster
+            if (oldView != null) {
+                for (Address address : oldView.getMembers()) {
+                    if (!newView.containsMember(address)) {
+                        pendingAnnouncementSet.remove(address);
+                        for (Map<Address, Integer> candidates : candidateMap.values()) {
+                            candidates.remove(address);
+                        }
+                    }
+                }
+            } else {
+                // first view: wait for the announcement of all other members, it contains the current leaders; an
+                // announcement can be received before the first view
+                for (Address address : newView.getMembers()) {
+                    if (!address.equals(channel.getAddress()) && !earlyAnnouncementSet.contains(address)) {
+                        pendingAnnouncementSet.add(address);
+                    }
+                }
+                
+                earlyAnnouncementSet.clear();
+            }
+            
+            for (Address address : newView.getMembers()) {
+                if (oldView == null || !oldView.containsMember(address)) {
+                    hasNewMembers = true;
+                }
+            }
+
+            // the partitions had their own leaders
+            if (newView instanceof MergeView) {
+                leaderMap.clear();
+            }
+            
+            for (String electionName : localElectionMap.keySet()) {
+                evaluate(electionName);
+            }
+        }
+        
+        // new members have to learn the elections of this member (even if there is none); don't send within the view callback
+        if (hasNewMembers) {
+            LeaderElectionFactory.getInstance().getScheduler().execute(() -> send(ANNOUNCE + getAnnouncement(localElectionMap.keySet())));
+        }
+    }
+
+    
+    /**
+     * @see org.jgroups.Receiver#receive(org.jgroups.Message)
+     */
+    @Override
+    public void receive(Message msg) {
+        final Object payload = msg.getObject();
+        if (!(payload instanceof String) || msg.getSrc() == null) {
+            return;
+        }
+        
+        final String content = (String) payload;
+        final boolean isAnnounce = content.startsWith(ANNOUNCE);
+        if (!isAnnounce && !content.startsWith(WITHDRAW)) {
+            return;
+        }
+        
+        // both prefixes have the same length, an empty announcement contains no election
+        final List<Candidate> candidateList = new ArrayList<Candidate>();
+        if (content.length() > ANNOUNCE.length()) {
+            try {
+                for (String line : content.substring(ANNOUNCE.length()).split(SEPARATOR)) {
+                    candidateList.add(new Candidate(line.split(FIELD_SEPARATOR)));
+                }
+            } catch (NumberFormatException e) {
+                LOG.warn("Drop invalid message from [" + msg.getSrc() + "] in jgroup cluster [" + clusterName + "]: " + e.getMessage());
+                return;
+            }
+        }
+
+        synchronized (this) {
+            final List<String> electionNameList = new ArrayList<String>();
+            for (Candidate candidate : candidateList) {
+                final String electionName = candidate.electionName;
+                electionNameList.add(electionName);
+                if (isAnnounce) {
+                    candidateMap.computeIfAbsent(electionName, k -> new HashMap<Address, Integer>()).put(msg.getSrc(), candidate.priority);
+                    if (candidate.epoch != null) {
+                        epochMap.merge(electionName, candidate.epoch, Math::max);
+                    }
+                    
+                    // the leader of an election is taken over unless the local election has already one
+                    if (candidate.isLeader && (!localElectionMap.containsKey(electionName) || !leaderMap.containsKey(electionName))) {
+                        leaderMap.put(electionName, msg.getSrc());
+                    }
+                } else {
+                    final Map<Address, Integer> candidates = candidateMap.get(electionName);
+                    if (candidates != null) {
+                        candidates.remove(msg.getSrc());
+                    }
+                }
+            }
+            
+            if (isAnnounce && view == null) {
+                // the announcement was received before the first view
+                earlyAnnouncementSet.add(msg.getSrc());
+            }
+            
+            if (isAnnounce && pendingAnnouncementSet.remove(msg.getSrc()) && pendingAnnouncementSet.isEmpty()) {
+                // all members are known, the local elections can be evaluated
+                electionNameList.clear();
+                electionNameList.addAll(localElectionMap.keySet());
+            }
+
+            for (String electionName : electionNameList) {
+                evaluate(electionName);
+            }
+        }
+    }
+
+    
+    /**
+     * Evaluate the leader of an election: the candidate with the highest priority, on the same priority the oldest 
+     * candidate in the view. The current leader keeps the lead unless the priority of the best candidate is higher 
+     * by more than the hysteresis. In case of a partitioned election the partitions are assigned by rendezvous hashing 
+     * over the candidates, so a membership change moves only the partitions of the joined or left candidate. A new 
+     * leader takes a new epoch and announces it, a follower takes the highest announced epoch. The caller holds the lock.
+     *
+     * @param electionName the name of the election
+     */
+    private void evaluate(String electionName) {
+        final JGroupLeaderElectorImpl leaderElector = localElectionMap.get(electionName);
+        final Map<Address, Integer> candidates = candidateMap.get(electionName);
+        if (leaderElector == null || candidates == null || view == null || !pendingAnnouncementSet.isEmpty()) {
+            return;
+        }
+        
+        final List<Address> candidateList = new ArrayList<Address>();
+        Address leader = null;
+        int leaderPriority = 0;
+        for (Address address : view.getMembers()) {
+            final Integer priority = candidates.get(address);
+            if (priority != null) {
+                candidateList.add(address);
+                if (leader == null || priority > leaderPriority) {
+                    leader = address;
+                    leaderPriority = priority;
+                }
+            }
+        }
+        
+        if (candidateList.isEmpty()) {
+            return;
+        }
+
+        final Address currentLeader = leaderMap.get(electionName);
+        if (currentLeader != null && !currentLeader.equals(leader) && candidateList.contains(currentLeader)
+            && (long) leaderPriority - candidates.get(currentLeader) <= leaderElector.getPriorityHysteresis()) {
+            leader = currentLeader;
+        }
+        
+        leaderMap.put(electionName, leader);
+        
+        final Address self = channel.getAddress();
+        final boolean[] ownedPartitions = new boolean[leaderElector.getPartitionCount()];
+        if (ownedPartitions.length == 1) {
+            ownedPartitions[0] = leader.equals(self);
+        } else {
+            for (int partition = 0; partition < ownedPartitions.length; partition++) {
+                ownedPartitions[partition] = self.equals(getPartitionOwner(partition, candidateList));
+            }
+        }
+        
+        // a new leader or a leader which learned a higher epoch (merge) takes a new epoch and announces it
+        final long knownEpoch = epochMap.getOrDefault(electionName, 0L);
+        long epoch = knownEpoch;
+        boolean announce = false;
+        if (leader.equals(self)) {
+            epoch = leaderElector.getEpoch();
+            if (!leaderElector.isLeader() || epoch < knownEpoch || epoch == 0) {
+                epoch = Math.max(Math.max(knownEpoch, leaderElector.getEpoch()), view.getViewId().getId()) + 1;
+                epochMap.put(electionName, epoch);
+                announce = true;
+            }
+        }
+        
+        leaderElector.updatePartitions(ownedPartitions);
+        leaderElector.updateLeader(leader.equals(self), "" + leader, getPhysicalAddress(leader), epoch);
+        
+        // don't send within the callback of jgroup
+        if (announce) {
+            final String announcement = ANNOUNCE + getAnnouncement(List.of(electionName));
+            LeaderElectionFactory.getInstance().getScheduler().execute(() -> send(announcement));
+        }
+    }
+
+    
+    /**
+     * Get the owner of a partition: the candidate with the highest weight (rendezvous hashing), on a tie the oldest
+     *
+     * @param partition the partition
+     * @param candidateList the candidates in view order
+     * @return the owner
+     */
+    private static Address getPartitionOwner(int partition, List<Address> candidateList) {
+        Address owner = null;
+        long ownerWeight = 0;
+        for (Address address : candidateList) {
+            final long weight = mix(address.hashCode() * 0x9E3779B97F4A7C15L + partition);
+            if (owner == null || weight > ownerWeight) {
+                owner = address;
+                ownerWeight = weight;
+            }
+        }
+        
+        return owner;
+    }
+
+    
+    /**
+     * Mix the bits of a value (murmur3 finalizer)
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    
+    /**
+     * Get the physical address of a member from the transport
+     *
+     * @param address the address of the member
+     * @return the physical address or null if it is not known
+     */
+    private String getPhysicalAddress(Address address) {
+        try {
+            final Object physicalAddress = channel.down(new Event(Event.GET_PHYSICAL_ADDRESS, address));
+            if (physicalAddress != null) {
+                return physicalAddress.toString();
+            }
+        } catch (RuntimeException e) {
+            LOG.debug("Could not get the physical address of [" + address + "]: " + e.getMessage(), e);
+        }
+        
+        return null;
+    }
+
+    
+    /**
+     * Get the announcement of elections: a line per election with its name, the local priority, the leader flag in 
+     * case this member is in lead and the epoch known by this member
+     *
+     * @param electionNames the names of the elections
+     * @return the announcement
+     */
+    private String getAnnouncement(Collection<String> electionNames) {
+        final List<String> lineList = new ArrayList<String>();
+        for (String electionName : electionNames) {
+            final JGroupLeaderElectorImpl leaderElector = localElectionMap.get(electionName);
+            if (leaderElector != null) {
+                String flag = FOLLOWER_FLAG;
+                if (leaderElector.isLeader()) {
+                    flag = LEADER_FLAG;
+                }
+                
+                lineList.add(electionName + FIELD_SEPARATOR + leaderElector.getPriority() + FIELD_SEPARATOR + flag + FIELD_SEPARATOR + leaderElector.getEpoch());
+            }
+        }
+        
+        return String.join(SEPARATOR, lineList);
+    }
+
+    
+    /**
+     * Send a message to all members
+     *
+     * @param content the content
+     */
+    private void send(String content) {
+        try {
+            channel.send(new ObjectMessage(null, content));
+        } catch (Exception e) {
+            LOG.warn("Could not send to jgroup cluster [" + clusterName + "]: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * A line of an announcement or withdrawal: the election name, the priority, the leader flag and the epoch of 
+     * the candidate
+     *
+     * @author patrick
+     */
+    private static class Candidate {
+        private final String electionName;
+        private final int priority;
+        private final boolean isLeader;
+        private final Long epoch;
+
+        
+        /**
+         * Constructor for Candidate
+         *
+         * @param fields the fields of the line
+         * @throws NumberFormatException in case of an invalid priority or epoch
+         */
+        Candidate(String[] fields) throws NumberFormatException {
+            electionName = fields[0];
+            if (fields.length > 1) {
+                priority = Integer.parseInt(fields[1]);
+            } else {
+                priority = 0;
+            }
+            
+            isLeader = fields.length > 2 && LEADER_FLAG.equals(fields[2]);
+            if (fields.length > 3) {
+                epoch = Long.parseLong(fields[3]);
+            } else {
+                epoch = null;
+            }
+        }
+    }
+}
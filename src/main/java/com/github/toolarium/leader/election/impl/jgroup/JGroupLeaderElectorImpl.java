@@ -6,29 +6,34 @@
 package com.github.toolarium.leader.election.impl.jgroup;
 
 import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.IPartitionedLeaderElector;
 import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
 import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-import org.jgroups.Address;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import org.jgroups.JChannel;
-import org.jgroups.View;
-import org.jgroups.protocols.pbcast.GMS;
-import org.jgroups.stack.Protocol;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Implements the {@link ILeaderElector} based on jgroup.
+ * Implements the {@link ILeaderElector} based on jgroup. All elections with the same namespace and identity share
+ * one jgroup channel, see {@link JGroupChannelRegistry}. With more than one partition the partitions are spread
+ * over all candidates of the election, see {@link IPartitionedLeaderElector}.
  * 
  * @author patrick
  */
-public class JGroupLeaderElectorImpl extends AbstractLeaderElectorImpl {
+public class JGroupLeaderElectorImpl extends AbstractLeaderElectorImpl implements IPartitionedLeaderElector {
+    /** The cluster name in case there is no namespace */
+    public static final String DEFAULT_CLUSTER_NAME = "toolarium-leader-election";
+    /** The election name in case there is no name */
+    public static final String DEFAULT_ELECTION_NAME = "default";
     private static final Logger LOG = LoggerFactory.getLogger(JGroupLeaderElectorImpl.class);    
+    private JGroupElectionChannel electionChannel;
+    private volatile boolean[] ownedPartitionArray;
 
     
     /**
@@ -49,93 +54,153 @@ public class JGroupLeaderElectorImpl extends AbstractLeaderElectorImpl {
      * @throws IOException in case of an i/o error
      */
     protected void init() throws IOException {
-        LOG.debug("Initialize jgroup channel...");
-
-        JChannel channel = createChannel();
-        if (channel != null) {
-            final ScheduledExecutorService scheduledExecuterService = Executors.newScheduledThreadPool(1);
-            final ScheduledFuture<?> scheduledFuture;
-
-            scheduledFuture = scheduledExecuterService.scheduleAtFixedRate(
-                    new JGroupLeaderElectionHandler(channel), 0, getLeaderElectionConfiguration().getRetryPeriod().getSeconds(), TimeUnit.SECONDS);
-            
-            Runtime.getRuntime().addShutdownHook(
-                    new Thread(JGroupLeaderElectorImpl.class.getName() + ": Shutdown hook") { // add shutdown hook
-                        /**
-                         * @see java.lang.Thread#run()
-                         */
-                        @Override
-                        public void run() {
-                            LOG.info("Exited from cluster [" + getUniqueName() + "] (" + channel.getAddress() + ").");
-                            if (scheduledFuture != null) {
-                                scheduledFuture.cancel(true);
-                            }
-
-                            if (scheduledExecuterService != null) {
-                                scheduledExecuterService.shutdown();
-                            }
-                        }
-                    });
-        }
+        LOG.debug("Initialize jgroup election [" + getUniqueName() + "]...");
+        
+        electionChannel = JGroupChannelRegistry.getInstance().getElectionChannel(getClusterName(), getLeaderElectionInformation().getIdentity(), getLeaderElectionConfiguration());
+        electionChannel.register(getElectionName(), this);
     }
 
 
     /**
-     * Create a channel
-     *
-     * @return the channel or null
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
      */
-    private JChannel createChannel() {
-        JChannel channel = null;
-        
-        try {
-            channel = new JChannel();
-            for (Protocol p : channel.getProtocolStack().getProtocols()) {
-                if (p instanceof GMS) {
-                    ((GMS) p).printLocalAddress(false);
+    @Override
+    protected void release() {
+        JGroupChannelRegistry.getInstance().release(getClusterName(), getLeaderElectionInformation().getIdentity(), getElectionName(), this);
+        ownedPartitionArray = null;
+    }
+
+
+    /**
+     * @see com.github.toolarium.leader.election.IPartitionedLeaderElector#getPartitionCount()
+     */
+    @Override
+    public int getPartitionCount() {
+        return getLeaderElectionConfiguration().getPartitions();
+    }
+
+
+    /**
+     * @see com.github.toolarium.leader.election.IPartitionedLeaderElector#getPartition(java.lang.Object)
+     */
+    @Override
+    public int getPartition(Object key) {
+        return Math.floorMod(Objects.hashCode(key), getPartitionCount());
+    }
+
+
+    /**
+     * @see com.github.toolarium.leader.election.IPartitionedLeaderElector#isLeaderFor(java.lang.Object)
+     */
+    @Override
+    public boolean isLeaderFor(Object key) {
+        final boolean[] ownedPartitions = ownedPartitionArray;
+        return ownedPartitions != null && ownedPartitions[getPartition(key)];
+    }
+
+
+    /**
+     * @see com.github.toolarium.leader.election.IPartitionedLeaderElector#ownedPartitions()
+     */
+    @Override
+    public Set<Integer> ownedPartitions() {
+        final Set<Integer> result = new TreeSet<Integer>();
+        final boolean[] ownedPartitions = ownedPartitionArray;
+        if (ownedPartitions != null) {
+            for (int partition = 0; partition < ownedPartitions.length; partition++) {
+                if (ownedPartitions[partition]) {
+                    result.add(partition);
                 }
             }
-            
-            channel.connect(getUniqueName());
-            LOG.info("Connected to cluster [" + getUniqueName() + "] (" + channel.getAddress() + ").");
-        } catch (Exception e) {
-            LOG.warn("Could not join to jgroup cluster [" + getUniqueName() + "]: " + e.getMessage(), e);
         }
         
-        return channel;
+        return Collections.unmodifiableSet(result);
     }
 
-
+    
     /**
-     * The jgroup leader election handler
-     * 
-     * @author patrick
+     * Get the channel
+     *
+     * @return the channel or null
      */
-    protected class JGroupLeaderElectionHandler implements Runnable {
-        private JChannel channel;
-
-        
-        /**
-         * Constructor for LeaderElectionHandler
-         *
-         * @param channel the channel
-         */
-        public JGroupLeaderElectionHandler(JChannel channel) {
-            this.channel = channel;
+    protected JChannel getChannel() {
+        if (electionChannel == null) {
+            return null;
         }
+        
+        return electionChannel.getChannel();
+    }
 
+    
+    /**
+     * Get the cluster name: the namespace of the election
+     *
+     * @return the cluster name
+     */
+    protected String getClusterName() {
+        final String namespace = getLeaderElectionInformation().getNamespace();
+        if (namespace == null || namespace.isBlank()) {
+            return DEFAULT_CLUSTER_NAME;
+        }
         
-        /**
-         * @see java.lang.Runnable#run()
-         */
-        public void run() {
-            try {
-                View view = channel.getView();
-                Address address = view.getMembers().get(0);
-                setLeader(address.equals(channel.getAddress()), "" + channel.getAddress());
-            } catch (Exception e) {
-                LOG.warn("Error occured while verify jgroup cluster [" + getUniqueName() + "]: " + e.getMessage(), e);
-            }
+        return namespace;
+    }
+
+    
+    /**
+     * Get the name of the election inside the cluster
+     *
+     * @return the election name
+     */
+    protected String getElectionName() {
+        final String name = getLeaderElectionInformation().getName();
+        if (name == null || name.isBlank()) {
+            return DEFAULT_ELECTION_NAME;
         }
+        
+        return name;
+    }
+
+    
+    /**
+     * Get the priority of the candidate
+     *
+     * @return the priority
+     */
+    int getPriority() {
+        return getLeaderElectionConfiguration().getJGroupPriority();
+    }
+
+    
+    /**
+     * Get the priority hysteresis of the election
+     *
+     * @return the priority hysteresis
+     */
+    int getPriorityHysteresis() {
+        return getLeaderElectionConfiguration().getJGroupPriorityHysteresis();
+    }
+
+    
+    /**
+     * Update the leader, called by the election channel
+     *
+     * @param isLeader true if in lead
+     * @param leaderIdentity the identity of the leader
+     * @param leaderAddress the physical address of the leader or null
+     * @param epoch the epoch of the leadership, decided and announced by the leader
+     */
+    void updateLeader(boolean isLeader, String leaderIdentity, String leaderAddress, long epoch) {
+        setLeader(isLeader, leaderIdentity, leaderAddress, epoch);
+    }
+
+    
+    /**
+     * Update the owned partitions, called by the election channel
+     *
+     * @param ownedPartitions the owned partitions, the array must not be changed afterwards
+     */
+    void updatePartitions(boolean[] ownedPartitions) {
+        ownedPartitionArray = ownedPartitions;
     }
 }
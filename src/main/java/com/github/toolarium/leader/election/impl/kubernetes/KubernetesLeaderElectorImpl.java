@@ -5,29 +5,52 @@
  */
 package com.github.toolarium.leader.election.impl.kubernetes;
 
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
 import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.KubernetesLockType;
 import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
 import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
-import io.kubernetes.client.extended.leaderelection.LeaderElectionConfig;
-import io.kubernetes.client.extended.leaderelection.LeaderElector;
-import io.kubernetes.client.extended.leaderelection.resourcelock.EndpointsLock;
-import io.kubernetes.client.openapi.ApiClient;
-import io.kubernetes.client.openapi.Configuration;
-import io.kubernetes.client.util.Config;
+import com.github.toolarium.leader.election.impl.RenewalBackoff;
+import io.kubernetes.client.extended.leaderelection.LeaderElectionRecord;
+import io.kubernetes.client.extended.leaderelection.Lock;
+import io.kubernetes.client.openapi.ApiException;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
- * Implements the {@link ILeaderElector} based on kubernetes api.
+ * Implements the {@link ILeaderElector} based on kubernetes api. The elections (acquire or renew the lock every retry 
+ * period) of all kubernetes leader electors of the jvm are run by the {@link KubernetesRenewalCoordinator} as 
+ * non-blocking tasks on the shared {@link ILeaderElectionScheduler}, the constructor returns immediately and the elector 
+ * is not in lead until the first decision. A holder renews the lock without reading it first. With 
+ * {@link LeaderElectionConfiguration#setKubernetesWatch(boolean)} the followers watch the lease instead of reading it 
+ * every retry period, see {@link KubernetesLeaseWatch}. A follower backs off adaptively, see {@link RenewalBackoff}: 
+ * throttled (429) or failing (5xx) api requests increase its delay, the holder of the lock renews every retry period. 
+ * On close the lock holder gets cleared.
  * 
  * @author patrick
  */
 public class KubernetesLeaderElectorImpl extends AbstractLeaderElectorImpl {
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesLeaderElectorImpl.class);
-    private LeaderElector leaderElector;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private Lock lock;
+    private LeaderElectionRecord observedRecord;
+    private long observedTimeNanos;
+    private volatile long observedExpiryNanos;
+    private boolean renewable;
+    private volatile boolean leaseHeld;
+    private volatile long renewalLatencyNanos;
+    private KubernetesRenewalGroup renewalGroup;
+    private KubernetesLeaseWatch leaseWatch;
+    private RenewalBackoff backoff;
+    private boolean attemptFailed;
+    private volatile long nextAttemptNanos;
+    private volatile boolean attemptScheduled;
 
     
     /**
@@ -48,18 +71,403 @@ public class KubernetesLeaderElectorImpl extends AbstractLeaderElectorImpl {
      * @throws IOException in case of an i/o error
      */
     protected void init() throws IOException {
-        LOG.debug("Initialize kubernetes api client...");
+        LOG.debug("Initialize kubernetes leader elector with lock type [" + getLeaderElectionConfiguration().getKubernetesLockType() + "]...");
         
-        ApiClient client = Config.defaultClient();
-        Configuration.setDefaultApiClient(client);
-
-        final EndpointsLock lock = new EndpointsLock(getLeaderElectionInformation().getNamespace(), getLeaderElectionInformation().getName(), getLeaderElectionInformation().getIdentity());
-        leaderElector = new LeaderElector(new LeaderElectionConfig(lock, getLeaderElectionConfiguration().getTimeout(), getLeaderElectionConfiguration().getRenewDeadline(), getLeaderElectionConfiguration().getRetryPeriod()));
-        leaderElector.run(
-                () -> {
-                    setLeader(true, null);
-                },                () -> {
-                    setLeader(false, null);
-                });
-    }
-}
\ No newline at end of file
+        lock = KubernetesUtil.getInstance().createLock(getLeaderElectionInformation(), getLeaderElectionConfiguration().getKubernetesLockType());
+        renewable = false;
+        leaseHeld = false;
+        renewalLatencyNanos = 0;
+        observedExpiryNanos = System.nanoTime();
+        backoff = new RenewalBackoff(getLeaderElectionConfiguration().getRetryPeriod(), getLeaderElectionConfiguration().getTimeout());
+        attemptFailed = false;
+        nextAttemptNanos = System.nanoTime();
+        attemptScheduled = false;
+        leaseWatch = null;
+        if (getLeaderElectionConfiguration().isKubernetesWatch() && getLeaderElectionConfiguration().getKubernetesLockType() == KubernetesLockType.LEASE) {
+            leaseWatch = KubernetesLeaseWatcher.getInstance().register(this);
+        }
+        
+        renewalGroup = KubernetesRenewalCoordinator.getInstance().register(this);
+    }
+
+    
+    /**
+     * Get the configuration
+     *
+     * @return the configuration
+     */
+    LeaderElectionConfiguration getConfiguration() {
+        return getLeaderElectionConfiguration();
+    }
+
+    
+    /**
+     * Get the renewal group
+     *
+     * @return the renewal group
+     */
+    KubernetesRenewalGroup getRenewalGroup() {
+        return renewalGroup;
+    }
+
+    
+    /**
+     * Get the lease watch
+     *
+     * @return the lease watch or null if the lock is read every retry period
+     */
+    KubernetesLeaseWatch getLeaseWatch() {
+        return leaseWatch;
+    }
+
+    
+    /**
+     * Get the namespace of the lock
+     *
+     * @return the namespace
+     */
+    String getNamespace() {
+        return getLeaderElectionInformation().getNamespace();
+    }
+
+    
+    /**
+     * Get the name of the lock
+     *
+     * @return the name
+     */
+    String getLockName() {
+        return getLeaderElectionInformation().getName();
+    }
+
+    
+    /**
+     * Check if the lock is watched: a follower doesn't need to read the lock every retry period
+     *
+     * @return true if the lock is watched
+     */
+    boolean isWatching() {
+        final KubernetesLeaseWatch watch = leaseWatch;
+        return watch != null && watch.isConnected();
+    }
+
+    
+    /**
+     * Get the delay until the observed lock expires, a released lock is expired
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the delay in nanoseconds, zero or negative if the lock is expired or was not observed yet
+     */
+    long getObservedExpiryDelayNanos(long nowNanos) {
+        return observedExpiryNanos - nowNanos;
+    }
+
+    
+    /**
+     * Check if this candidate holds the lease by its last observation: it is the observed holder and the observed lease
+     * is not expired. A holder renews every pass of its renewal group, even after it stepped down locally.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return true if this candidate holds the lease
+     */
+    boolean holdsLease(long nowNanos) {
+        return leaseHeld && observedExpiryNanos - nowNanos > 0;
+    }
+
+    
+    /**
+     * Get the latency of the last successful renewal
+     *
+     * @return the latency in nanoseconds, 0 if the lease was not held yet
+     */
+    long getRenewalLatencyNanos() {
+        return renewalLatencyNanos;
+    }
+
+    
+    /**
+     * Take the next attempt of a follower in case it is due within the horizon: it is not taken again until the attempt ran
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @param horizonNanos the horizon in nanoseconds
+     * @return the delay of the attempt in nanoseconds or -1 if it is not due within the horizon or already taken
+     */
+    long takeNextAttempt(long nowNanos, long horizonNanos) {
+        final long delayNanos = nextAttemptNanos - nowNanos;
+        if (attemptScheduled || delayNanos >= horizonNanos) {
+            return -1;
+        }
+        
+        attemptScheduled = true;
+        return Math.max(0, delayNanos);
+    }
+
+    
+    /**
+     * Get the number of consecutive failed attempts
+     *
+     * @return the number of consecutive failed attempts
+     */
+    synchronized int getFailedAttempts() {
+        return backoff.getFailures();
+    }
+
+    
+    /**
+     * A change of the lock was watched: a follower takes the new holder and tries to acquire a released lock immediately
+     *
+     * @param record the record or null if the lock was deleted
+     */
+    void onWatchEvent(LeaderElectionRecord record) {
+        synchronized (this) {
+            if (isClosed()) {
+                return;
+            }
+            
+            if (record == null) {
+                observedRecord = null;
+                leaseHeld = false;
+                observedExpiryNanos = System.nanoTime();
+            } else if (observedRecord == null 
+                    || !Objects.equals(observedRecord.getHolderIdentity(), record.getHolderIdentity()) 
+                    || !Objects.equals(observedRecord.getRenewTime(), record.getRenewTime())) {
+                observe(record);
+            }
+            
+            // a leader notices a change with its next renewal
+            if (isLeader()) {
+                return;
+            }
+            
+            if (getObservedHolderIdentity() != null) {
+                setLeader(false, getObservedHolderIdentity(), getObservedEpoch());
+                return;
+            }
+        }
+        
+        getScheduler().execute(this::runElection);
+    }
+
+    
+    /**
+     * Run the election: acquire or renew the lock, afterwards the delay of the next attempt of a follower is calculated. 
+     * A close waits until a running election is done.
+     */
+    protected void runElection() {
+        synchronized (this) {
+            if (isClosed()) {
+                return;
+            }
+            
+            try {
+                final String identity = getLeaderElectionInformation().getIdentity();
+                final boolean wasLeader = isLeader();
+                final long renewTimeNanos = nanoTime();
+                final long startTimeNanos = System.nanoTime();
+                attemptFailed = false;
+                final boolean isHolder = tryAcquireOrRenew();
+                final long latencyNanos = System.nanoTime() - startTimeNanos;
+                if (isHolder || wasLeader) {
+                    recordRenewal(isHolder, latencyNanos);
+                }
+                
+                if (isHolder) {
+                    renewalLatencyNanos = latencyNanos;
+                    
+                    // the lease is counted from the start of the request
+                    setLeaseRenewed(renewTimeNanos);
+                    setLeader(true, identity, getObservedEpoch());
+                } else if (!isLeader()) {
+                    // isLeader() checks locally the renew deadline of the last successful renewal
+                    if (isLeaseExpired()) {
+                        LOG.info("Failed to renew lock [" + lock.describe() + "] within the renew deadline.");
+                    }
+                    
+                    setLeader(false, getObservedHolderIdentity(), getObservedEpoch());
+                }
+            } catch (RuntimeException e) {
+                attemptFailed = true;
+                LOG.warn("Error occured while running kubernetes election [" + getUniqueName() + "]: " + e.getMessage(), e);
+            }
+            
+            nextAttemptNanos = System.nanoTime() + backoff.nextDelayNanos(attemptFailed);
+            attemptScheduled = false;
+        }
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+     */
+    @Override
+    protected void release() {
+        synchronized (this) {
+            KubernetesRenewalCoordinator.getInstance().unregister(this);
+            KubernetesLeaseWatcher.getInstance().unregister(this);
+
+            // clear the holder of a held lock: the candidates take over with their next retry instead of waiting for the expiry
+            final String identity = getLeaderElectionInformation().getIdentity();
+            if (lock == null || observedRecord == null || !identity.equals(observedRecord.getHolderIdentity())) {
+                return;
+            }
+            
+            try {
+                final Date now = new Date();
+                final LeaderElectionRecord releasedRecord = new LeaderElectionRecord("", 1, now, now, observedRecord.getLeaderTransitions());
+                renewable = false;
+                if (lock.update(releasedRecord)) {
+                    observe(releasedRecord);
+                    LOG.info("Released lock [" + lock.describe() + "].");
+                } else {
+                    LOG.info("Could not release lock [" + lock.describe() + "], it expires after the timeout.");
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Error occured while releasing kubernetes election [" + getUniqueName() + "]: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    
+    /**
+     * Try to acquire or renew the lock
+     *
+     * @return true if the lock is held by this candidate
+     */
+    protected boolean tryAcquireOrRenew() {
+        final String identity = getLeaderElectionInformation().getIdentity();
+        final Date now = new Date();
+        // the lock record has seconds precision, the expiry is checked locally with the full precision of the timeout
+        final int leaseDurationSeconds = (int) Math.max(1, (getLeaderElectionConfiguration().getTimeout().toMillis() + 999) / 1000);
+        
+        if (renewable) {
+            // the lock keeps the object of the last own update: the renewal is one request without a get before
+            final LeaderElectionRecord renewedRecord = new LeaderElectionRecord(identity, leaseDurationSeconds, observedRecord.getAcquireTime(), now, observedRecord.getLeaderTransitions());
+            renewable = lock.update(renewedRecord);
+            if (renewable) {
+                observe(renewedRecord);
+                return true;
+            }
+            
+            // the lock was changed meanwhile (conflict) or the request failed: it gets read
+        }
+        
+        LeaderElectionRecord oldRecord;
+        try {
+            oldRecord = lock.get();
+        } catch (ApiException e) {
+            if (e.getCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+                attemptFailed = isBackoffCode(e.getCode());
+                LOG.debug("Could not get lock [" + lock.describe() + "] (http-code [" + e.getCode() + "]): " + e.getMessage());
+                return false;
+            }
+
+            // the lock doesn't exist
+            LeaderElectionRecord newRecord = new LeaderElectionRecord(identity, leaseDurationSeconds, now, now, 0);
+            if (!lock.create(newRecord)) {
+                attemptFailed = isBackoffCode(KubernetesUtil.getInstance().getResponseCode());
+                return false;
+            }
+            
+            observe(newRecord);
+            renewable = true;
+            return true;
+        }
+        
+        if (oldRecord == null) {
+            return false;
+        }
+        
+        if (observedRecord == null 
+                || !Objects.equals(observedRecord.getHolderIdentity(), oldRecord.getHolderIdentity()) 
+                || !Objects.equals(observedRecord.getRenewTime(), oldRecord.getRenewTime())) {
+            observe(oldRecord);
+        }
+        
+        // the lock is held by an other candidate and not yet expired: based on the local observation time to be independent of clock skew
+        final String holderIdentity = oldRecord.getHolderIdentity();
+        final boolean isHolder = identity.equals(holderIdentity);
+        if (!isHolder && holderIdentity != null && !holderIdentity.isEmpty() 
+                && System.nanoTime() - observedTimeNanos < getLeaderElectionConfiguration().getTimeout().toNanos()) {
+            return false;
+        }
+        
+        LeaderElectionRecord newRecord = new LeaderElectionRecord(identity, leaseDurationSeconds, now, now, oldRecord.getLeaderTransitions());
+        if (isHolder) {
+            newRecord.setAcquireTime(oldRecord.getAcquireTime());
+        } else {
+            newRecord.setLeaderTransitions(oldRecord.getLeaderTransitions() + 1);
+        }
+        
+        if (!lock.update(newRecord)) {
+            // the lock reports a failed update only as false, e.g. a conflict with an other candidate
+            attemptFailed = isBackoffCode(KubernetesUtil.getInstance().getResponseCode());
+            return false;
+        }
+        
+        observe(newRecord);
+        renewable = true;
+        return true;
+    }
+
+    
+    /**
+     * Check if a failed request has to back off: a throttling (429) or failing (5xx) api server or a failed 
+     * connection (no http-code)
+     *
+     * @param code the http-code
+     * @return true if the follower backs off
+     */
+    private static boolean isBackoffCode(int code) {
+        return code == 0 || code == HTTP_TOO_MANY_REQUESTS || code >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    
+    /**
+     * Observe a lock record
+     *
+     * @param record the record
+     */
+    private void observe(LeaderElectionRecord record) {
+        observedRecord = record;
+        leaseHeld = getLeaderElectionInformation().getIdentity().equals(record.getHolderIdentity());
+        observedTimeNanos = System.nanoTime();
+        if (record.getHolderIdentity() == null || record.getHolderIdentity().isEmpty()) {
+            observedExpiryNanos = observedTimeNanos;
+        } else {
+            observedExpiryNanos = observedTimeNanos + getLeaderElectionConfiguration().getTimeout().toNanos();
+        }
+    }
+
+    
+    /**
+     * Get the holder identity of the last observed record
+     *
+     * @return the holder identity or null if there is no holder or the lease is expired
+     */
+    private String getObservedHolderIdentity() {
+        if (observedRecord == null || observedRecord.getHolderIdentity() == null || observedRecord.getHolderIdentity().isEmpty()) {
+            return null;
+        }
+        
+        // an expired lease has no leader
+        if (System.nanoTime() - observedTimeNanos >= getLeaderElectionConfiguration().getTimeout().toNanos()) {
+            return null;
+        }
+        
+        return observedRecord.getHolderIdentity();
+    }
+
+    
+    /**
+     * Get the epoch of the last observed record: the leader transitions plus one, the first leader has the epoch 1
+     *
+     * @return the epoch or 0
+     */
+    private long getObservedEpoch() {
+        if (observedRecord == null) {
+            return 0;
+        }
+        
+        return observedRecord.getLeaderTransitions() + 1L;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * KubernetesLeaseWatch.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import com.google.gson.reflect.TypeToken;
+import io.kubernetes.client.extended.leaderelection.LeaderElectionRecord;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoordinationV1Api;
+import io.kubernetes.client.openapi.models.V1Lease;
+import io.kubernetes.client.openapi.models.V1LeaseSpec;
+import io.kubernetes.client.util.Watch;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The watch of the leases of a namespace: every change of a lease is passed to the watching leader electors of the 
+ * lease. The stream of a connected watch is read by a thread of the {@link KubernetesLeaseWatcher}, it doesn't take a 
+ * worker of the shared scheduler. The watch reconnects after a failure or the timeout of the watch request, the delay 
+ * is waited on the timer of the scheduler without any thread; the api server sends the current leases on every connect, 
+ * therefore no change gets lost. The leader electors fall back to read the lock while the watch is not connected.
+ * 
+ * @author patrick
+ */
+class KubernetesLeaseWatch {
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesLeaseWatch.class);
+    private static final String DELETED = "DELETED";
+    private static final int DEFAULT_WATCH_TIMEOUT_SECONDS = 300;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+    private final String namespace;
+    private final Executor executor;
+    private final List<KubernetesLeaderElectorImpl> leaderElectorList;
+    private volatile Watch<V1Lease> watch;
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    
+    /**
+     * Constructor for KubernetesLeaseWatch
+     *
+     * @param namespace the namespace
+     * @param executor the executor which reads the stream of the watch
+     */
+    KubernetesLeaseWatch(String namespace, Executor executor) {
+        this.namespace = namespace;
+        this.executor = executor;
+        this.leaderElectorList = new CopyOnWriteArrayList<KubernetesLeaderElectorImpl>();
+        this.watch = null;
+        this.connected = false;
+        this.closed = false;
+    }
+
+    
+    /**
+     * Get the namespace
+     *
+     * @return the namespace
+     */
+    String getNamespace() {
+        return namespace;
+    }
+
+    
+    /**
+     * Check if the watch is connected
+     *
+     * @return true if the watch is connected
+     */
+    boolean isConnected() {
+        return connected;
+    }
+
+    
+    /**
+     * Add a leader elector
+     *
+     * @param leaderElector the leader elector
+     */
+    void add(KubernetesLeaderElectorImpl leaderElector) {
+        leaderElectorList.add(leaderElector);
+    }
+
+    
+    /**
+     * Remove a leader elector, the watch is closed with the last leader elector
+     *
+     * @param leaderElector the leader elector
+     * @return true if the watch is closed
+     */
+    boolean remove(KubernetesLeaderElectorImpl leaderElector) {
+        leaderElectorList.remove(leaderElector);
+        if (!leaderElectorList.isEmpty()) {
+            return false;
+        }
+        
+        closed = true;
+        connected = false;
+        closeWatch(watch);
+        return true;
+    }
+
+    
+    /**
+     * Start the watch, it runs until it is closed
+     */
+    void start() {
+        executor.execute(this::run);
+    }
+
+    
+    /**
+     * Connect the watch and read its stream until it ends, afterwards the reconnect is scheduled
+     */
+    private void run() {
+        if (closed) {
+            return;
+        }
+        
+        try {
+            final ApiClient apiClient = KubernetesUtil.getInstance().getApiClient();
+            
+            // the watch request ends before the read timeout of the shared api client
+            int timeoutSeconds = DEFAULT_WATCH_TIMEOUT_SECONDS;
+            if (apiClient.getReadTimeout() > 0) {
+                timeoutSeconds = (int) Math.max(1, Math.min(timeoutSeconds, TimeUnit.MILLISECONDS.toSeconds(apiClient.getReadTimeout()) - 1));
+            }
+            
+            watch = Watch.createWatch(apiClient, 
+                                      new CoordinationV1Api(apiClient).listNamespacedLease(namespace).watch(Boolean.TRUE).timeoutSeconds(timeoutSeconds).buildCall(null), 
+                                      new TypeToken<Watch.Response<V1Lease>>() { }.getType());
+            if (closed) {
+                return;
+            }
+            
+            connected = true;
+            LOG.debug("Watch leases of namespace [" + namespace + "].");
+            for (Watch.Response<V1Lease> response : watch) {
+                if (closed) {
+                    break;
+                }
+                
+                dispatch(response);
+            }
+        } catch (ApiException e) {
+            LOG.debug("Could not watch leases of namespace [" + namespace + "] (http-code [" + e.getCode() + "]): " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                LOG.debug("Could not watch leases of namespace [" + namespace + "]: " + e.getMessage());
+            }
+        } finally {
+            connected = false;
+            closeWatch(watch);
+        }
+        
+        if (!closed) {
+            LeaderElectionFactory.getInstance().getScheduler().schedule(this::start, RECONNECT_DELAY);
+        }
+    }
+
+
+    /**
+     * Pass a change of a lease to its leader electors
+     *
+     * @param response the watch response
+     */
+    private void dispatch(Watch.Response<V1Lease> response) {
+        final V1Lease lease = response.object;
+        if (lease == null || lease.getMetadata() == null || lease.getMetadata().getName() == null) {
+            return;
+        }
+        
+        LeaderElectionRecord record = null;
+        if (!DELETED.equals(response.type)) {
+            record = toRecord(lease.getSpec());
+        }
+        
+        for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+            if (lease.getMetadata().getName().equals(leaderElector.getLockName())) {
+                leaderElector.onWatchEvent(record);
+            }
+        }
+    }
+
+    
+    /**
+     * Convert the lease spec into a lock record
+     *
+     * @param spec the lease spec
+     * @return the record
+     */
+    private LeaderElectionRecord toRecord(V1LeaseSpec spec) {
+        final LeaderElectionRecord record = new LeaderElectionRecord();
+        if (spec == null) {
+            return record;
+        }
+        
+        record.setHolderIdentity(spec.getHolderIdentity());
+        if (spec.getLeaseDurationSeconds() != null) {
+            record.setLeaseDurationSeconds(spec.getLeaseDurationSeconds());
+        }
+        
+        record.setAcquireTime(toDate(spec.getAcquireTime()));
+        record.setRenewTime(toDate(spec.getRenewTime()));
+        if (spec.getLeaseTransitions() != null) {
+            record.setLeaderTransitions(spec.getLeaseTransitions());
+        }
+        
+        return record;
+    }
+
+    
+    /**
+     * Convert a time
+     *
+     * @param time the time or null
+     * @return the date or null
+     */
+    private Date toDate(OffsetDateTime time) {
+        if (time == null) {
+            return null;
+        }
+        
+        return new Date(time.toInstant().toEpochMilli());
+    }
+
+    
+    /**
+     * Close a watch
+     *
+     * @param watchToClose the watch or null
+     */
+    private void closeWatch(Watch<V1Lease> watchToClose) {
+        if (watchToClose == null) {
+            return;
+        }
+        
+        try {
+            watchToClose.close();
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Could not close watch of namespace [" + namespace + "]: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * KubernetesLeaseWatcher.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import com.github.toolarium.leader.election.impl.DaemonThreadFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Registry of the lease watches: the watching kubernetes leader electors of a namespace share one 
+ * {@link KubernetesLeaseWatch}, the number of watches grows with the namespaces and not with the elections. The streams 
+ * of the connected watches are read by daemon threads of the watcher, one per namespace, the workers of the shared 
+ * scheduler are not blocked by a watch.
+ * 
+ * @author patrick
+ */
+public final class KubernetesLeaseWatcher {
+    /** The name prefix of the threads which read the watches */
+    public static final String WATCH_THREAD_PREFIX = "leader-election-watch-";
+    
+    private final Map<String, KubernetesLeaseWatch> leaseWatchMap;
+    private final ExecutorService executorService;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final KubernetesLeaseWatcher INSTANCE = new KubernetesLeaseWatcher();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private KubernetesLeaseWatcher() {
+        leaseWatchMap = new HashMap<String, KubernetesLeaseWatch>();
+        executorService = Executors.newCachedThreadPool(new DaemonThreadFactory(WATCH_THREAD_PREFIX));
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static KubernetesLeaseWatcher getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Get the number of lease watches, one per namespace
+     *
+     * @return the number of lease watches
+     */
+    public synchronized int size() {
+        return leaseWatchMap.size();
+    }
+
+    
+    /**
+     * Register a leader elector: the watch of its namespace is started with the first leader elector
+     *
+     * @param leaderElector the leader elector
+     * @return the lease watch of the leader elector
+     */
+    synchronized KubernetesLeaseWatch register(KubernetesLeaderElectorImpl leaderElector) {
+        final String namespace = leaderElector.getNamespace();
+        KubernetesLeaseWatch leaseWatch = leaseWatchMap.get(namespace);
+        if (leaseWatch == null) {
+            leaseWatch = new KubernetesLeaseWatch(namespace, executorService);
+            leaseWatchMap.put(namespace, leaseWatch);
+            leaseWatch.start();
+        }
+        
+        leaseWatch.add(leaderElector);
+        return leaseWatch;
+    }
+
+    
+    /**
+     * Unregister a leader elector: the watch of its namespace is stopped with the last leader elector
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void unregister(KubernetesLeaderElectorImpl leaderElector) {
+        final KubernetesLeaseWatch leaseWatch = leaderElector.getLeaseWatch();
+        if (leaseWatch != null && leaseWatch.remove(leaderElector)) {
+            leaseWatchMap.remove(leaseWatch.getNamespace(), leaseWatch);
+        }
+    }
+}
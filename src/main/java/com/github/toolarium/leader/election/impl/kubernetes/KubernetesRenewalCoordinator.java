@@ -0,0 +1,97 @@
+/*
+ * KubernetesRenewalCoordinator.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Coordinates the renewals of all kubernetes leader electors of the jvm: the leader electors with the same retry period 
+ * are renewed in one scheduled pass of a {@link KubernetesRenewalGroup} over the shared api client instead of one 
+ * loop per election.
+ * 
+ * @author patrick
+ */
+public final class KubernetesRenewalCoordinator {
+    private final Map<Duration, KubernetesRenewalGroup> renewalGroupMap;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final KubernetesRenewalCoordinator INSTANCE = new KubernetesRenewalCoordinator();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private KubernetesRenewalCoordinator() {
+        renewalGroupMap = new ConcurrentHashMap<Duration, KubernetesRenewalGroup>();
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static KubernetesRenewalCoordinator getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * Get the number of renewal groups, one per retry period
+     *
+     * @return the number of renewal groups
+     */
+    public int size() {
+        return renewalGroupMap.size();
+    }
+
+    
+    /**
+     * Register a leader elector: its lock is acquired immediately and renewed with its group
+     *
+     * @param leaderElector the leader elector
+     * @return the renewal group of the leader elector
+     */
+    synchronized KubernetesRenewalGroup register(KubernetesLeaderElectorImpl leaderElector) {
+        final Duration retryPeriod = leaderElector.getConfiguration().getRetryPeriod();
+        KubernetesRenewalGroup renewalGroup = renewalGroupMap.get(retryPeriod);
+        if (renewalGroup == null) {
+            renewalGroup = new KubernetesRenewalGroup(retryPeriod);
+            renewalGroup.setScheduledFuture(LeaderElectionFactory.getInstance().getScheduler().scheduleWithFixedDelay(renewalGroup::run, retryPeriod, retryPeriod));
+            renewalGroupMap.put(retryPeriod, renewalGroup);
+        }
+        
+        renewalGroup.add(leaderElector);
+        
+        // the first decision doesn't wait for the next pass
+        LeaderElectionFactory.getInstance().getScheduler().execute(leaderElector::runElection);
+        return renewalGroup;
+    }
+
+    
+    /**
+     * Unregister a leader elector
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void unregister(KubernetesLeaderElectorImpl leaderElector) {
+        final KubernetesRenewalGroup renewalGroup = leaderElector.getRenewalGroup();
+        if (renewalGroup != null && renewalGroup.remove(leaderElector)) {
+            renewalGroupMap.remove(renewalGroup.getRetryPeriod(), renewalGroup);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * KubernetesRenewalGroup.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * The kubernetes leader electors with the same retry period. The kubernetes api has no batched update, therefore every 
+ * retry period the group runs one pass which renews the leases of its holders, each in its own fixed slot: the requests
+ * don't burst into the rate limit of the api server and are sent in parallel over the shared api client. A holder keeps
+ * its slot as long as it holds the lease, two renewals are one retry period apart. The random slot of a holder is 
+ * bounded by the renew deadline minus the retry period and the renewal latency (and by half of the retry period): also
+ * the first renewal after the acquisition starts within the renew deadline. The followers don't get a slot, they 
+ * attempt at their own adaptive delay (see {@link com.github.toolarium.leader.election.impl.RenewalBackoff}).
+ * 
+ * @author patrick
+ */
+class KubernetesRenewalGroup {
+    private final Duration retryPeriod;
+    private final List<KubernetesLeaderElectorImpl> leaderElectorList;
+    private final Map<KubernetesLeaderElectorImpl, Long> slotMap;
+    private ScheduledFuture<?> scheduledFuture;
+
+    
+    /**
+     * Constructor for KubernetesRenewalGroup
+     *
+     * @param retryPeriod the retry period
+     */
+    KubernetesRenewalGroup(Duration retryPeriod) {
+        this.retryPeriod = retryPeriod;
+        this.leaderElectorList = new ArrayList<KubernetesLeaderElectorImpl>();
+        this.slotMap = new HashMap<KubernetesLeaderElectorImpl, Long>();
+        this.scheduledFuture = null;
+    }
+
+    
+    /**
+     * Get the retry period
+     *
+     * @return the retry period
+     */
+    Duration getRetryPeriod() {
+        return retryPeriod;
+    }
+
+    
+    /**
+     * Set the scheduled future of the pass
+     *
+     * @param scheduledFuture the scheduled future
+     */
+    synchronized void setScheduledFuture(ScheduledFuture<?> scheduledFuture) {
+        this.scheduledFuture = scheduledFuture;
+    }
+
+    
+    /**
+     * Add a leader elector
+     *
+     * @param leaderElector the leader elector
+     */
+    synchronized void add(KubernetesLeaderElectorImpl leaderElector) {
+        leaderElectorList.add(leaderElector);
+    }
+
+    
+    /**
+     * Remove a leader elector
+     *
+     * @param leaderElector the leader elector
+     * @return true if the group is empty
+     */
+    synchronized boolean remove(KubernetesLeaderElectorImpl leaderElector) {
+        leaderElectorList.remove(leaderElector);
+        slotMap.remove(leaderElector);
+        if (leaderElectorList.isEmpty() && scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        
+        return leaderElectorList.isEmpty();
+    }
+
+    
+    /**
+     * Run a pass: every holder of a lease renews in its slot, the elections run on the workers of the scheduler. A holder
+     * is sorted by the observed lease and not by its local leadership: a holder which stepped down locally renews in its
+     * slot as well and doesn't take the backoff of a follower. A follower runs its election in case its next attempt is
+     * due within this pass, a watching follower when the observed lock expires within this pass. A leader elector which 
+     * gets closed meanwhile skips its election.
+     */
+    void run() {
+        final long nowNanos = System.nanoTime();
+        final Map<KubernetesLeaderElectorImpl, Long> passMap = new LinkedHashMap<KubernetesLeaderElectorImpl, Long>();
+        final List<KubernetesLeaderElectorImpl> followerList = new ArrayList<KubernetesLeaderElectorImpl>();
+        final List<KubernetesLeaderElectorImpl> watchingList = new ArrayList<KubernetesLeaderElectorImpl>();
+        synchronized (this) {
+            for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                if (leaderElector.holdsLease(nowNanos)) {
+                    passMap.put(leaderElector, getSlotNanos(leaderElector));
+                } else {
+                    slotMap.remove(leaderElector);
+                    if (leaderElector.isWatching()) {
+                        watchingList.add(leaderElector);
+                    } else {
+                        followerList.add(leaderElector);
+                    }
+                }
+            }
+        }
+        
+        final ILeaderElectionScheduler scheduler = LeaderElectionFactory.getInstance().getScheduler();
+        for (Map.Entry<KubernetesLeaderElectorImpl, Long> entry : passMap.entrySet()) {
+            schedule(scheduler, entry.getKey(), entry.getValue());
+        }
+        
+        for (KubernetesLeaderElectorImpl leaderElector : followerList) {
+            final long delayNanos = leaderElector.takeNextAttempt(nowNanos, retryPeriod.toNanos());
+            if (delayNanos >= 0) {
+                schedule(scheduler, leaderElector, delayNanos);
+            }
+        }
+        
+        for (KubernetesLeaderElectorImpl leaderElector : watchingList) {
+            final long expiryDelayNanos = leaderElector.getObservedExpiryDelayNanos(nowNanos);
+            if (expiryDelayNanos < retryPeriod.toNanos()) {
+                schedule(scheduler, leaderElector, Math.max(0, expiryDelayNanos));
+            }
+        }
+    }
+
+    
+    /**
+     * Get the slot of a holder within the pass, it is kept as long as it holds the lease and fits in its slot window
+     *
+     * @param leaderElector the leader elector
+     * @return the delay of the slot in nanoseconds
+     */
+    private long getSlotNanos(KubernetesLeaderElectorImpl leaderElector) {
+        final long retryPeriodNanos = retryPeriod.toNanos();
+        final long marginNanos = leaderElector.getConfiguration().getRenewDeadline().toNanos() - retryPeriodNanos - leaderElector.getRenewalLatencyNanos();
+        final long windowNanos = Math.max(0, Math.min(retryPeriodNanos / 2, marginNanos));
+        
+        Long slotNanos = slotMap.get(leaderElector);
+        if (slotNanos == null || slotNanos.longValue() > windowNanos) {
+            slotNanos = 0L;
+            if (windowNanos > 0) {
+                slotNanos = ThreadLocalRandom.current().nextLong(windowNanos + 1);
+            }
+            
+            slotMap.put(leaderElector, slotNanos);
+        }
+        
+        return slotNanos.longValue();
+    }
+
+    
+    /**
+     * Schedule the election of a leader elector, it runs on a worker of the scheduler
+     *
+     * @param scheduler the scheduler
+     * @param leaderElector the leader elector
+     * @param delayNanos the delay in nanoseconds
+     */
+    private void schedule(ILeaderElectionScheduler scheduler, KubernetesLeaderElectorImpl leaderElector, long delayNanos) {
+        if (delayNanos <= 0) {
+            scheduler.execute(leaderElector::runElection);
+        } else {
+            scheduler.schedule(() -> scheduler.execute(leaderElector::runElection), Duration.ofNanos(delayNanos));
+        }
+    }
+}
@@ -5,22 +5,43 @@
  */
 package com.github.toolarium.leader.election.impl.kubernetes;
 
+import com.github.toolarium.leader.election.dto.KubernetesLockType;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import io.kubernetes.client.extended.leaderelection.Lock;
 import io.kubernetes.client.extended.leaderelection.resourcelock.EndpointsLock;
+import io.kubernetes.client.extended.leaderelection.resourcelock.LeaseLock;
+import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.util.Config;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
- * Kubernetes util
+ * Kubernetes util. The result of the availability detection is cached per namespace and lock type for the 
+ * {@link #setAvailabilityTimeToLive(Duration) time to live}, therefore only the first elector pays the network round trip.
  * 
  * @author patrick
  */
 public final class KubernetesUtil {
     private static final Logger LOG = LoggerFactory.getLogger(KubernetesUtil.class);
+    private static final Duration DEFAULT_AVAILABILITY_TIME_TO_LIVE = Duration.ofMinutes(5);
+    private static final ThreadLocal<Integer> RESPONSE_CODE = ThreadLocal.withInitial(() -> 0);
+    private static final Interceptor RESPONSE_CODE_INTERCEPTOR = new ResponseCodeInterceptor();
+    private final Map<String, Availability> availabilityMap;
     private boolean checkEnvironmentVariables;
     private boolean checkEndpoint;
+    private volatile Duration availabilityTimeToLive;
+    private volatile Boolean hasKubernetesEnvironmentVariables;
+    private volatile ApiClient apiClient;
     
 
     /**
@@ -37,8 +58,11 @@ public final class KubernetesUtil {
      * Constructor
      */
     private KubernetesUtil() {
+        availabilityMap = new ConcurrentHashMap<String, Availability>();
         checkEnvironmentVariables = true;
         checkEndpoint = true;
+        availabilityTimeToLive = DEFAULT_AVAILABILITY_TIME_TO_LIVE;
+        hasKubernetesEnvironmentVariables = null;
     }
 
     
@@ -59,6 +83,18 @@ public final class KubernetesUtil {
      * @return true if kubernetes environment is available
      */
     public boolean isAvailable(LeaderElectionInformation leaderElectionInformation) {
+        return isAvailable(leaderElectionInformation, KubernetesLockType.LEASE);
+    }
+
+    
+    /**
+     * Check if kubernetes is available
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param kubernetesLockType the kubernetes lock type
+     * @return true if kubernetes environment is available
+     */
+    public boolean isAvailable(LeaderElectionInformation leaderElectionInformation, KubernetesLockType kubernetesLockType) {
         
         if (checkEnvironmentVariables) {
             if (!hasKubernetesEnvironmentVariables()) {
@@ -67,7 +103,15 @@ public final class KubernetesUtil {
         }
 
         if (checkEndpoint) {
-            if (!hasEndpoint(leaderElectionInformation)) {
+            final String key = leaderElectionInformation.getNamespace() + "/" + kubernetesLockType;
+            final long now = System.nanoTime();
+            Availability availability = availabilityMap.get(key);
+            if (availability == null || now - availability.getExpiryNanos() >= 0) {
+                availability = new Availability(hasEndpoint(leaderElectionInformation, kubernetesLockType), now + availabilityTimeToLive.toNanos());
+                availabilityMap.put(key, availability);
+            }
+            
+            if (!availability.isAvailable()) {
                 return false;
             }
         }
@@ -76,6 +120,39 @@ public final class KubernetesUtil {
     }
 
     
+    /**
+     * Set the time to live of the cached availability
+     *
+     * @param availabilityTimeToLive the time to live, by default 5 minutes
+     */
+    public void setAvailabilityTimeToLive(Duration availabilityTimeToLive) {
+        if (availabilityTimeToLive == null || availabilityTimeToLive.isNegative()) {
+            throw new IllegalArgumentException("Invalid time to live!");
+        }
+        
+        this.availabilityTimeToLive = availabilityTimeToLive;
+    }
+
+    
+    /**
+     * Invalidate the cached availability
+     */
+    public void invalidate() {
+        availabilityMap.clear();
+        hasKubernetesEnvironmentVariables = null;
+    }
+
+    
+    /**
+     * Invalidate the cached availability of a namespace
+     *
+     * @param namespace the namespace
+     */
+    public void invalidate(String namespace) {
+        availabilityMap.keySet().removeIf(key -> key.startsWith(namespace + "/"));
+    }
+
+    
     /**
      * Check kubernetes endpoint
      *
@@ -93,18 +170,117 @@ public final class KubernetesUtil {
      * @return true if kubernetes environment is available
      */
     public boolean hasEndpoint(LeaderElectionInformation leaderElectionInformation) {
+        return hasEndpoint(leaderElectionInformation, KubernetesLockType.LEASE);
+    }
+
+    
+    /**
+     * Check if kubernetes is available: the lock resource can be read or doesn't exist yet.
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param kubernetesLockType the kubernetes lock type
+     * @return true if kubernetes environment is available
+     */
+    public boolean hasEndpoint(LeaderElectionInformation leaderElectionInformation, KubernetesLockType kubernetesLockType) {
         try {
-            final EndpointsLock lock = new EndpointsLock(leaderElectionInformation.getNamespace(), leaderElectionInformation.getName(), leaderElectionInformation.getIdentity());
-            lock.get();
+            createLock(leaderElectionInformation, kubernetesLockType).get();
             return true;
         } catch (ApiException e) {
+            if (e.getCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                // the api is available, the lock will be created by the first candidate
+                return true;
+            }
+            
             LOG.debug("Could not connect to kubernetes (http-code [" + e.getCode() + "]): " + e.getMessage());
+        } catch (IOException e) {
+            LOG.debug("Could not connect to kubernetes: " + e.getMessage());
         }
         
         return false;
     }
 
     
+    /**
+     * Create the lock of a leader election
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param kubernetesLockType the kubernetes lock type
+     * @return the lock
+     * @throws IOException in case the api client can not be created
+     */
+    public Lock createLock(LeaderElectionInformation leaderElectionInformation, KubernetesLockType kubernetesLockType) throws IOException {
+        final String namespace = leaderElectionInformation.getNamespace();
+        final String name = leaderElectionInformation.getName();
+        final String identity = leaderElectionInformation.getIdentity();
+        
+        final ApiClient client = getApiClient();
+        recordResponseCode(client);
+        
+        if (kubernetesLockType == KubernetesLockType.ENDPOINTS) {
+            return new EndpointsLock(namespace, name, identity, client);
+        }
+        
+        return new LeaseLock(namespace, name, identity, client);
+    }
+
+    
+    /**
+     * Get the http-code of the last request of the current thread through the api client of a lock. The locks report 
+     * a failed create or update only as false, the http-code tells if the api server throttles or fails.
+     *
+     * @return the http-code or 0 in case the last request got no response (or there was no request)
+     */
+    public int getResponseCode() {
+        return RESPONSE_CODE.get();
+    }
+
+    
+    /**
+     * Get the api client which is shared by all kubernetes leader electors. By default it is created from the environment.
+     *
+     * @return the api client
+     * @throws IOException in case the api client can not be created
+     */
+    public ApiClient getApiClient() throws IOException {
+        ApiClient result = apiClient;
+        if (result == null) {
+            synchronized (this) {
+                if (apiClient == null) {
+                    apiClient = Config.defaultClient();
+                }
+                
+                result = apiClient;
+            }
+        }
+        
+        return result;
+    }
+
+    
+    /**
+     * Set the api client which is shared by all kubernetes leader electors
+     *
+     * @param apiClient the api client or null to create it from the environment
+     */
+    public void setApiClient(ApiClient apiClient) {
+        this.apiClient = apiClient;
+    }
+
+    
+    /**
+     * Record the http-code of the requests through the api client, see {@link #getResponseCode()}
+     *
+     * @param client the api client
+     */
+    private synchronized void recordResponseCode(ApiClient client) {
+        final OkHttpClient httpClient = client.getHttpClient();
+        if (!httpClient.interceptors().contains(RESPONSE_CODE_INTERCEPTOR)) {
+            // the new http client shares the connection pool and the dispatcher
+            client.setHttpClient(httpClient.newBuilder().addInterceptor(RESPONSE_CODE_INTERCEPTOR).build());
+        }
+    }
+
+    
     /**
      * Check kubernetes environment variables
      *
@@ -121,6 +297,11 @@ public final class KubernetesUtil {
      * @return true if kubernetes environment is available
      */
     public boolean hasKubernetesEnvironmentVariables() {
+        final Boolean result = hasKubernetesEnvironmentVariables;
+        if (result != null) {
+            return result.booleanValue();
+        }
+
         int counter = 0;
         for (String name : System.getenv().keySet()) {
             /*
@@ -139,6 +320,69 @@ public final class KubernetesUtil {
             }
         }
         
+        hasKubernetesEnvironmentVariables = counter > 0;
         return (counter > 0);       
     }
+
+    
+    /**
+     * Records the http-code of a request in the current thread, the requests of the locks are executed synchronously
+     *
+     * @author patrick
+     */
+    private static class ResponseCodeInterceptor implements Interceptor {
+        /**
+         * @see okhttp3.Interceptor#intercept(okhttp3.Interceptor.Chain)
+         */
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            RESPONSE_CODE.set(0);
+            final Response response = chain.proceed(chain.request());
+            RESPONSE_CODE.set(response.code());
+            return response;
+        }
+    }
+
+    
+    /**
+     * The cached availability
+     * 
+     * @author patrick
+     */
+    private static class Availability {
+        private final boolean isAvailable;
+        private final long expiryNanos;
+        
+
+        /**
+         * Constructor for Availability
+         *
+         * @param isAvailable true if kubernetes is available
+         * @param expiryNanos the expiry in nano time
+         */
+        Availability(boolean isAvailable, long expiryNanos) {
+            this.isAvailable = isAvailable;
+            this.expiryNanos = expiryNanos;
+        }
+
+        
+        /**
+         * Check if kubernetes is available
+         *
+         * @return true if kubernetes is available
+         */
+        boolean isAvailable() {
+            return isAvailable;
+        }
+
+        
+        /**
+         * Get the expiry
+         *
+         * @return the expiry in nano time
+         */
+        long getExpiryNanos() {
+            return expiryNanos;
+        }
+    }
 }
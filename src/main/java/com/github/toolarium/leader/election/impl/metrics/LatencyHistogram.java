@@ -0,0 +1,160 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock-free latency histogram with power of two buckets: the bucket {@code i} counts the values below 
+ * {@code 2^i} nanoseconds. The percentiles are the upper bound of the bucket, at most a factor two above the exact value.
+ * 
+ * @author patrick
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private final AtomicLongArray bucketArray;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    
+    /**
+     * Constructor for LatencyHistogram
+     */
+    public LatencyHistogram() {
+        bucketArray = new AtomicLongArray(BUCKETS);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    
+    /**
+     * Record a value
+     *
+     * @param nanos the value in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        bucketArray.incrementAndGet(Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(value)));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    
+    /**
+     * Get the number of recorded values
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    
+    /**
+     * Get the mean of the recorded values
+     *
+     * @return the mean or {@link Duration#ZERO} if there is no value
+     */
+    public Duration getMean() {
+        final long n = count.sum();
+        if (n == 0) {
+            return Duration.ZERO;
+        }
+        
+        return Duration.ofNanos(sum.sum() / n);
+    }
+
+    
+    /**
+     * Get the maximum of the recorded values
+     *
+     * @return the maximum
+     */
+    public Duration getMax() {
+        return Duration.ofNanos(max.get());
+    }
+
+    
+    /**
+     * Get a percentile of the recorded values
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the upper bound of the percentile or {@link Duration#ZERO} if there is no value
+     * @throws IllegalArgumentException in case of an invalid percentile
+     */
+    public Duration getPercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile [" + percentile + "]!");
+        }
+
+        final long[] buckets = getBuckets();
+        long total = 0;
+        for (long bucket : buckets) {
+            total += bucket;
+        }
+        
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+        
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(max.get(), upperBound(i)));
+            }
+        }
+        
+        return getMax();
+    }
+
+    
+    /**
+     * Get a copy of the bucket counts, the bucket {@code i} counts the values below {@code 2^i} nanoseconds
+     *
+     * @return the bucket counts
+     */
+    public long[] getBuckets() {
+        final long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = bucketArray.get(i);
+        }
+        
+        return result;
+    }
+
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "LatencyHistogram [count=" + getCount() + ", mean=" + getMean() + ", p99=" + getPercentile(99) + ", max=" + getMax() + "]";
+    }
+
+    
+    /**
+     * Get the upper bound of a bucket
+     *
+     * @param bucket the bucket
+     * @return the upper bound in nanoseconds
+     */
+    private static long upperBound(int bucket) {
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        
+        return (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * LeaderElectionMetrics.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.metrics;
+
+import com.github.toolarium.leader.election.ILeaderElectionMetrics;
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+
+/**
+ * The default {@link ILeaderElectionMetrics}: lock-free {@link LeaderElectionStatistics} per candidate of an election 
+ * without any dependency to a metrics library. The statistics can be polled, e.g. to export them as gauges. They are 
+ * removed as soon as the candidate is closed. The statistics are kept by the leader elector of the candidate: two 
+ * candidates with the same leader election information have their own statistics and a later change of the 
+ * information of a candidate doesn't orphan its statistics.
+ * 
+ * @author patrick
+ */
+public final class LeaderElectionMetrics implements ILeaderElectionMetrics {
+    private final Map<ILeaderElector, LeaderElectionStatistics> statisticsMap;
+    private final LongSupplier nanoTimeSupplier;
+
+    
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static class HOLDER {
+        static final LeaderElectionMetrics INSTANCE = new LeaderElectionMetrics();
+    }
+
+    
+    /**
+     * Constructor
+     */
+    private LeaderElectionMetrics() {
+        this(System::nanoTime);
+    }
+
+    
+    /**
+     * Constructor for LeaderElectionMetrics with an own clock, e.g. the virtual clock of a simulation. The candidates 
+     * which report to it must report the time of the same clock.
+     *
+     * @param nanoTimeSupplier the clock of the statistics in nanoseconds
+     */
+    public LeaderElectionMetrics(LongSupplier nanoTimeSupplier) {
+        this.statisticsMap = new ConcurrentHashMap<ILeaderElector, LeaderElectionStatistics>();
+        this.nanoTimeSupplier = nanoTimeSupplier;
+    }
+
+    
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static LeaderElectionMetrics getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionMetrics#onTransition(com.github.toolarium.leader.election.ILeaderElector, com.github.toolarium.leader.election.dto.LeaderElectionInformation, boolean, java.lang.String, long)
+     */
+    @Override
+    public void onTransition(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation, boolean isLeader, String leaderIdentity, long timeNanos) {
+        getOrCreateStatistics(leaderElector).onTransition(isLeader, leaderIdentity, timeNanos);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionMetrics#onRenewal(com.github.toolarium.leader.election.ILeaderElector, com.github.toolarium.leader.election.dto.LeaderElectionInformation, boolean, long)
+     */
+    @Override
+    public void onRenewal(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation, boolean successful, long latencyNanos) {
+        getOrCreateStatistics(leaderElector).onRenewal(successful, latencyNanos);
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionMetrics#onClose(com.github.toolarium.leader.election.ILeaderElector, com.github.toolarium.leader.election.dto.LeaderElectionInformation)
+     */
+    @Override
+    public void onClose(ILeaderElector leaderElector, LeaderElectionInformation leaderElectionInformation) {
+        statisticsMap.remove(leaderElector);
+    }
+
+    
+    /**
+     * Get the statistics of a candidate of an election
+     *
+     * @param leaderElector the leader elector of the candidate
+     * @return the statistics or null if the candidate didn't report yet or is closed
+     */
+    public LeaderElectionStatistics getStatistics(ILeaderElector leaderElector) {
+        return statisticsMap.get(leaderElector);
+    }
+
+    
+    /**
+     * Get the statistics of all candidates
+     *
+     * @return a snapshot of the statistics by the leader elector of the candidate
+     */
+    public Map<ILeaderElector, LeaderElectionStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new HashMap<ILeaderElector, LeaderElectionStatistics>(statisticsMap));
+    }
+
+    
+    /**
+     * Get the statistics of a reporting candidate, they are created with the first report
+     *
+     * @param leaderElector the leader elector of the candidate
+     * @return the statistics
+     */
+    private LeaderElectionStatistics getOrCreateStatistics(ILeaderElector leaderElector) {
+        LeaderElectionStatistics statistics = statisticsMap.get(leaderElector);
+        if (statistics == null) {
+            statistics = statisticsMap.computeIfAbsent(leaderElector, k -> new LeaderElectionStatistics(nanoTimeSupplier.getAsLong(), nanoTimeSupplier));
+        }
+        
+        return statistics;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * LeaderElectionStatistics.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.metrics;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+/**
+ * The lock-free statistics of one candidate of an election. The transitions of an election are reported in order 
+ * by one thread at a time, all values can be read concurrently.
+ * 
+ * @author patrick
+ */
+public class LeaderElectionStatistics {
+    private final LongAdder electedCount;
+    private final LongAdder revokedCount;
+    private final LongAdder leaderChangedCount;
+    private final LongAdder renewalCount;
+    private final LongAdder failedRenewalCount;
+    private final LatencyHistogram renewalLatency;
+    private final LatencyHistogram failoverDuration;
+    private final LongSupplier nanoTimeSupplier;
+    private volatile Period leadershipPeriod;
+    private volatile Period leaderlessPeriod;
+    private volatile String leaderIdentity;
+    private volatile boolean hadLeader;
+
+    
+    /**
+     * Constructor for LeaderElectionStatistics
+     *
+     * @param timeNanos the {@link System#nanoTime()} of the creation, there is no known leader until the first transition
+     */
+    public LeaderElectionStatistics(long timeNanos) {
+        this(timeNanos, System::nanoTime);
+    }
+
+    
+    /**
+     * Constructor for LeaderElectionStatistics with an own clock, e.g. the virtual clock of a simulation
+     *
+     * @param timeNanos the time of the creation on the given clock, there is no known leader until the first transition
+     * @param nanoTimeSupplier the clock of the reported transitions in nanoseconds
+     */
+    public LeaderElectionStatistics(long timeNanos, LongSupplier nanoTimeSupplier) {
+        this.nanoTimeSupplier = nanoTimeSupplier;
+        electedCount = new LongAdder();
+        revokedCount = new LongAdder();
+        leaderChangedCount = new LongAdder();
+        renewalCount = new LongAdder();
+        failedRenewalCount = new LongAdder();
+        renewalLatency = new LatencyHistogram();
+        failoverDuration = new LatencyHistogram();
+        leadershipPeriod = new Period(0, Period.NOT_RUNNING);
+        leaderlessPeriod = new Period(0, timeNanos);
+        leaderIdentity = null;
+        hadLeader = false;
+    }
+
+    
+    /**
+     * Record a transition
+     *
+     * @param isLeader true if the candidate is in lead
+     * @param leaderIdentity the identity of the current leader or null if there is no known leader
+     * @param timeNanos the {@link System#nanoTime()} of the transition
+     */
+    public void onTransition(boolean isLeader, String leaderIdentity, long timeNanos) {
+        final boolean wasLeader = leadershipPeriod.isRunning();
+        if (!wasLeader && isLeader) {
+            electedCount.increment();
+            leadershipPeriod = leadershipPeriod.start(timeNanos);
+        } else if (wasLeader && !isLeader) {
+            revokedCount.increment();
+            leadershipPeriod = leadershipPeriod.stop(timeNanos);
+        }
+        
+        final boolean hasLeader = isLeader || leaderIdentity != null;
+        if (hasLeader && leaderlessPeriod.isRunning()) {
+            // a gap after a known leader is a failover, the gap after the start is not
+            if (hadLeader) {
+                failoverDuration.record(timeNanos - leaderlessPeriod.getSinceNanos());
+            }
+
+            leaderlessPeriod = leaderlessPeriod.stop(timeNanos);
+        } else if (!hasLeader && !leaderlessPeriod.isRunning()) {
+            leaderlessPeriod = leaderlessPeriod.start(timeNanos);
+        }
+        
+        if (leaderIdentity != null && !Objects.equals(this.leaderIdentity, leaderIdentity)) {
+            if (this.leaderIdentity != null) {
+                leaderChangedCount.increment();
+            }
+            
+            this.leaderIdentity = leaderIdentity;
+        }
+        
+        hadLeader = hadLeader || hasLeader;
+    }
+
+    
+    /**
+     * Record a renewal
+     *
+     * @param successful true if the lease is held after the renewal
+     * @param latencyNanos the duration of the renewal in nanoseconds
+     */
+    public void onRenewal(boolean successful, long latencyNanos) {
+        renewalCount.increment();
+        renewalLatency.record(latencyNanos);
+        if (!successful) {
+            failedRenewalCount.increment();
+        }
+    }
+
+    
+    /**
+     * Get the number of times the candidate got in lead
+     *
+     * @return the number of times the candidate got in lead
+     */
+    public long getElectedCount() {
+        return electedCount.sum();
+    }
+
+    
+    /**
+     * Get the number of times the candidate lost the lead
+     *
+     * @return the number of times the candidate lost the lead
+     */
+    public long getRevokedCount() {
+        return revokedCount.sum();
+    }
+
+    
+    /**
+     * Get the number of observed leader changes (flaps), the first known leader is not counted
+     *
+     * @return the number of observed leader changes
+     */
+    public long getLeaderChangedCount() {
+        return leaderChangedCount.sum();
+    }
+
+    
+    /**
+     * Get the number of renewals
+     *
+     * @return the number of renewals
+     */
+    public long getRenewalCount() {
+        return renewalCount.sum();
+    }
+
+    
+    /**
+     * Get the number of failed renewals
+     *
+     * @return the number of failed renewals
+     */
+    public long getFailedRenewalCount() {
+        return failedRenewalCount.sum();
+    }
+
+    
+    /**
+     * Get the renewal latency histogram
+     *
+     * @return the renewal latency histogram
+     */
+    public LatencyHistogram getRenewalLatency() {
+        return renewalLatency;
+    }
+
+    
+    /**
+     * Get the histogram of the failover durations: the time without any known leader after a leader was known
+     *
+     * @return the failover duration histogram
+     */
+    public LatencyHistogram getFailoverDuration() {
+        return failoverDuration;
+    }
+
+    
+    /**
+     * Get the total time in lead, including the current leadership
+     *
+     * @return the total time in lead
+     */
+    public Duration getTimeInLeadership() {
+        return Duration.ofNanos(leadershipPeriod.getTotalNanos(nanoTimeSupplier.getAsLong()));
+    }
+
+    
+    /**
+     * Get the total time without any known leader, including the current gap
+     *
+     * @return the total time without any known leader
+     */
+    public Duration getTimeWithoutLeader() {
+        return Duration.ofNanos(leaderlessPeriod.getTotalNanos(nanoTimeSupplier.getAsLong()));
+    }
+
+    
+    /**
+     * Get the identity of the last known leader
+     *
+     * @return the identity of the last known leader or null
+     */
+    public String getLeaderIdentity() {
+        return leaderIdentity;
+    }
+
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "LeaderElectionStatistics [electedCount=" + getElectedCount() + ", revokedCount=" + getRevokedCount() + ", leaderChangedCount=" + getLeaderChangedCount() 
+            + ", renewalCount=" + getRenewalCount() + ", failedRenewalCount=" + getFailedRenewalCount() + ", renewalLatency=" + renewalLatency 
+            + ", failoverDuration=" + failoverDuration + ", timeInLeadership=" + getTimeInLeadership() + ", timeWithoutLeader=" + getTimeWithoutLeader() + "]";
+    }
+
+    
+    /**
+     * Immutable accumulated time of a state: a reader sees the accumulated time and the start of the running period consistently.
+     * 
+     * @author patrick
+     */
+    private static final class Period {
+        static final long NOT_RUNNING = Long.MIN_VALUE;
+        private final long accumulatedNanos;
+        private final long sinceNanos;
+
+        
+        /**
+         * Constructor for Period
+         *
+         * @param accumulatedNanos the accumulated time of the finished periods
+         * @param sinceNanos the start of the running period or {@link #NOT_RUNNING}
+         */
+        Period(long accumulatedNanos, long sinceNanos) {
+            this.accumulatedNanos = accumulatedNanos;
+            this.sinceNanos = sinceNanos;
+        }
+
+        
+        /**
+         * Check if a period is running
+         *
+         * @return true if a period is running
+         */
+        boolean isRunning() {
+            return sinceNanos != NOT_RUNNING;
+        }
+
+        
+        /**
+         * Get the start of the running period
+         *
+         * @return the start of the running period
+         */
+        long getSinceNanos() {
+            return sinceNanos;
+        }
+
+        
+        /**
+         * Start a period
+         *
+         * @param timeNanos the start time
+         * @return the new period
+         */
+        Period start(long timeNanos) {
+            return new Period(accumulatedNanos, timeNanos);
+        }
+
+        
+        /**
+         * Stop the running period
+         *
+         * @param timeNanos the stop time
+         * @return the new period
+         */
+        Period stop(long timeNanos) {
+            return new Period(accumulatedNanos + Math.max(0, timeNanos - sinceNanos), NOT_RUNNING);
+        }
+
+        
+        /**
+         * Get the total time
+         *
+         * @param nowNanos the current time
+         * @return the total time including the running period
+         */
+        long getTotalNanos(long nowNanos) {
+            if (!isRunning()) {
+                return accumulatedNanos;
+            }
+            
+            return accumulatedNanos + Math.max(0, nowNanos - sinceNanos);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * LeaderElectionSimulation.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.simulation;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.metrics.LeaderElectionMetrics;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * An in-process simulation of leader elections: the leases are kept in memory, the time is virtual and the election
+ * loops are run by a deterministic scheduler, see {@link SimulationScheduler}. A simulation with the same seed and the
+ * same steps has always the same result, thousands of leader electors run faster than real time.
+ *
+ * <p>The simulation models a lease based election, see {@link SimulatedLeaderElectorImpl}. It tests the leader 
+ * election contract (e.g. the local step-down and the epochs), not the election loops of the real backends.</p>
+ *
+ * <p>The faults are injected by the identity of a candidate: a paused candidate (e.g. a garbage collection pause)
+ * skips its election loop, a partitioned candidate can't reach the leases. A leader steps down locally after the
+ * renew deadline of its last renewal, the lease expires after the timeout.</p>
+ *
+ * <p>The leader electors of a simulation report to the own metrics of the simulation, on its virtual clock, and not 
+ * to the shared metrics of the {@link com.github.toolarium.leader.election.LeaderElectionFactory}.</p>
+ *
+ * @author patrick
+ */
+public class LeaderElectionSimulation {
+    private final SimulationScheduler scheduler;
+    private final Random random;
+    private final Map<String, SimulatedLease> leaseMap;
+    private final Map<String, Long> pausedUntilMap;
+    private final Set<String> partitionedSet;
+    private final LeaderElectionMetrics metrics;
+
+    
+    /**
+     * Constructor for LeaderElectionSimulation
+     *
+     * @param seed the seed of the random jitter
+     */
+    public LeaderElectionSimulation(long seed) {
+        this.scheduler = new SimulationScheduler(Instant.EPOCH);
+        this.random = new Random(seed);
+        this.leaseMap = new HashMap<String, SimulatedLease>();
+        this.pausedUntilMap = new HashMap<String, Long>();
+        this.partitionedSet = new HashSet<String>();
+        this.metrics = new LeaderElectionMetrics(scheduler::nanoTime);
+    }
+
+    
+    /**
+     * Create a leader elector of the simulation. Its election loop starts with a random delay within the retry period.
+     *
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @return the leader elector
+     * @throws IOException in case of an i/o error
+     */
+    public SimulatedLeaderElectorImpl createLeaderElector(LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration)
+        throws IOException {
+        return new SimulatedLeaderElectorImpl(this, leaderElectionInformation, leaderElectionConfiguration);
+    }
+
+    
+    /**
+     * Get the scheduler of the simulation
+     *
+     * @return the scheduler
+     */
+    public SimulationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    
+    /**
+     * Get the metrics of the simulation, the statistics use the virtual clock
+     *
+     * @return the metrics
+     */
+    public LeaderElectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    
+    /**
+     * Run the simulation for a duration of virtual time
+     *
+     * @param duration the duration
+     */
+    public void runFor(Duration duration) {
+        scheduler.runFor(duration);
+    }
+
+    
+    /**
+     * Run the simulation until the condition is fulfilled or the timeout of virtual time elapsed
+     *
+     * @param condition the condition
+     * @param timeout the timeout
+     * @return true if the condition is fulfilled
+     */
+    public boolean runUntil(BooleanSupplier condition, Duration timeout) {
+        return scheduler.runUntil(condition, timeout);
+    }
+
+    
+    /**
+     * Pause a candidate: its election loops are skipped for the duration
+     *
+     * @param identity the identity of the candidate
+     * @param duration the duration of the pause
+     */
+    public void pause(String identity, Duration duration) {
+        pausedUntilMap.put(identity, scheduler.nanoTime() + duration.toNanos());
+    }
+
+    
+    /**
+     * Check if a candidate is paused
+     *
+     * @param identity the identity of the candidate
+     * @return true if it is paused
+     */
+    public boolean isPaused(String identity) {
+        final Long pausedUntilNanos = pausedUntilMap.get(identity);
+        if (pausedUntilNanos == null) {
+            return false;
+        }
+        
+        if (scheduler.nanoTime() - pausedUntilNanos >= 0) {
+            pausedUntilMap.remove(identity);
+            return false;
+        }
+        
+        return true;
+    }
+
+    
+    /**
+     * Partition candidates: they can't reach the leases until the partition is healed
+     *
+     * @param identities the identities of the candidates
+     */
+    public void partition(String... identities) {
+        for (String identity : identities) {
+            partitionedSet.add(identity);
+        }
+    }
+
+    
+    /**
+     * Heal all partitions
+     */
+    public void heal() {
+        partitionedSet.clear();
+    }
+
+    
+    /**
+     * Check if a candidate is partitioned
+     *
+     * @param identity the identity of the candidate
+     * @return true if it is partitioned
+     */
+    public boolean isPartitioned(String identity) {
+        return partitionedSet.contains(identity);
+    }
+
+    
+    /**
+     * Get the identity of the lease holder of an election
+     *
+     * @param electionName the election name, see {@link LeaderElectionInformation#getElectionName()}
+     * @return the identity of the lease holder or null
+     */
+    public String getLeaseHolder(String electionName) {
+        final SimulatedLease lease = leaseMap.get(electionName);
+        if (lease == null) {
+            return null;
+        }
+        
+        return lease.getHolderIdentity();
+    }
+
+    
+    /**
+     * Get the number of leases
+     *
+     * @return the number of leases
+     */
+    public int size() {
+        return leaseMap.size();
+    }
+
+    
+    /**
+     * Get the lease of an election, it is created on the first access
+     *
+     * @param electionName the election name
+     * @return the lease
+     */
+    SimulatedLease getLease(String electionName) {
+        return leaseMap.computeIfAbsent(electionName, k -> new SimulatedLease());
+    }
+
+    
+    /**
+     * Get a random jitter
+     *
+     * @param boundNanos the exclusive upper bound in nanoseconds
+     * @return the jitter in nanoseconds
+     */
+    long nextJitterNanos(long boundNanos) {
+        if (boundNanos <= 0) {
+            return 0;
+        }
+        
+        return Math.floorMod(random.nextLong(), boundNanos);
+    }
+}
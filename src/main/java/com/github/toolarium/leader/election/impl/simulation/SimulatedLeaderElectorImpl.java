@@ -0,0 +1,158 @@
+/*
+ * SimulatedLeaderElectorImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.simulation;
+
+import com.github.toolarium.leader.election.ILeaderElectionMetrics;
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+
+/**
+ * Implements the {@link ILeaderElector} of a {@link LeaderElectionSimulation}. It is a simplified model of a lease
+ * based election on an in-memory lease, not the election loop of the kubernetes backend: every retry period the 
+ * leader renews the lease and a follower tries to acquire it. The lease deadline, the leader observations and the 
+ * metrics use the virtual clock of the simulation. The renewal groups, the backoff of the followers and the lease
+ * watch of the kubernetes backend are not part of the model.
+ *
+ * @author patrick
+ */
+public class SimulatedLeaderElectorImpl extends AbstractLeaderElectorImpl {
+    private final LeaderElectionSimulation simulation;
+    private final ScheduledFuture<?> scheduledFuture;
+
+    
+    /**
+     * Constructor for SimulatedLeaderElectorImpl
+     *
+     * @param simulation the simulation
+     * @param leaderElectionInformation the leader election information
+     * @param leaderElectionConfiguration the leader election configuration
+     * @throws IOException in case of an i/o error
+     */
+    SimulatedLeaderElectorImpl(LeaderElectionSimulation simulation, LeaderElectionInformation leaderElectionInformation, LeaderElectionConfiguration leaderElectionConfiguration)
+        throws IOException {
+        super(leaderElectionInformation, leaderElectionConfiguration);
+        this.simulation = simulation;
+        
+        // the candidates are spread over the retry period
+        final Duration retryPeriod = leaderElectionConfiguration.getRetryPeriod();
+        this.scheduledFuture = getScheduler().scheduleWithFixedDelay(this::runElection, Duration.ofNanos(simulation.nextJitterNanos(retryPeriod.toNanos())), retryPeriod);
+    }
+
+    
+    /**
+     * The election loop is started by the constructor, the simulation is not assigned before
+     *
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#init()
+     */
+    @Override
+    protected void init() {
+        // NOP
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+     */
+    @Override
+    protected void release() {
+        scheduledFuture.cancel(false);
+        if (!simulation.isPartitioned(getIdentity())) {
+            simulation.getLease(getLeaderElectionInformation().getElectionName()).release(getIdentity());
+        }
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#getScheduler()
+     */
+    @Override
+    protected ILeaderElectionScheduler getScheduler() {
+        return simulation.getScheduler();
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#nanoTime()
+     */
+    @Override
+    protected long nanoTime() {
+        return simulation.getScheduler().nanoTime();
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#currentTime()
+     */
+    @Override
+    protected Instant currentTime() {
+        return simulation.getScheduler().currentTime();
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#getMetrics()
+     */
+    @Override
+    protected ILeaderElectionMetrics getMetrics() {
+        return simulation.getMetrics();
+    }
+
+    
+    /**
+     * Get the identity of this candidate
+     *
+     * @return the identity
+     */
+    String getIdentity() {
+        return getLeaderElectionInformation().getIdentity();
+    }
+
+    
+    /**
+     * Run the election: acquire or renew the lease. A paused candidate skips it, a partitioned candidate fails.
+     */
+    protected void runElection() {
+        if (isClosed() || simulation.isPaused(getIdentity())) {
+            return;
+        }
+        
+        final boolean wasLeader = isLeader();
+        if (simulation.isPartitioned(getIdentity())) {
+            if (wasLeader) {
+                recordRenewal(false, 0);
+            }
+            
+            // isLeader() checks locally the renew deadline of the last successful renewal, the current leader is not known
+            if (isLeaseExpired()) {
+                setLeader(false, null, getEpoch());
+            }
+            
+            return;
+        }
+        
+        final long nowNanos = nanoTime();
+        final SimulatedLease lease = simulation.getLease(getLeaderElectionInformation().getElectionName());
+        if (lease.tryAcquireOrRenew(getIdentity(), nowNanos, getLeaderElectionConfiguration().getTimeout().toNanos())) {
+            recordRenewal(true, 0);
+            setLeaseRenewed(nowNanos);
+            setLeader(true, getIdentity(), lease.getTransitions());
+        } else {
+            if (wasLeader) {
+                recordRenewal(false, 0);
+            }
+            
+            setLeader(false, lease.getHolderIdentity(), lease.getTransitions());
+        }
+    }
+}
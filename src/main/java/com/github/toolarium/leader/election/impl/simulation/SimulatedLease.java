@@ -0,0 +1,91 @@
+/*
+ * SimulatedLease.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.simulation;
+
+
+/**
+ * The lease of a simulated election, an in-memory lease modelled on a kubernetes lease: a candidate acquires it if it
+ * is released or expired, the holder renews it. The number of transitions is the epoch of the leadership. Unlike a
+ * kubernetes lease it expires by its renew time on the one virtual clock of the simulation, a candidate doesn't 
+ * observe the expiry on its own clock.
+ *
+ * @author patrick
+ */
+class SimulatedLease {
+    private String holderIdentity;
+    private long renewTimeNanos;
+    private long leaseDurationNanos;
+    private long transitions;
+
+    
+    /**
+     * Constructor for SimulatedLease
+     */
+    SimulatedLease() {
+        this.holderIdentity = null;
+        this.renewTimeNanos = 0;
+        this.leaseDurationNanos = 0;
+        this.transitions = 0;
+    }
+
+    
+    /**
+     * Try to acquire or renew the lease
+     *
+     * @param identity the identity of the candidate
+     * @param nowNanos the virtual time
+     * @param durationNanos the lease duration
+     * @return true if the candidate holds the lease
+     */
+    boolean tryAcquireOrRenew(String identity, long nowNanos, long durationNanos) {
+        if (identity.equals(holderIdentity)) {
+            renewTimeNanos = nowNanos;
+            return true;
+        }
+        
+        if (holderIdentity != null && nowNanos - renewTimeNanos < leaseDurationNanos) {
+            return false;
+        }
+        
+        holderIdentity = identity;
+        renewTimeNanos = nowNanos;
+        leaseDurationNanos = durationNanos;
+        transitions++;
+        return true;
+    }
+
+    
+    /**
+     * Release the lease in case the candidate holds it
+     *
+     * @param identity the identity of the candidate
+     */
+    void release(String identity) {
+        if (identity.equals(holderIdentity)) {
+            holderIdentity = null;
+        }
+    }
+
+    
+    /**
+     * Get the identity of the holder
+     *
+     * @return the identity of the holder or null if the lease is released
+     */
+    String getHolderIdentity() {
+        return holderIdentity;
+    }
+
+    
+    /**
+     * Get the number of transitions
+     *
+     * @return the number of transitions
+     */
+    long getTransitions() {
+        return transitions;
+    }
+}
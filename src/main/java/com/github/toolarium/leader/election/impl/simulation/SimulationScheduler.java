@@ -0,0 +1,318 @@
+/*
+ * SimulationScheduler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.simulation;
+
+import com.github.toolarium.leader.election.ILeaderElectionScheduler;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A deterministic {@link ILeaderElectionScheduler} with a virtual clock: the tasks run on the thread which drives
+ * the simulation ({@link #runFor(Duration)} or {@link #runUntil(BooleanSupplier, Duration)}), ordered by their
+ * virtual time and on the same time by the order they were scheduled. The virtual time advances from task to task,
+ * without any waiting. It is not thread safe, the simulation must be driven by one thread.
+ *
+ * @author patrick
+ */
+public final class SimulationScheduler implements ILeaderElectionScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(SimulationScheduler.class);
+    private final Instant startTime;
+    private final PriorityQueue<SimulationTask> taskQueue;
+    private long nanoTime;
+    private long sequence;
+
+    
+    /**
+     * Constructor for SimulationScheduler
+     *
+     * @param startTime the start time of the virtual clock
+     */
+    public SimulationScheduler(Instant startTime) {
+        this.startTime = startTime;
+        this.taskQueue = new PriorityQueue<SimulationTask>();
+        this.nanoTime = 0;
+        this.sequence = 0;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#scheduleWithFixedDelay(java.lang.Runnable, java.time.Duration, java.time.Duration)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration initialDelay, Duration delay) {
+        if (delay.isNegative() || delay.isZero()) {
+            throw new IllegalArgumentException("Invalid delay. It must be positive!");
+        }
+        
+        return add(new SimulationTask(task, nanoTime + initialDelay.toNanos(), delay.toNanos()));
+    }
+
+    
+    /**
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#schedule(java.lang.Runnable, java.time.Duration)
+     */
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Duration delay) {
+        return add(new SimulationTask(task, nanoTime + delay.toNanos(), 0));
+    }
+
+    
+    /**
+     * Execute a task at the current virtual time, after the tasks which are already due
+     *
+     * @see com.github.toolarium.leader.election.ILeaderElectionScheduler#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable task) {
+        add(new SimulationTask(task, nanoTime, 0));
+    }
+
+    
+    /**
+     * Get the virtual time since the start of the simulation
+     *
+     * @return the virtual time in nanoseconds
+     */
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    
+    /**
+     * Get the current virtual time
+     *
+     * @return the current virtual time
+     */
+    public Instant currentTime() {
+        return startTime.plusNanos(nanoTime);
+    }
+
+    
+    /**
+     * Get the number of scheduled tasks, including the cancelled tasks which are not yet removed
+     *
+     * @return the number of scheduled tasks
+     */
+    public int size() {
+        return taskQueue.size();
+    }
+
+    
+    /**
+     * Run all tasks which are due within the duration, afterwards the virtual clock is advanced by the duration
+     *
+     * @param duration the duration
+     */
+    public void runFor(Duration duration) {
+        final long endNanos = nanoTime + duration.toNanos();
+        while (runNext(endNanos)) {
+            // NOP
+        }
+        
+        nanoTime = endNanos;
+    }
+
+    
+    /**
+     * Run the tasks until the condition is fulfilled or the timeout elapsed. The condition is checked before every task,
+     * the virtual clock stays at the time the condition was fulfilled.
+     *
+     * @param condition the condition
+     * @param timeout the timeout
+     * @return true if the condition is fulfilled
+     */
+    public boolean runUntil(BooleanSupplier condition, Duration timeout) {
+        final long endNanos = nanoTime + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (!runNext(endNanos)) {
+                nanoTime = endNanos;
+                return condition.getAsBoolean();
+            }
+        }
+        
+        return true;
+    }
+
+    
+    /**
+     * Add a task
+     *
+     * @param task the task
+     * @return the task
+     */
+    private SimulationTask add(SimulationTask task) {
+        task.sequence = sequence++;
+        taskQueue.add(task);
+        return task;
+    }
+
+    
+    /**
+     * Run the next task which is due until the end time
+     *
+     * @param endNanos the end time in nanoseconds
+     * @return true if a task was taken from the queue
+     */
+    private boolean runNext(long endNanos) {
+        final SimulationTask task = taskQueue.peek();
+        if (task == null || task.timeNanos > endNanos) {
+            return false;
+        }
+        
+        taskQueue.poll();
+        if (task.cancelled) {
+            return true;
+        }
+        
+        nanoTime = task.timeNanos;
+        try {
+            task.runnable.run();
+        } catch (RuntimeException e) {
+            // like a scheduled executor: an exception suppresses the subsequent executions
+            LOG.warn("Error occured in simulated task: " + e.getMessage(), e);
+            task.cancelled = true;
+        }
+        
+        if (task.delayNanos > 0 && !task.cancelled) {
+            task.timeNanos = nanoTime + task.delayNanos;
+            add(task);
+        } else {
+            task.done = true;
+        }
+        
+        return true;
+    }
+
+    
+    /**
+     * A task of the simulation, a cancelled task is removed when it is due
+     *
+     * @author patrick
+     */
+    private final class SimulationTask implements ScheduledFuture<Object> {
+        private final Runnable runnable;
+        private final long delayNanos;
+        private long timeNanos;
+        private long sequence;
+        private boolean cancelled;
+        private boolean done;
+
+        
+        /**
+         * Constructor for SimulationTask
+         *
+         * @param runnable the runnable
+         * @param timeNanos the virtual time of the first execution
+         * @param delayNanos the delay between two executions or 0 for a one-shot task
+         */
+        SimulationTask(Runnable runnable, long timeNanos, long delayNanos) {
+            this.runnable = runnable;
+            this.timeNanos = timeNanos;
+            this.delayNanos = delayNanos;
+            this.sequence = 0;
+            this.cancelled = false;
+            this.done = false;
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(timeNanos - nanoTime, TimeUnit.NANOSECONDS);
+        }
+
+        
+        /**
+         * Compare by the virtual time and on the same time by the order of scheduling
+         *
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof SimulationTask) {
+                final SimulationTask otherTask = (SimulationTask) other;
+                if (timeNanos != otherTask.timeNanos) {
+                    return Long.compare(timeNanos, otherTask.timeNanos);
+                }
+                
+                return Long.compare(sequence, otherTask.sequence);
+            }
+            
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#cancel(boolean)
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (cancelled || done) {
+                return false;
+            }
+            
+            cancelled = true;
+            return true;
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#isCancelled()
+         */
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#isDone()
+         */
+        @Override
+        public boolean isDone() {
+            return cancelled || done;
+        }
+
+        
+        /**
+         * The simulation runs on the calling thread, so there is no waiting: the task has to be done
+         *
+         * @see java.util.concurrent.Future#get()
+         */
+        @Override
+        public Object get() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            
+            if (!done) {
+                throw new IllegalStateException("The task is not done, the simulation has to run first!");
+            }
+            
+            return null;
+        }
+
+        
+        /**
+         * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return get();
+        }
+    }
+}
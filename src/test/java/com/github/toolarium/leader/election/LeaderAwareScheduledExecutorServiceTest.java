@@ -0,0 +1,234 @@
+/*
+ * LeaderAwareScheduledExecutorServiceTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link LeaderAwareScheduledExecutorService}.
+ *
+ * @author patrick
+ */
+public class LeaderAwareScheduledExecutorServiceTest {
+    
+    /**
+     * Test that the periodic tasks run only in lead
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testPeriodicTask() throws IOException, InterruptedException {
+        final TestLeaderElectorImpl leaderElector = new TestLeaderElectorImpl();
+        try (LeaderAwareScheduledExecutorService executorService = new LeaderAwareScheduledExecutorService(leaderElector, 1)) {
+            final AtomicInteger counter = new AtomicInteger();
+            final ScheduledFuture<?> future = executorService.scheduleAtFixedRate(counter::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+            
+            // a follower has no wakeups
+            Thread.sleep(200);
+            assertEquals(0, counter.get());
+            assertEquals(Long.MAX_VALUE, future.getDelay(TimeUnit.NANOSECONDS));
+            
+            leaderElector.changeLeader(true);
+            Thread.sleep(200);
+            assertTrue(counter.get() > 0);
+            
+            leaderElector.changeLeader(false);
+            Thread.sleep(50);
+            final int count = counter.get();
+            Thread.sleep(200);
+            assertEquals(count, counter.get());
+            assertFalse(future.isDone());
+            
+            // the periodic task starts again with the next lead
+            leaderElector.changeLeader(true);
+            Thread.sleep(200);
+            assertTrue(counter.get() > count);
+            
+            assertTrue(future.cancel(false));
+            Thread.sleep(50);
+            final int cancelledCount = counter.get();
+            Thread.sleep(100);
+            assertEquals(cancelledCount, counter.get());
+        }
+    }
+
+    
+    /**
+     * Test that a running task gets interrupted and a waiting one-shot task cancelled on the loss of the lead
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testRevoke() throws IOException, InterruptedException {
+        final TestLeaderElectorImpl leaderElector = new TestLeaderElectorImpl();
+        try (LeaderAwareScheduledExecutorService executorService = new LeaderAwareScheduledExecutorService(leaderElector, 2)) {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            final Future<?> running = executorService.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            final ScheduledFuture<?> waiting = executorService.schedule(() -> { }, 10, TimeUnit.SECONDS);
+            
+            leaderElector.changeLeader(true);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            
+            leaderElector.changeLeader(false);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            assertTrue(running.isCancelled());
+            assertTrue(waiting.isCancelled());
+        }
+    }
+
+    
+    /**
+     * Test that the tasks run in daemon threads
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     * @throws ExecutionException In case of an execution error
+     * @throws TimeoutException In case of a timeout
+     */
+    @Test
+    public void testDaemonThreads() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final TestLeaderElectorImpl leaderElector = new TestLeaderElectorImpl();
+        try (LeaderAwareScheduledExecutorService executorService = new LeaderAwareScheduledExecutorService(leaderElector, 1)) {
+            leaderElector.changeLeader(true);
+            assertTrue(executorService.submit(() -> Thread.currentThread().isDaemon()).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    
+    /**
+     * Test that a one-shot task submitted by a follower waits for the lead
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     * @throws ExecutionException In case of an execution error
+     * @throws TimeoutException In case of a timeout
+     */
+    @Test
+    public void testOneShotTask() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        final TestLeaderElectorImpl leaderElector = new TestLeaderElectorImpl();
+        try (LeaderAwareScheduledExecutorService executorService = new LeaderAwareScheduledExecutorService(leaderElector, 1)) {
+            final Future<String> future = executorService.submit(() -> "done");
+            Thread.sleep(100);
+            assertFalse(future.isDone());
+            
+            leaderElector.changeLeader(true);
+            assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    
+    /**
+     * Test that close waits for the running tasks within the grace period before the lead is released
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCloseGracePeriod() throws IOException, InterruptedException {
+        final TestLeaderElectorImpl leaderElector = new TestLeaderElectorImpl();
+        final LeaderAwareScheduledExecutorService executorService = new LeaderAwareScheduledExecutorService(leaderElector, 1, Duration.ofSeconds(5));
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean leaderAtEnd = new AtomicBoolean();
+        final Future<?> future = executorService.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            
+            leaderAtEnd.set(leaderElector.isLeader());
+        });
+        
+        leaderElector.changeLeader(true);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executorService.close();
+        
+        // the task finished in lead, afterwards the lead was released
+        assertTrue(leaderAtEnd.get());
+        assertFalse(leaderElector.isLeader());
+        assertTrue(executorService.isTerminated());
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertThrows(RejectedExecutionException.class, () -> executorService.submit(() -> { }));
+    }
+
+    
+    /**
+     * Leader elector without any backend, the leadership is set by the test.
+     *
+     * @author patrick
+     */
+    private static class TestLeaderElectorImpl extends AbstractLeaderElectorImpl {
+        
+        /**
+         * Constructor for TestLeaderElectorImpl
+         *
+         * @throws IOException in case of an i/o error
+         */
+        TestLeaderElectorImpl() throws IOException {
+            super(new LeaderElectionInformation("test", "executor", "member"), new LeaderElectionConfiguration(10));
+        }
+
+        
+        /**
+         * Change the leadership
+         *
+         * @param isLeader true to get in lead
+         */
+        void changeLeader(boolean isLeader) {
+            setLeader(isLeader, getLeaderElectionInformation().getIdentity());
+        }
+
+        
+        /**
+         * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#init()
+         */
+        @Override
+        protected void init() {
+            // NOP
+        }
+
+        
+        /**
+         * @see com.github.toolarium.leader.election.impl.AbstractLeaderElectorImpl#release()
+         */
+        @Override
+        protected void release() {
+            // NOP
+        }
+    }
+}
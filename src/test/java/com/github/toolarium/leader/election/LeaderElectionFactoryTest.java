@@ -5,19 +5,42 @@
  */
 package com.github.toolarium.leader.election;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
 import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.dto.JGroupStack;
+import com.github.toolarium.leader.election.impl.LeaderElectionScheduler;
+import com.github.toolarium.leader.election.impl.jgroup.JGroupChannelRegistry;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jgroups.ObjectMessage;
+import org.jgroups.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * 
  * @author patrick
  */
 public class LeaderElectionFactoryTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LeaderElectionFactoryTest.class);
 
     /**
      * Test the jgroup
@@ -30,9 +53,7 @@ public class LeaderElectionFactoryTest {
         
         ILeaderElector el = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("namespace", "name", "test"), new LeaderElectionConfiguration(2));
 
-        assertFalse(el.isLeader());
-        Thread.sleep(200);
-
+        // the initial view is accepted while joining the cluster
         assertTrue(el.isLeader());
         Thread.sleep(2000);
         assertTrue(el.isLeader());
@@ -40,4 +61,295 @@ public class LeaderElectionFactoryTest {
         assertTrue(el.isLeader());
         
     }
+
+    
+    /**
+     * Test the leader election listener: the listeners are notified in order outside of the locks of the leader elector,
+     * a slow listener doesn't block the close of its leader elector
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testLeaderElectionListener() throws IOException, InterruptedException {
+        final List<String> eventList = new CopyOnWriteArrayList<String>();
+        final CountDownLatch electedLatch = new CountDownLatch(1);
+        final CountDownLatch closedLatch = new CountDownLatch(1);
+        final CountDownLatch revokedLatch = new CountDownLatch(1);
+        
+        ILeaderElector el = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("namespace", "listener", "test"), new LeaderElectionConfiguration(2));
+        el.addLeaderElectionListener(new ILeaderElectionListener() {
+            @Override
+            public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                electedLatch.countDown();
+                
+                // a slow listener which waits until its leader elector is closed
+                try {
+                    if (closedLatch.await(10, TimeUnit.SECONDS)) {
+                        eventList.add("elected");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                eventList.add("revoked");
+                revokedLatch.countDown();
+            }
+
+            @Override
+            public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                // NOP
+            }
+        });
+
+        // already in lead: the listener gets notified after the registration
+        assertTrue(electedLatch.await(10, TimeUnit.SECONDS));
+        
+        // the close doesn't wait for the running listener, the revocation is notified afterwards
+        el.close();
+        closedLatch.countDown();
+        assertTrue(revokedLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("elected", "revoked"), eventList);
+    }
+
+    
+    /**
+     * Test that the elections of a member share one channel and that there is one leader per election
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testSharedChannel() throws IOException, InterruptedException {
+        final int channels = JGroupChannelRegistry.getInstance().size();
+        try (ILeaderElector el1 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("shared", "job1", "member1"), new LeaderElectionConfiguration(2));
+             ILeaderElector el2 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("shared", "job2", "member1"), new LeaderElectionConfiguration(2))) {
+            assertEquals(channels + 1, JGroupChannelRegistry.getInstance().size());
+            assertTrue(el1.isLeader());
+            assertTrue(el2.isLeader());
+    
+            // a second member joins the first election: wait until it knows the leader and its announced epoch
+            try (ILeaderElector el3 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("shared", "job1", "member2"), new LeaderElectionConfiguration(2))) {
+                assertEquals(channels + 2, JGroupChannelRegistry.getInstance().size());
+                for (int i = 0; i < 50 && (el3.getLeader() == null || el3.getEpoch() != el1.getEpoch()); i++) {
+                    Thread.sleep(100);
+                }
+                
+                assertTrue(el1.isLeader());
+                assertFalse(el3.isLeader());
+                
+                // the follower knows the leader and its physical address
+                assertNotNull(el3.getLeader());
+                assertEquals("member1", el3.getLeader().getIdentity());
+                assertNotNull(el3.getLeader().getAddress());
+                assertNotNull(el3.getLeader().getObservedTimestamp());
+                assertEquals(el1.getLeader().getAddress(), el3.getLeader().getAddress());
+                
+                // the epoch is decided and announced by the leader, all members report the same epoch
+                assertTrue(el1.getEpoch() > 0);
+                assertEquals(el1.getEpoch(), el3.getEpoch());
+            }
+        }
+    }
+
+    
+    /**
+     * Test that an election can be registered only once on a shared channel and that all elections of a shared 
+     * channel must have the same protocol stack
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testSharedChannelRegistration() throws IOException {
+        final int channels = JGroupChannelRegistry.getInstance().size();
+        try (ILeaderElector el1 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("registration", "job", "member1"), new LeaderElectionConfiguration(2))) {
+            assertTrue(el1.isLeader());
+            
+            // the same election of the same member is rejected, the first elector keeps the lead
+            assertThrows(IOException.class, () -> LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("registration", "job", "member1"), new LeaderElectionConfiguration(2)));
+            assertTrue(el1.isLeader());
+            
+            // another protocol stack can't share the channel
+            final LeaderElectionConfiguration configuration = new LeaderElectionConfiguration(2);
+            configuration.setJGroupStack(JGroupStack.TCP);
+            assertThrows(IOException.class, () -> LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("registration", "job2", "member1"), configuration));
+            assertEquals(channels + 1, JGroupChannelRegistry.getInstance().size());
+            
+            // an announcement with an invalid priority is dropped
+            JGroupChannelRegistry.getInstance().getElectionChannel("registration", "member1", new LeaderElectionConfiguration(2)).receive(new ObjectMessage(null, "A:job\tinvalid\tL\t42").setSrc(UUID.randomUUID()));
+            assertTrue(el1.isLeader());
+        }
+        
+        assertEquals(channels, JGroupChannelRegistry.getInstance().size());
+    }
+
+    
+    /**
+     * Test the priority of the candidates: a slightly better candidate doesn't take over the lead, a much better does
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testPriority() throws IOException, InterruptedException {
+        try (ILeaderElector el1 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("priority", "job", "member1"), createPriorityConfiguration(0))) {
+            assertTrue(el1.isLeader());
+            
+            // within the hysteresis the leader keeps the lead
+            try (ILeaderElector el2 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("priority", "job", "member2"), createPriorityConfiguration(5))) {
+                for (int i = 0; i < 50 && el2.isLeader(); i++) {
+                    Thread.sleep(100);
+                }
+                
+                Thread.sleep(500);
+                assertTrue(el1.isLeader());
+                assertFalse(el2.isLeader());
+                
+                // the best candidate takes over with a higher epoch
+                final long epoch = el1.getEpoch();
+                try (ILeaderElector el3 = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("priority", "job", "member3"), createPriorityConfiguration(20))) {
+                    for (int i = 0; i < 50 && el1.isLeader(); i++) {
+                        Thread.sleep(100);
+                    }
+                    
+                    assertFalse(el1.isLeader());
+                    assertFalse(el2.isLeader());
+                    assertTrue(el3.isLeader());
+                    assertTrue(el3.getEpoch() > epoch);
+                }
+                
+                // the leader leaves: the remaining candidate with the highest priority takes over
+                for (int i = 0; i < 50 && !el2.isLeader(); i++) {
+                    Thread.sleep(100);
+                }
+                
+                assertTrue(el2.isLeader());
+                assertFalse(el1.isLeader());
+            }
+        }
+    }
+
+    
+    /**
+     * Test the partitioned leader election
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testPartitioned() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration configuration = new LeaderElectionConfiguration(2);
+        configuration.setPartitions(16);
+        IPartitionedLeaderElector el1 = LeaderElectionFactory.getInstance().getPartitionedLeaderElection(new LeaderElectionInformation("partitioned", "job", "member1"), configuration);
+        assertEquals(16, el1.ownedPartitions().size());
+        assertTrue(el1.isLeaderFor("key"));
+
+        IPartitionedLeaderElector el2 = LeaderElectionFactory.getInstance().getPartitionedLeaderElection(new LeaderElectionInformation("partitioned", "job", "member2"), configuration);
+        for (int i = 0; i < 50 && (el1.ownedPartitions().size() + el2.ownedPartitions().size() != 16 || el2.ownedPartitions().isEmpty()); i++) {
+            Thread.sleep(100);
+        }
+
+        // the partitions are disjoint and cover all partitions
+        final Set<Integer> partitions = new HashSet<Integer>(el1.ownedPartitions());
+        partitions.addAll(el2.ownedPartitions());
+        assertEquals(16, partitions.size());
+        assertEquals(16, el1.ownedPartitions().size() + el2.ownedPartitions().size());
+        assertFalse(el2.ownedPartitions().isEmpty());
+        assertTrue(el1.isLeaderFor("key") != el2.isLeaderFor("key"));
+        assertEquals(el1.getPartition("key"), el2.getPartition("key"));
+    }
+
+    
+    /**
+     * Test the number of threads doesn't grow with the number of leader electors: the elections share the channel, the 
+     * announcements are sent by the bounded workers of the scheduler
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testThreadCount() throws IOException {
+        final List<ILeaderElector> leaderElectorList = new ArrayList<ILeaderElector>();
+        leaderElectorList.add(LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("scalability", "job-0", "member"), new LeaderElectionConfiguration(2)));
+        final int threads = Thread.activeCount();
+        
+        for (int i = 1; i <= 500; i++) {
+            leaderElectorList.add(LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("scalability", "job-" + i, "member"), new LeaderElectionConfiguration(2)));
+        }
+        
+        for (ILeaderElector leaderElector : leaderElectorList) {
+            assertTrue(leaderElector.isLeader());
+        }
+        
+        assertTrue(Thread.activeCount() - threads <= LeaderElectionScheduler.WORKER_THREADS, "Threads before: " + threads + ", after: " + Thread.activeCount());
+    }
+
+    
+    /**
+     * Test the handover on close: the leader leaves the view and the follower takes over immediately
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCloseHandover() throws IOException, InterruptedException {
+        final int channels = JGroupChannelRegistry.getInstance().size();
+        ILeaderElector leader = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("handover", "job", "member1"), new LeaderElectionConfiguration(2));
+        ILeaderElector follower = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("handover", "job", "member2"), new LeaderElectionConfiguration(2));
+        for (int i = 0; i < 50 && follower.isLeader(); i++) {
+            Thread.sleep(100);
+        }
+        
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertEquals(channels + 2, JGroupChannelRegistry.getInstance().size());
+        
+        final long start = System.nanoTime();
+        leader.close();
+        assertFalse(leader.isLeader());
+        while (!follower.isLeader() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            Thread.sleep(5);
+        }
+
+        final long handoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("Handover after " + handoverMillis + "ms.");
+        assertTrue(follower.isLeader());
+        assertTrue(handoverMillis < 2000);
+
+        // the channel without any election left the cluster
+        assertEquals(channels + 1, JGroupChannelRegistry.getInstance().size());
+        follower.close();
+        assertEquals(channels, JGroupChannelRegistry.getInstance().size());
+    }
+
+    
+    /**
+     * Create a configuration with a jgroup priority and a hysteresis of 10
+     *
+     * @param priority the priority
+     * @return the configuration
+     */
+    private LeaderElectionConfiguration createPriorityConfiguration(int priority) {
+        final LeaderElectionConfiguration configuration = new LeaderElectionConfiguration(2);
+        configuration.setJGroupPriority(priority);
+        configuration.setJGroupPriorityHysteresis(10);
+        return configuration;
+    }
+
+    
+    /**
+     * Test the asynchronous construction
+     *
+     * @throws InterruptedException In case of an interruption
+     * @throws ExecutionException In case of an construction error
+     * @throws TimeoutException In case of a timeout
+     */
+    @Test
+    public void testAsync() throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<ILeaderElector> future = LeaderElectionFactory.getInstance().getLeaderElectionAsync(new LeaderElectionInformation("async", "name", "test"), new LeaderElectionConfiguration(2));
+        ILeaderElector el = future.get(30, TimeUnit.SECONDS);
+        assertTrue(el.isLeader());
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * LeaderElectionSchedulerTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionBackend;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.file.FileLeaderElectorImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link LeaderElectionScheduler}.
+ *  
+ * @author patrick
+ */
+public class LeaderElectionSchedulerTest {
+    private static final int WARMUP_LEADER_ELECTORS = 10;
+    private static final int LEADER_ELECTORS = 300;
+    private static final Duration CONFIGURATION_RETRY_PERIOD = new LeaderElectionConfiguration(2).getRetryPeriod();
+
+    
+    /**
+     * Test the number of threads doesn't depend on the number of leader electors: the threads of a few leader 
+     * electors are counted, then many more are started. Each runs its own election loop on the shared scheduler.
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testThreadCount() throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("leader-election");
+        final List<ILeaderElector> leaderElectorList = new ArrayList<ILeaderElector>();
+        try {
+            startLeaderElectors(leaderElectorList, directory, WARMUP_LEADER_ELECTORS);
+            final int threads = Thread.activeCount();
+            
+            startLeaderElectors(leaderElectorList, directory, LEADER_ELECTORS);
+            assertEquals(WARMUP_LEADER_ELECTORS + LEADER_ELECTORS, leaderElectorList.size());
+            
+            // let all election loops run a few times
+            Thread.sleep(3 * CONFIGURATION_RETRY_PERIOD.toMillis());
+            for (ILeaderElector leaderElector : leaderElectorList) {
+                assertTrue(leaderElector.isLeader());
+            }
+            
+            final int addedThreads = Thread.activeCount() - threads;
+            assertTrue(addedThreads <= LeaderElectionScheduler.SCHEDULER_THREADS, "Threads before: " + threads + ", added: " + addedThreads);
+            assertTrue(countSchedulerThreads() <= LeaderElectionScheduler.SCHEDULER_THREADS);
+        } finally {
+            for (ILeaderElector leaderElector : leaderElectorList) {
+                leaderElector.close();
+            }
+        }
+    }
+
+    
+    /**
+     * Test a single execution
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        LeaderElectionScheduler.getInstance().schedule(latch::countDown, Duration.ofMillis(10));
+        LeaderElectionScheduler.getInstance().execute(latch::countDown);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, latch.getCount());
+    }
+
+    
+    /**
+     * Start leader electors of the file backend, each of its own election
+     *
+     * @param leaderElectorList the started leader electors
+     * @param directory the directory of the lease files
+     * @param count the number of leader electors to start
+     * @throws IOException In case of an i/o error
+     */
+    private void startLeaderElectors(List<ILeaderElector> leaderElectorList, Path directory, int count) throws IOException {
+        final int offset = leaderElectorList.size();
+        for (int i = 0; i < count; i++) {
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+            leaderElectionConfiguration.setBackend(LeaderElectionBackend.FILE);
+            leaderElectionConfiguration.setFileLeaseDirectory(directory.toString());
+            leaderElectorList.add(new FileLeaderElectorImpl(new LeaderElectionInformation("scheduler", "job-" + (offset + i), "member"), leaderElectionConfiguration));
+        }
+    }
+
+    
+    /**
+     * Count the scheduler threads
+     *
+     * @return the number of scheduler threads
+     */
+    private int countSchedulerThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(LeaderElectionScheduler.SCHEDULER_THREAD_PREFIX)) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+}
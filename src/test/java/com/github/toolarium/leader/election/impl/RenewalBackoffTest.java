@@ -0,0 +1,94 @@
+/*
+ * RenewalBackoffTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link RenewalBackoff}.
+ *
+ * @author patrick
+ */
+public class RenewalBackoffTest {
+    private static final Duration BASE = Duration.ofMillis(100);
+    private static final Duration MAX = Duration.ofSeconds(10);
+
+    
+    /**
+     * Test the delay of successful attempts: exactly the base delay
+     */
+    @Test
+    public void testSuccess() {
+        final RenewalBackoff backoff = new RenewalBackoff(BASE, MAX);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(BASE.toNanos(), backoff.nextDelayNanos(false));
+        }
+        
+        assertEquals(0, backoff.getFailures());
+    }
+
+    
+    /**
+     * Test the jitter of failed attempts: the delays of the first failure are spread between two and three base delays
+     */
+    @Test
+    public void testJitter() {
+        long minNanos = Long.MAX_VALUE;
+        long maxNanos = 0;
+        for (int i = 0; i < 1000; i++) {
+            final RenewalBackoff backoff = new RenewalBackoff(BASE, MAX);
+            final long delayNanos = backoff.nextDelayNanos(true);
+            assertTrue(delayNanos >= 2 * BASE.toNanos());
+            assertTrue(delayNanos <= 3 * BASE.toNanos());
+            minNanos = Math.min(minNanos, delayNanos);
+            maxNanos = Math.max(maxNanos, delayNanos);
+        }
+        
+        // the delays are spread
+        assertTrue(maxNanos - minNanos > BASE.toNanos() / 2);
+    }
+
+    
+    /**
+     * Test the exponential backoff of failed attempts up to the maximum and the reset by a successful attempt
+     */
+    @Test
+    public void testBackoff() {
+        final RenewalBackoff backoff = new RenewalBackoff(BASE, MAX);
+        long lowerNanos = BASE.toNanos();
+        for (int i = 1; i <= 20; i++) {
+            lowerNanos = Math.min(2 * lowerNanos, MAX.toNanos());
+            final long delayNanos = backoff.nextDelayNanos(true);
+            assertTrue(delayNanos >= lowerNanos);
+            assertTrue(delayNanos <= MAX.toNanos());
+            assertEquals(i, backoff.getFailures());
+        }
+        
+        assertEquals(MAX.toNanos(), backoff.nextDelayNanos(true));
+        
+        assertEquals(BASE.toNanos(), backoff.nextDelayNanos(false));
+        assertEquals(0, backoff.getFailures());
+        
+        // after the reset the backoff starts again with the first failure
+        assertTrue(backoff.nextDelayNanos(true) <= 3 * BASE.toNanos());
+    }
+
+    
+    /**
+     * Test the validation of the delays
+     */
+    @Test
+    public void testInvalidDelay() {
+        assertThrows(IllegalArgumentException.class, () -> new RenewalBackoff(Duration.ZERO, MAX));
+        assertThrows(IllegalArgumentException.class, () -> new RenewalBackoff(MAX, BASE));
+    }
+}
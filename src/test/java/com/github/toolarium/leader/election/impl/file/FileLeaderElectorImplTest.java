@@ -0,0 +1,229 @@
+/*
+ * FileLeaderElectorImplTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.LeaderElectionFactory;
+import com.github.toolarium.leader.election.dto.LeaderElectionBackend;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link FileLeaderElectorImpl}.
+ *  
+ * @author patrick
+ */
+public class FileLeaderElectorImplTest {
+    private static final Logger LOG = LoggerFactory.getLogger(FileLeaderElectorImplTest.class);
+    private static final String LEADER_MESSAGE = "LEADER";
+
+    
+    /**
+     * Test the election of two candidates
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testLeader() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = createConfiguration(Files.createTempDirectory("leader-election"));
+        try (ILeaderElector leader = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("file", "job", "member1"), leaderElectionConfiguration)) {
+            assertTrue(leader instanceof FileLeaderElectorImpl);
+            assertTrue(await(leader, 5000));
+            try (ILeaderElector follower = LeaderElectionFactory.getInstance().getLeaderElection(new LeaderElectionInformation("file", "job", "member2"), leaderElectionConfiguration)) {
+                Thread.sleep(500);
+                assertTrue(leader.isLeader());
+                assertFalse(follower.isLeader());
+                assertEquals(1L, leader.getEpoch());
+                assertEquals(1L, follower.getEpoch());
+                assertEquals(1, FileLeaseRegistry.getInstance().size());
+                
+                // the follower knows the leader from the holder record
+                assertEquals("member1", leader.getLeader().getIdentity());
+                assertEquals("member1", follower.getLeader().getIdentity());
+                assertTrue(Duration.between(follower.getLeader().getObservedTimestamp(), Instant.now()).toMillis() < 1000);
+            }
+            
+            assertNull(leader.getLeader().getAddress());
+        }
+        
+        assertEquals(0, FileLeaseRegistry.getInstance().size());
+    }
+
+    
+    /**
+     * Test the handover on close: the follower takes over with its next attempt
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCloseHandover() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = createConfiguration(Files.createTempDirectory("leader-election"));
+        ILeaderElector leader = new FileLeaderElectorImpl(new LeaderElectionInformation("file", "handover", "member1"), leaderElectionConfiguration);
+        assertTrue(await(leader, 5000));
+        try (ILeaderElector follower = new FileLeaderElectorImpl(new LeaderElectionInformation("file", "handover", "member2"), leaderElectionConfiguration)) {
+            Thread.sleep(300);
+            assertFalse(follower.isLeader());
+            
+            final long start = System.nanoTime();
+            leader.close();
+            assertFalse(leader.isLeader());
+            assertTrue(await(follower, 5000));
+            
+            final long handoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            LOG.info("Handover after " + handoverMillis + "ms.");
+            assertTrue(handoverMillis < FileLeaderElectorImpl.MAX_POLL_INTERVAL.toMillis() + 500);
+            assertEquals(2L, follower.getEpoch());
+        }
+    }
+
+    
+    /**
+     * Test the takeover when the holder process dies: the operating system releases the lock of the killed process
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testHolderProcessDies() throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("leader-election");
+        final ProcessBuilder processBuilder = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), 
+                                                                 "-cp", System.getProperty("java.class.path"), 
+                                                                 LeaseHolder.class.getName(), directory.toString());
+        processBuilder.redirectErrorStream(true);
+        final Process process = processBuilder.start();
+        try {
+            assertTrue(awaitMessage(process, LEADER_MESSAGE));
+            try (ILeaderElector follower = new FileLeaderElectorImpl(new LeaderElectionInformation("file", "process", "member2"), createConfiguration(directory))) {
+                Thread.sleep(300);
+                assertFalse(follower.isLeader());
+                assertEquals(1L, follower.getEpoch());
+                
+                final long start = System.nanoTime();
+                process.destroyForcibly().waitFor();
+                assertTrue(await(follower, 5000));
+                
+                final long takeoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                LOG.info("Takeover after " + takeoverMillis + "ms.");
+                assertTrue(takeoverMillis < FileLeaderElectorImpl.MAX_POLL_INTERVAL.toMillis() + 500);
+                assertEquals(2L, follower.getEpoch());
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    
+    /**
+     * Create a configuration with a timeout which is longer than the test: the takeover must not depend on it
+     *
+     * @param directory the directory of the lease files
+     * @return the configuration
+     */
+    private LeaderElectionConfiguration createConfiguration(Path directory) {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(60));
+        leaderElectionConfiguration.setBackend(LeaderElectionBackend.FILE);
+        leaderElectionConfiguration.setFileLeaseDirectory(directory.toString());
+        return leaderElectionConfiguration;
+    }
+
+    
+    /**
+     * Wait until the process prints the message
+     *
+     * @param process the process
+     * @param message the message
+     * @return true if the message was printed
+     * @throws IOException In case of an i/o error
+     */
+    private boolean awaitMessage(Process process, String message) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        while (line != null) {
+            LOG.debug("Lease holder: " + line);
+            if (message.equals(line.trim())) {
+                return true;
+            }
+
+            line = reader.readLine();
+        }
+        
+        return false;
+    }
+
+    
+    /**
+     * Wait until the leader elector is in lead
+     *
+     * @param leaderElector the leader elector
+     * @param timeoutMillis the timeout in milliseconds
+     * @return true if it is in lead
+     * @throws InterruptedException In case of an interruption
+     */
+    private boolean await(ILeaderElector leaderElector, long timeoutMillis) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (!leaderElector.isLeader() && System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            Thread.sleep(10);
+        }
+        
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * The lease holder process: it takes the lead and waits until it gets killed
+     * 
+     * @author patrick
+     */
+    public static final class LeaseHolder {
+        
+        /**
+         * Constructor for LeaseHolder
+         */
+        private LeaseHolder() {
+        }
+
+        
+        /**
+         * Main
+         *
+         * @param args the directory of the lease files
+         * @throws Exception In case of an error
+         */
+        public static void main(String[] args) throws Exception {
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(60));
+            leaderElectionConfiguration.setFileLeaseDirectory(args[0]);
+            final ILeaderElector leaderElector = new FileLeaderElectorImpl(new LeaderElectionInformation("file", "process", "member1"), leaderElectionConfiguration);
+            while (!leaderElector.isLeader()) {
+                Thread.sleep(10);
+            }
+            
+            System.out.println(LEADER_MESSAGE);
+            System.out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * JdbcLeaderElectorImplTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link JdbcLeaderElectorImpl} against an embedded h2 database.
+ *  
+ * @author patrick
+ */
+public class JdbcLeaderElectorImplTest {
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcLeaderElectorImplTest.class);
+    private AtomicInteger roundTrips;
+
+    
+    /**
+     * Set an in-memory database which counts the round trips
+     */
+    @BeforeEach
+    public void setUp() {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:leader-election-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        roundTrips = new AtomicInteger(0);
+        JdbcUtil.getInstance().setDataSource(wrap(DataSource.class, dataSource, roundTrips));
+    }
+
+    
+    /**
+     * Reset the data source
+     */
+    @AfterEach
+    public void tearDown() {
+        JdbcUtil.getInstance().setDataSource(null);
+    }
+
+    
+    /**
+     * Test the election of two candidates
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testLeader() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(3), Duration.ofSeconds(2), Duration.ofMillis(200));
+        try (ILeaderElector leader = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "job", "member1"), leaderElectionConfiguration)) {
+            assertTrue(await(leader, 5000));
+            try (ILeaderElector follower = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "job", "member2"), leaderElectionConfiguration)) {
+                Thread.sleep(1000);
+                assertTrue(leader.isLeader());
+                assertFalse(follower.isLeader());
+                assertEquals(1L, leader.getEpoch());
+                assertEquals(1L, follower.getEpoch());
+            }
+        }
+    }
+
+    
+    /**
+     * Test the election with a data source which hands out its connections without auto-commit, like many connection 
+     * pools: the leases are persisted and only one candidate is in lead
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     * @throws SQLException In case of a database error
+     */
+    @Test
+    public void testWithoutAutoCommit() throws IOException, InterruptedException, SQLException {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:leader-election-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=500");
+        JdbcUtil.getInstance().setDataSource(withoutAutoCommit(dataSource));
+        
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(3), Duration.ofSeconds(2), Duration.ofMillis(200));
+        try (ILeaderElector leader = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "commit", "member1"), leaderElectionConfiguration)) {
+            assertTrue(await(leader, 5000));
+            try (ILeaderElector follower = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "commit", "member2"), leaderElectionConfiguration)) {
+                Thread.sleep(1000);
+                assertTrue(leader.isLeader());
+                assertFalse(follower.isLeader());
+                
+                // the lease is visible to an other connection
+                try (Connection connection = dataSource.getConnection();
+                     PreparedStatement statement = connection.prepareStatement("SELECT HOLDER FROM " + JdbcUtil.getInstance().getTableName() + " WHERE NAME = ?")) {
+                    statement.setString(1, "jdbc.commit");
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        assertTrue(resultSet.next());
+                        assertEquals("member1", resultSet.getString(1));
+                    }
+                }
+            }
+        }
+    }
+
+    
+    /**
+     * Test that the leases of all elections are renewed with a constant number of round trips
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testBatchedRenewal() throws IOException, InterruptedException {
+        final int elections = 50;
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(3), Duration.ofSeconds(2), Duration.ofMillis(250));
+        final List<ILeaderElector> leaderElectorList = new ArrayList<ILeaderElector>();
+        try {
+            for (int i = 0; i < elections; i++) {
+                leaderElectorList.add(new JdbcLeaderElectorImpl(new LeaderElectionInformation("batch", "job-" + i, "member"), leaderElectionConfiguration));
+            }
+            
+            for (ILeaderElector leaderElector : leaderElectorList) {
+                assertTrue(await(leaderElector, 5000));
+            }
+            
+            // a cycle has two round trips: the batched renewal and the query
+            roundTrips.set(0);
+            final long start = System.nanoTime();
+            Thread.sleep(2500);
+            final long cycles = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / leaderElectionConfiguration.getRetryPeriod().toMillis() + 1;
+            LOG.info("Renewed " + elections + " leases in " + cycles + " cycles with " + roundTrips.get() + " round trips.");
+            assertTrue(roundTrips.get() <= 2 * cycles);
+            assertTrue(roundTrips.get() < elections);
+            
+            for (ILeaderElector leaderElector : leaderElectorList) {
+                assertTrue(leaderElector.isLeader());
+            }
+        } finally {
+            for (ILeaderElector leaderElector : leaderElectorList) {
+                leaderElector.close();
+            }
+        }
+    }
+
+    
+    /**
+     * Test the handover on close: the follower takes over with its next cycle instead of waiting for the timeout
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCloseHandover() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofMillis(200));
+        ILeaderElector leader = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "handover", "member1"), leaderElectionConfiguration);
+        assertTrue(await(leader, 5000));
+        try (ILeaderElector follower = new JdbcLeaderElectorImpl(new LeaderElectionInformation("jdbc", "handover", "member2"), leaderElectionConfiguration)) {
+            Thread.sleep(500);
+            assertFalse(follower.isLeader());
+            
+            final long start = System.nanoTime();
+            leader.close();
+            assertFalse(leader.isLeader());
+            assertTrue(await(follower, 5000));
+            
+            final long handoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            LOG.info("Handover after " + handoverMillis + "ms (retry period " + leaderElectionConfiguration.getRetryPeriod().toMillis() + "ms).");
+            assertTrue(handoverMillis < leaderElectionConfiguration.getRetryPeriod().toMillis() + 500);
+            assertEquals(2L, follower.getEpoch());
+        }
+    }
+
+    
+    /**
+     * Wait until the leader elector is in lead
+     *
+     * @param leaderElector the leader elector
+     * @param timeoutMillis the timeout in milliseconds
+     * @return true if it is in lead
+     * @throws InterruptedException In case of an interruption
+     */
+    private boolean await(ILeaderElector leaderElector, long timeoutMillis) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (!leaderElector.isLeader() && System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            Thread.sleep(10);
+        }
+        
+        return leaderElector.isLeader();
+    }
+
+    
+    /**
+     * Wrap a data source: its connections are handed out without auto-commit
+     *
+     * @param dataSource the data source
+     * @return the wrapped data source
+     */
+    private static DataSource withoutAutoCommit(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(JdbcLeaderElectorImplTest.class.getClassLoader(), new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+            final Object result;
+            try {
+                result = method.invoke(dataSource, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            
+            if (result instanceof Connection) {
+                ((Connection) result).setAutoCommit(false);
+            }
+            
+            return result;
+        });
+    }
+
+    
+    /**
+     * Wrap a jdbc object: the executions of the statements are counted as round trips
+     *
+     * @param <T> the type
+     * @param type the interface
+     * @param target the jdbc object
+     * @param counter the round trip counter
+     * @return the wrapped jdbc object
+     */
+    private static <T> T wrap(Class<T> type, Object target, AtomicInteger counter) {
+        return type.cast(Proxy.newProxyInstance(JdbcLeaderElectorImplTest.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                counter.incrementAndGet();
+            }
+            
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            
+            if (result instanceof Connection) {
+                return wrap(Connection.class, result, counter);
+            } else if (result instanceof PreparedStatement) {
+                return wrap(PreparedStatement.class, result, counter);
+            } else if (result instanceof Statement) {
+                return wrap(Statement.class, result, counter);
+            }
+            
+            return result;
+        }));
+    }
+}
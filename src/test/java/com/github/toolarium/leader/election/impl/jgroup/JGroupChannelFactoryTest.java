@@ -0,0 +1,145 @@
+/*
+ * JGroupChannelFactoryTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.jgroup;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.dto.JGroupStack;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.jgroups.protocols.DISCARD;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.TP;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.ProtocolStack;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link JGroupChannelFactory}: all stacks run in the same jvm on loopback.
+ *  
+ * @author patrick
+ */
+public class JGroupChannelFactoryTest {
+    private static final Logger LOG = LoggerFactory.getLogger(JGroupChannelFactoryTest.class);
+
+    
+    /**
+     * Test the shared loopback preset: the follower takes over after the leader left
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testSharedLoopback() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+        leaderElectionConfiguration.setJGroupStack(JGroupStack.SHARED_LOOPBACK);
+        
+        JGroupLeaderElectorImpl leader = new JGroupLeaderElectorImpl(new LeaderElectionInformation("loopback", "job", "member1"), leaderElectionConfiguration);
+        JGroupLeaderElectorImpl follower = new JGroupLeaderElectorImpl(new LeaderElectionInformation("loopback", "job", "member2"), leaderElectionConfiguration);
+        assertTrue(awaitLeader(leader, follower, 5000));
+        assertFalse(follower.isLeader());
+        
+        leader.getChannel().close();
+        assertTrue(awaitLeader(follower, null, 5000));
+    }
+
+    
+    /**
+     * Test the tcp preset with fast failure detection: a hanging leader is detected by the heartbeats
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void testTcpFastFailureDetection() throws Exception {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+        leaderElectionConfiguration.setJGroupStack(JGroupStack.TCP_FAST);
+        leaderElectionConfiguration.setJGroupBindAddress("127.0.0.1");
+        leaderElectionConfiguration.setJGroupInitialHosts("127.0.0.1[7800]");
+        
+        JGroupLeaderElectorImpl leader = new JGroupLeaderElectorImpl(new LeaderElectionInformation("tcp-fast", "job", "member1"), leaderElectionConfiguration);
+        JGroupLeaderElectorImpl follower = new JGroupLeaderElectorImpl(new LeaderElectionInformation("tcp-fast", "job", "member2"), leaderElectionConfiguration);
+        assertTrue(awaitLeader(leader, follower, 10000));
+
+        // the leader hangs: it doesn't send or receive any message anymore, but its sockets stay open
+        leader.getChannel().getProtocolStack().insertProtocol(new DISCARD().discardAll(true), ProtocolStack.Position.ABOVE, TP.class);
+        final long start = System.nanoTime();
+        assertTrue(awaitLeader(follower, null, 10000));
+        LOG.info("Hanging leader detected after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+        
+        leader.getChannel().close();
+        follower.getChannel().close();
+    }
+
+    
+    /**
+     * Test a jgroup xml configuration
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testXmlConfiguration() throws IOException, InterruptedException {
+        final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+        leaderElectionConfiguration.setJGroupConfiguration(JGroupChannelFactory.SHARED_LOOPBACK_CONFIGURATION);
+        
+        JGroupLeaderElectorImpl leader = new JGroupLeaderElectorImpl(new LeaderElectionInformation("xml", "job", "member1"), leaderElectionConfiguration);
+        JGroupLeaderElectorImpl follower = new JGroupLeaderElectorImpl(new LeaderElectionInformation("xml", "job", "member2"), leaderElectionConfiguration);
+        assertTrue(awaitLeader(leader, follower, 5000));
+    }
+
+    
+    /**
+     * Test a programmatic protocol stack
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testProtocolStackSupplier() throws IOException, InterruptedException {
+        JGroupChannelFactory.getInstance().setProtocolStackSupplier(() -> Arrays.asList(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(), new STABLE(), new GMS()));
+        try {
+            JGroupLeaderElectorImpl leader = new JGroupLeaderElectorImpl(new LeaderElectionInformation("programmatic", "job", "member1"), new LeaderElectionConfiguration(2));
+            JGroupLeaderElectorImpl follower = new JGroupLeaderElectorImpl(new LeaderElectionInformation("programmatic", "job", "member2"), new LeaderElectionConfiguration(2));
+            assertTrue(awaitLeader(leader, follower, 5000));
+        } finally {
+            JGroupChannelFactory.getInstance().setProtocolStackSupplier(null);
+        }
+    }
+
+    
+    /**
+     * Wait until the leader is the only leader
+     *
+     * @param leader the expected leader
+     * @param follower the expected follower or null
+     * @param timeoutMillis the timeout in milliseconds
+     * @return true if the leader is the only leader
+     * @throws InterruptedException In case of an interruption
+     */
+    private boolean awaitLeader(JGroupLeaderElectorImpl leader, JGroupLeaderElectorImpl follower, long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (System.nanoTime() - deadline < 0) {
+            if (leader.isLeader() && (follower == null || !follower.isLeader())) {
+                return true;
+            }
+            
+            Thread.sleep(50);
+        }
+        
+        return false;
+    }
+}
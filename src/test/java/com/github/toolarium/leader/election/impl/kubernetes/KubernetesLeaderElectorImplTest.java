@@ -0,0 +1,711 @@
+/*
+ * KubernetesLeaderElectorImplTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.dto.KubernetesLockType;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.LeaderElectionScheduler;
+import com.github.toolarium.leader.election.impl.metrics.LeaderElectionMetrics;
+import com.github.toolarium.leader.election.impl.metrics.LeaderElectionStatistics;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the kubernetes leader elector against a mock api server
+ * 
+ * @author patrick
+ */
+public class KubernetesLeaderElectorImplTest {
+    private static final Logger LOG = LoggerFactory.getLogger(KubernetesLeaderElectorImplTest.class);
+    private static final String LEASE_PATH = "/apis/coordination.k8s.io/v1/namespaces/namespace/leases/name";
+    private static final String ENDPOINTS_PATH = "/api/v1/namespaces/namespace/endpoints";
+
+    
+    /**
+     * Test the lease lock
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testLeaseLock() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+            assertEquals(KubernetesLockType.LEASE, leaderElectionConfiguration.getKubernetesLockType());
+            assertTrue(KubernetesUtil.getInstance().hasEndpoint(new LeaderElectionInformation("namespace", "name", "test"), leaderElectionConfiguration.getKubernetesLockType()));
+            
+            // the constructor doesn't block, the elector is not in lead until the first decision
+            try (KubernetesLeaderElectorImpl leaderElector = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("namespace", "name", "test"), leaderElectionConfiguration)) {
+                for (int i = 0; i < 100 && server.countRequests("PUT", LEASE_PATH) < 2; i++) {
+                    Thread.sleep(100);
+                }
+                
+                assertTrue(leaderElector.isLeader());
+                assertEquals(1L, leaderElector.getEpoch());
+
+                // created once, then renewed by dedicated lease updates
+                assertEquals(1, server.countRequests("POST", "/apis/coordination.k8s.io/v1/namespaces/namespace/leases"));
+                assertTrue(server.countRequests("PUT", LEASE_PATH) >= 2);
+                assertEquals(0, server.countRequests(null, ENDPOINTS_PATH));
+                
+                JsonObject lease = server.getObject(LEASE_PATH);
+                assertNotNull(lease);
+                assertEquals("test", lease.getAsJsonObject("spec").get("holderIdentity").getAsString());
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Test the cached availability detection
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testAvailabilityCache() throws IOException {
+        final LeaderElectionInformation leaderElectionInformation = new LeaderElectionInformation("cache", "name", "test");
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            KubernetesUtil.getInstance().setCheckEnvironmentVariables(false);
+            KubernetesUtil.getInstance().invalidate();
+            
+            assertTrue(KubernetesUtil.getInstance().isAvailable(leaderElectionInformation, KubernetesLockType.LEASE));
+            assertTrue(KubernetesUtil.getInstance().isAvailable(leaderElectionInformation, KubernetesLockType.LEASE));
+            assertEquals(1, server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/cache/leases/name"));
+
+            KubernetesUtil.getInstance().invalidate("cache");
+            assertTrue(KubernetesUtil.getInstance().isAvailable(leaderElectionInformation, KubernetesLockType.LEASE));
+            assertEquals(2, server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/cache/leases/name"));
+        } finally {
+            KubernetesUtil.getInstance().setCheckEnvironmentVariables(true);
+            KubernetesUtil.getInstance().invalidate();
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Test the takeover time with a sub-second timeout: an other candidate holds the lease and stops renewing it
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testFailoverLatency() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final String now = Instant.now().toString();
+            server.putObject("/apis/coordination.k8s.io/v1/namespaces/failover/leases/name", 
+                    "{\"apiVersion\":\"coordination.k8s.io/v1\",\"kind\":\"Lease\",\"metadata\":{\"name\":\"name\",\"namespace\":\"failover\"},"
+                    + "\"spec\":{\"holderIdentity\":\"other\",\"leaseDurationSeconds\":1,\"acquireTime\":\"" + now + "\",\"renewTime\":\"" + now + "\",\"leaseTransitions\":0}}");
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofMillis(600), Duration.ofMillis(400), Duration.ofMillis(100));
+            final CountDownLatch elected = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            try (KubernetesLeaderElectorImpl leaderElector = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("failover", "name", "test"), leaderElectionConfiguration)) {
+                leaderElector.addLeaderElectionListener(new ILeaderElectionListener() {
+                    @Override
+                    public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                        elected.countDown();
+                    }
+
+                    @Override
+                    public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                        // NOP
+                    }
+
+                    @Override
+                    public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                        // NOP
+                    }
+                });
+                
+                assertTrue(elected.await(10, TimeUnit.SECONDS));
+                final long takeoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                LOG.info("Takeover after " + takeoverMillis + "ms (timeout " + leaderElectionConfiguration.getTimeout().toMillis() + "ms).");
+                
+                // the lease expires after the timeout, the takeover happens with the next retry (some slack for the client initialization)
+                assertTrue(takeoverMillis >= leaderElectionConfiguration.getTimeout().toMillis());
+                assertTrue(takeoverMillis < leaderElectionConfiguration.getTimeout().toMillis() + 1000);
+                assertEquals("test", server.getObject("/apis/coordination.k8s.io/v1/namespaces/failover/leases/name").getAsJsonObject("spec").get("holderIdentity").getAsString());
+                
+                // one transition: the epoch is the leader transitions plus one
+                assertEquals(2L, leaderElector.getEpoch());
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Test the handover on close: the follower takes over with its next retry instead of waiting for the timeout
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCloseHandover() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofMillis(200));
+            final KubernetesLeaderElectorImpl leader = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("handover", "name", "leader"), leaderElectionConfiguration);
+            try {
+                for (int i = 0; i < 100 && !leader.isLeader(); i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertTrue(leader.isLeader());
+                final CountDownLatch elected = new CountDownLatch(1);
+                try (KubernetesLeaderElectorImpl follower = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("handover", "name", "follower"), leaderElectionConfiguration)) {
+                    follower.addLeaderElectionListener(new ILeaderElectionListener() {
+                        @Override
+                        public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                            elected.countDown();
+                        }
+
+                        @Override
+                        public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                            // NOP
+                        }
+
+                        @Override
+                        public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                            // NOP
+                        }
+                    });
+                    Thread.sleep(500);
+                    assertFalse(follower.isLeader());
+                    
+                    final long start = System.nanoTime();
+                    leader.close();
+                    assertFalse(leader.isLeader());
+                    assertTrue(elected.await(10, TimeUnit.SECONDS));
+                    
+                    final long handoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    LOG.info("Handover after " + handoverMillis + "ms (retry period " + leaderElectionConfiguration.getRetryPeriod().toMillis() 
+                             + "ms, timeout " + leaderElectionConfiguration.getTimeout().toMillis() + "ms).");
+                    
+                    // the follower takes over with its next retry, far below the timeout
+                    assertTrue(handoverMillis < leaderElectionConfiguration.getRetryPeriod().toMillis() + 500);
+                    assertEquals("follower", server.getObject("/apis/coordination.k8s.io/v1/namespaces/handover/leases/name").getAsJsonObject("spec").get("holderIdentity").getAsString());
+                    assertEquals(2L, follower.getEpoch());
+                    
+                    // a closed leader elector doesn't take part anymore
+                    Thread.sleep(500);
+                    assertFalse(leader.isLeader());
+                }
+            } finally {
+                leader.close();
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Test that a leader steps down locally at the renew deadline in case the renewals fail: the lease deadline is
+     * checked against a virtual clock, it doesn't depend on the timing of the test
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testLeaseExpiry() throws IOException, InterruptedException {
+        final AtomicLong clock = new AtomicLong(System.nanoTime());
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofMillis(900), Duration.ofMillis(600), Duration.ofMillis(200));
+            final LeaderElectionInformation leaderElectionInformation = new LeaderElectionInformation("expiry", "name", "test");
+            final KubernetesLeaderElectorImpl leaderElector = new KubernetesLeaderElectorImpl(leaderElectionInformation, leaderElectionConfiguration) {
+                @Override
+                protected long nanoTime() {
+                    return clock.get();
+                }
+            };
+            
+            try {
+                for (int i = 0; i < 100 && !leaderElector.isLeader(); i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertTrue(leaderElector.isLeader());
+                
+                // the api server fails: wait until a renewal failed, there is no successful renewal afterwards
+                final LeaderElectionStatistics statistics = LeaderElectionMetrics.getInstance().getStatistics(leaderElector);
+                server.setErrorCode(503);
+                for (int i = 0; i < 100 && statistics.getFailedRenewalCount() == 0; i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertTrue(statistics.getFailedRenewalCount() > 0);
+                
+                // the virtual clock stands still since the last successful renewal: the leader keeps the lead until the renew deadline
+                final long renewDeadlineNanos = leaderElectionConfiguration.getRenewDeadline().toNanos();
+                final long renewTimeNanos = clock.get();
+                clock.set(renewTimeNanos + renewDeadlineNanos - 1);
+                assertTrue(leaderElector.isLeader());
+                clock.set(renewTimeNanos + renewDeadlineNanos);
+                assertFalse(leaderElector.isLeader());
+                
+                // the lead is revoked by the check of the deadline or the next failed renewal
+                for (int i = 0; i < 100 && statistics.getRevokedCount() == 0; i++) {
+                    Thread.sleep(50);
+                }
+                
+                // the metrics show the failed renewals and the lost lead
+                assertEquals(1, statistics.getElectedCount());
+                assertEquals(1, statistics.getRevokedCount());
+                assertTrue(statistics.getRenewalLatency().getCount() >= statistics.getRenewalCount());
+                assertEquals(leaderElectionConfiguration.getRenewDeadline(), statistics.getTimeInLeadership());
+            } finally {
+                leaderElector.close();
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+
+    /**
+     * Test the backoff of a follower on a throttling api server: it doesn't retry every retry period
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testThrottledFollower() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final String now = Instant.now().toString();
+            final String path = "/apis/coordination.k8s.io/v1/namespaces/backoff/leases/name";
+            server.putObject(path, 
+                    "{\"apiVersion\":\"coordination.k8s.io/v1\",\"kind\":\"Lease\",\"metadata\":{\"name\":\"name\",\"namespace\":\"backoff\"},"
+                    + "\"spec\":{\"holderIdentity\":\"other\",\"leaseDurationSeconds\":5,\"acquireTime\":\"" + now + "\",\"renewTime\":\"" + now + "\",\"leaseTransitions\":0}}");
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofMillis(100));
+            try (KubernetesLeaderElectorImpl follower = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("backoff", "name", "follower"), leaderElectionConfiguration)) {
+                Thread.sleep(500);
+                assertFalse(follower.isLeader());
+                assertEquals(0, follower.getFailedAttempts());
+                
+                // the api server throttles: the follower backs off exponentially instead of retrying every 100ms
+                server.setErrorCode(429);
+                final int getCount = server.countRequests("GET", path);
+                Thread.sleep(3000);
+                final int throttledCount = server.countRequests("GET", path) - getCount;
+                LOG.info("Sent " + throttledCount + " requests to the throttling api server within 3000ms (retry period " 
+                         + leaderElectionConfiguration.getRetryPeriod().toMillis() + "ms).");
+                assertTrue(follower.getFailedAttempts() > 0);
+                assertTrue(throttledCount <= 10);
+                
+                // the backoff is reset with the first successful attempt, at the latest one timeout later
+                server.setErrorCode(0);
+                for (int i = 0; i < 200 && follower.getFailedAttempts() > 0; i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertEquals(0, follower.getFailedAttempts());
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+
+    /**
+     * Test the backoff of a follower whose update of a released lock is throttled: the failed update is classified 
+     * like a failed read
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testThrottledUpdate() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final String now = Instant.now().toString();
+            final String path = "/apis/coordination.k8s.io/v1/namespaces/update-backoff/leases/name";
+            server.putObject(path, 
+                    "{\"apiVersion\":\"coordination.k8s.io/v1\",\"kind\":\"Lease\",\"metadata\":{\"name\":\"name\",\"namespace\":\"update-backoff\"},"
+                    + "\"spec\":{\"holderIdentity\":\"\",\"leaseDurationSeconds\":5,\"acquireTime\":\"" + now + "\",\"renewTime\":\"" + now + "\",\"leaseTransitions\":0}}");
+            
+            // the api server throttles the updates: the follower backs off exponentially instead of retrying every 100ms
+            server.setErrorCode(429, "PUT");
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofMillis(100));
+            try (KubernetesLeaderElectorImpl follower = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("update-backoff", "name", "follower"), leaderElectionConfiguration)) {
+                Thread.sleep(3000);
+                final int throttledCount = server.countRequests("PUT", path);
+                LOG.info("Sent " + throttledCount + " updates to the throttling api server within 3000ms (retry period " 
+                         + leaderElectionConfiguration.getRetryPeriod().toMillis() + "ms).");
+                assertFalse(follower.isLeader());
+                assertTrue(follower.getFailedAttempts() > 0);
+                assertTrue(throttledCount > 0);
+                assertTrue(throttledCount <= 10);
+                
+                // the backoff is reset with the first successful attempt, the released lock gets acquired
+                server.setErrorCode(0);
+                for (int i = 0; i < 200 && !follower.isLeader(); i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertTrue(follower.isLeader());
+                assertEquals(0, follower.getFailedAttempts());
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+
+    /**
+     * Test the coordinated renewal of many elections: one pass per retry period and one request per held lock
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testCoordinatedRenewal() throws IOException, InterruptedException {
+        final int elections = 20;
+        final List<KubernetesLeaderElectorImpl> leaderElectorList = new ArrayList<KubernetesLeaderElectorImpl>();
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(3), Duration.ofSeconds(2), Duration.ofMillis(250));
+            try {
+                for (int i = 0; i < elections; i++) {
+                    leaderElectorList.add(new KubernetesLeaderElectorImpl(new LeaderElectionInformation("coordinated", "job-" + i, "member"), leaderElectionConfiguration));
+                }
+
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    for (int i = 0; i < 100 && !leaderElector.isLeader(); i++) {
+                        Thread.sleep(50);
+                    }
+                    
+                    assertTrue(leaderElector.isLeader());
+                }
+                
+                assertEquals(1, KubernetesRenewalCoordinator.getInstance().size());
+                
+                // the held locks are renewed without a get: one request per lock and retry period
+                final int getCount = server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/coordinated/leases");
+                final int putCount = server.countRequests("PUT", "/apis/coordination.k8s.io/v1/namespaces/coordinated/leases");
+                final long start = System.nanoTime();
+                Thread.sleep(2000);
+                final long passes = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) / leaderElectionConfiguration.getRetryPeriod().toMillis() + 1;
+                final int renewals = server.countRequests("PUT", "/apis/coordination.k8s.io/v1/namespaces/coordinated/leases") - putCount;
+                LOG.info("Renewed " + elections + " locks in " + passes + " passes with " + renewals + " requests.");
+                assertEquals(getCount, server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/coordinated/leases"));
+                assertTrue(renewals >= elections);
+                assertTrue(renewals <= elections * passes);
+                
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    assertTrue(leaderElector.isLeader());
+                }
+            } finally {
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    leaderElector.close();
+                }
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+        
+        assertEquals(0, KubernetesRenewalCoordinator.getInstance().size());
+    }
+
+
+    /**
+     * Test the renewal floor with the default timing: the holders of a renewal group keep their leases over many passes, 
+     * the renew deadline is only half a retry period longer than the retry period
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testRenewalFloor() throws IOException, InterruptedException {
+        final int elections = 10;
+        final int passes = 10;
+        final AtomicInteger revoked = new AtomicInteger(0);
+        final List<KubernetesLeaderElectorImpl> leaderElectorList = new ArrayList<KubernetesLeaderElectorImpl>();
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(2);
+            try {
+                for (int i = 0; i < elections; i++) {
+                    leaderElectorList.add(new KubernetesLeaderElectorImpl(new LeaderElectionInformation("floor", "job-" + i, "member"), leaderElectionConfiguration));
+                }
+
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    for (int i = 0; i < 100 && !leaderElector.isLeader(); i++) {
+                        Thread.sleep(50);
+                    }
+                    
+                    assertTrue(leaderElector.isLeader());
+                    leaderElector.addLeaderElectionListener(new ILeaderElectionListener() {
+                        @Override
+                        public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                            // NOP
+                        }
+
+                        @Override
+                        public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                            revoked.incrementAndGet();
+                        }
+
+                        @Override
+                        public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                            // NOP
+                        }
+                    });
+                }
+                
+                // every holder renews in its slot of every pass without a get, no leader steps down at its renew deadline
+                final int getCount = server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/floor/leases");
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < passes * leaderElectionConfiguration.getRetryPeriod().toNanos()) {
+                    for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                        assertTrue(leaderElector.isLeader());
+                    }
+                    
+                    Thread.sleep(10);
+                }
+                
+                assertEquals(0, revoked.get());
+                assertEquals(getCount, server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/floor/leases"));
+            } finally {
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    leaderElector.close();
+                }
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+
+    /**
+     * Test the watching follower: it doesn't read the lock every retry period and takes over a released lock immediately
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testWatchHandover() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(5), Duration.ofSeconds(3), Duration.ofSeconds(1));
+            leaderElectionConfiguration.setKubernetesWatch(true);
+            final KubernetesLeaderElectorImpl leader = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("watch", "name", "leader"), leaderElectionConfiguration);
+            try {
+                for (int i = 0; i < 100 && !leader.isLeader(); i++) {
+                    Thread.sleep(50);
+                }
+                
+                assertTrue(leader.isLeader());
+                final KubernetesLeaderElectorImpl follower = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("watch", "name", "follower"), leaderElectionConfiguration);
+                try {
+                    for (int i = 0; i < 100 && !follower.isWatching(); i++) {
+                        Thread.sleep(50);
+                    }
+                    
+                    assertTrue(follower.isWatching());
+                    assertEquals(1, server.countWatches());
+                    assertEquals(1, KubernetesLeaseWatcher.getInstance().size());
+                    
+                    // the leader renews without a get, the watching follower doesn't read the lock
+                    Thread.sleep(500);
+                    final int getCount = server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/watch/leases/name");
+                    Thread.sleep(3000);
+                    assertEquals(getCount, server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/watch/leases/name"));
+                    assertFalse(follower.isLeader());
+                    assertTrue(leader.isLeader());
+                    
+                    final long start = System.nanoTime();
+                    leader.close();
+                    for (int i = 0; i < 200 && !follower.isLeader(); i++) {
+                        Thread.sleep(10);
+                    }
+                    
+                    final long handoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    LOG.info("Watched handover after " + handoverMillis + "ms (retry period " + leaderElectionConfiguration.getRetryPeriod().toMillis() + "ms).");
+                    
+                    // the release is watched: the follower takes over before its next pass
+                    assertTrue(follower.isLeader());
+                    assertTrue(handoverMillis < leaderElectionConfiguration.getRetryPeriod().toMillis() / 2);
+                    assertEquals(2L, follower.getEpoch());
+                    
+                    follower.close();
+                    assertEquals(0, KubernetesLeaseWatcher.getInstance().size());
+                } finally {
+                    follower.close();
+                }
+            } finally {
+                leader.close();
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Test the watching follower of a lock which is not renewed anymore: it tries to acquire the lock when it expires
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testWatchExpiry() throws IOException, InterruptedException {
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            
+            final String now = Instant.now().toString();
+            server.putObject("/apis/coordination.k8s.io/v1/namespaces/watch-expiry/leases/name", 
+                    "{\"apiVersion\":\"coordination.k8s.io/v1\",\"kind\":\"Lease\",\"metadata\":{\"name\":\"name\",\"namespace\":\"watch-expiry\"},"
+                    + "\"spec\":{\"holderIdentity\":\"other\",\"leaseDurationSeconds\":2,\"acquireTime\":\"" + now + "\",\"renewTime\":\"" + now + "\",\"leaseTransitions\":0}}");
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(Duration.ofSeconds(2), Duration.ofMillis(1500), Duration.ofSeconds(1));
+            leaderElectionConfiguration.setKubernetesWatch(true);
+            final long start = System.nanoTime();
+            try (KubernetesLeaderElectorImpl follower = new KubernetesLeaderElectorImpl(new LeaderElectionInformation("watch-expiry", "name", "follower"), leaderElectionConfiguration)) {
+                for (int i = 0; i < 500 && !follower.isLeader(); i++) {
+                    Thread.sleep(10);
+                }
+                
+                final long takeoverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                LOG.info("Takeover after " + takeoverMillis + "ms (timeout " + leaderElectionConfiguration.getTimeout().toMillis() + "ms).");
+                assertTrue(follower.isLeader());
+                assertTrue(takeoverMillis >= leaderElectionConfiguration.getTimeout().toMillis());
+                assertTrue(takeoverMillis < leaderElectionConfiguration.getTimeout().toMillis() + leaderElectionConfiguration.getRetryPeriod().toMillis());
+                
+                // the first decision and the takeover read the lock, the watching follower doesn't poll in between
+                assertTrue(server.countRequests("GET", "/apis/coordination.k8s.io/v1/namespaces/watch-expiry/leases/name") <= 3);
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+
+    
+    /**
+     * Test the number of threads against a slow api server: the blocking requests of many leader electors are queued 
+     * for the bounded workers of the scheduler, the watch of the namespace doesn't take a worker
+     *
+     * @throws IOException In case of an i/o error
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void testThreadCount() throws IOException, InterruptedException {
+        final int elections = 60;
+        final List<KubernetesLeaderElectorImpl> leaderElectorList = new ArrayList<KubernetesLeaderElectorImpl>();
+        try (KubernetesMockApiServer server = new KubernetesMockApiServer()) {
+            KubernetesUtil.getInstance().setApiClient(server.createApiClient());
+            server.setLatency(Duration.ofMillis(200));
+            
+            final LeaderElectionConfiguration leaderElectionConfiguration = new LeaderElectionConfiguration(4);
+            leaderElectionConfiguration.setKubernetesWatch(true);
+            try {
+                for (int i = 0; i < elections; i++) {
+                    leaderElectorList.add(new KubernetesLeaderElectorImpl(new LeaderElectionInformation("thread-count", "job-" + i, "member"), leaderElectionConfiguration));
+                }
+                
+                int threads = 0;
+                for (int i = 0; i < 300 && countLeaders(leaderElectorList) < elections; i++) {
+                    threads = Math.max(threads, countLeaderElectionThreads());
+                    Thread.sleep(50);
+                }
+                
+                assertEquals(elections, countLeaders(leaderElectorList));
+                
+                // a few renewal passes of all leaders
+                for (int i = 0; i < 60; i++) {
+                    threads = Math.max(threads, countLeaderElectionThreads());
+                    Thread.sleep(50);
+                }
+                
+                LOG.info("Max. " + threads + " leader election threads for " + elections + " elections.");
+                assertEquals(elections, countLeaders(leaderElectorList));
+                assertTrue(threads <= LeaderElectionScheduler.SCHEDULER_THREADS + LeaderElectionScheduler.WORKER_THREADS + 1, "Threads: " + threads);
+            } finally {
+                for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+                    leaderElector.close();
+                }
+            }
+        } finally {
+            KubernetesUtil.getInstance().setApiClient(null);
+        }
+    }
+
+    
+    /**
+     * Count the leaders
+     *
+     * @param leaderElectorList the leader electors
+     * @return the number of leaders
+     */
+    private static int countLeaders(List<KubernetesLeaderElectorImpl> leaderElectorList) {
+        int count = 0;
+        for (KubernetesLeaderElectorImpl leaderElector : leaderElectorList) {
+            if (leaderElector.isLeader()) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+
+    
+    /**
+     * Count the threads of the scheduler and the lease watches
+     *
+     * @return the number of threads
+     */
+    private static int countLeaderElectionThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(LeaderElectionScheduler.SCHEDULER_THREAD_PREFIX) 
+                    || thread.getName().startsWith(LeaderElectionScheduler.WORKER_THREAD_PREFIX) 
+                    || thread.getName().startsWith(KubernetesLeaseWatcher.WATCH_THREAD_PREFIX)) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * KubernetesMockApiServer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.kubernetes;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.kubernetes.client.openapi.ApiClient;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A minimal in-memory kubernetes api server: it supports get, create (post), replace (put) and delete of single 
+ * objects including the optimistic locking by the resource version and the watch of a collection. All requests are 
+ * recorded.
+ * 
+ * @author patrick
+ */
+public class KubernetesMockApiServer implements HttpHandler, AutoCloseable {
+    private static final String METADATA = "metadata";
+    private static final String RESOURCE_VERSION = "resourceVersion";
+    private final HttpServer server;
+    private final Map<String, JsonObject> objectMap;
+    private final List<String> requestList;
+    private final List<Watcher> watcherList;
+    private final ExecutorService executorService;
+    private long resourceVersion;
+    private volatile int errorCode;
+    private volatile String errorMethod;
+    private volatile long latencyMillis;
+
+    
+    /**
+     * Constructor for KubernetesMockApiServer
+     *
+     * @throws IOException in case of an i/o error
+     */
+    public KubernetesMockApiServer() throws IOException {
+        objectMap = new ConcurrentHashMap<String, JsonObject>();
+        requestList = new CopyOnWriteArrayList<String>();
+        watcherList = new CopyOnWriteArrayList<Watcher>();
+        executorService = Executors.newCachedThreadPool();
+        resourceVersion = 0;
+        errorCode = 0;
+        errorMethod = null;
+        latencyMillis = 0;
+        
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this);
+        server.setExecutor(executorService);
+        server.start();
+    }
+
+    
+    /**
+     * Create an api client which connects to this server
+     *
+     * @return the api client
+     */
+    public ApiClient createApiClient() {
+        return new ApiClient().setBasePath("http://localhost:" + server.getAddress().getPort());
+    }
+
+    
+    /**
+     * Get an object
+     *
+     * @param path the path of the object
+     * @return the object or null
+     */
+    public JsonObject getObject(String path) {
+        return objectMap.get(path);
+    }
+
+    
+    /**
+     * Simulate a failure: all requests are answered with the given error code
+     *
+     * @param errorCode the http error code, e.g. 503 or 429, or 0 to answer the requests normally
+     */
+    public void setErrorCode(int errorCode) {
+        setErrorCode(errorCode, null);
+    }
+
+    
+    /**
+     * Simulate a failure: the requests of a method are answered with the given error code
+     *
+     * @param errorCode the http error code, e.g. 503 or 429, or 0 to answer the requests normally
+     * @param errorMethod the method, e.g. PUT, or null for all methods
+     */
+    public void setErrorCode(int errorCode, String errorMethod) {
+        this.errorMethod = errorMethod;
+        this.errorCode = errorCode;
+    }
+
+    
+    /**
+     * Simulate a slow api server: every request except a watch is answered after the latency
+     *
+     * @param latency the latency
+     */
+    public void setLatency(Duration latency) {
+        this.latencyMillis = latency.toMillis();
+    }
+
+    
+    /**
+     * Put an object, e.g. to simulate an other candidate
+     *
+     * @param path the path of the object
+     * @param json the object as json
+     */
+    public synchronized void putObject(String path, String json) {
+        store(path, JsonParser.parseString(json).getAsJsonObject());
+    }
+
+    
+    /**
+     * Get the number of open watches
+     *
+     * @return the number of open watches
+     */
+    public int countWatches() {
+        return watcherList.size();
+    }
+
+    
+    /**
+     * Count the recorded requests
+     *
+     * @param method the method or null for all methods
+     * @param pathPrefix the path prefix
+     * @return the number of requests
+     */
+    public int countRequests(String method, String pathPrefix) {
+        int counter = 0;
+        for (String request : requestList) {
+            final String[] split = request.split(" ", 2);
+            if ((method == null || method.equals(split[0])) && split[1].startsWith(pathPrefix)) {
+                counter++;
+            }
+        }
+        
+        return counter;
+    }
+
+    
+    /**
+     * @see com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.HttpExchange)
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+        requestList.add(method + " " + path);
+        
+        final String query = exchange.getRequestURI().getQuery();
+        final boolean isError = errorCode != 0 && (errorMethod == null || errorMethod.equals(method));
+        if (!isError && "GET".equals(method) && query != null && query.contains("watch=true")) {
+            handleWatch(exchange, path);
+            return;
+        }
+        
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        synchronized (this) {
+            if (isError) {
+                sendStatus(exchange, errorCode, "Failure");
+            } else if ("GET".equals(method)) {
+                handleGet(exchange, path);
+            } else if ("POST".equals(method)) {
+                handleCreate(exchange, path, readBody(exchange));
+            } else if ("PUT".equals(method)) {
+                handleReplace(exchange, path, readBody(exchange));
+            } else if ("DELETE".equals(method)) {
+                final JsonObject object = objectMap.remove(path);
+                if (object == null) {
+                    sendStatus(exchange, 404, "NotFound");
+                } else {
+                    notifyWatchers("DELETED", path, object);
+                    sendStatus(exchange, 200, "Success");
+                }
+            } else {
+                sendStatus(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    
+    /**
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        for (Watcher watcher : watcherList) {
+            watcher.close();
+        }
+        
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    
+    /**
+     * Get an object
+     *
+     * @param exchange the exchange
+     * @param path the path
+     * @throws IOException in case of an i/o error
+     */
+    protected void handleGet(HttpExchange exchange, String path) throws IOException {
+        final JsonObject object = objectMap.get(path);
+        if (object == null) {
+            sendStatus(exchange, 404, "NotFound");
+        } else {
+            send(exchange, 200, object.toString());
+        }
+    }
+
+    
+    /**
+     * Watch a collection: the current objects are sent as added, all following changes are streamed until the watch 
+     * request times out or the server is closed
+     *
+     * @param exchange the exchange
+     * @param path the path of the collection
+     * @throws IOException in case of an i/o error
+     */
+    protected void handleWatch(HttpExchange exchange, String path) throws IOException {
+        long timeoutSeconds = 300;
+        for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+            if (parameter.startsWith("timeoutSeconds=")) {
+                timeoutSeconds = Long.parseLong(parameter.substring("timeoutSeconds=".length()));
+            }
+        }
+        
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        final Watcher watcher = new Watcher(path + "/", exchange.getResponseBody());
+        synchronized (this) {
+            for (Map.Entry<String, JsonObject> entry : objectMap.entrySet()) {
+                if (entry.getKey().startsWith(watcher.getPathPrefix())) {
+                    watcher.send("ADDED", entry.getValue());
+                }
+            }
+            
+            watcherList.add(watcher);
+        }
+        
+        try {
+            watcher.await(timeoutSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watcherList.remove(watcher);
+            watcher.close();
+            exchange.close();
+        }
+    }
+
+    
+    /**
+     * Create an object
+     *
+     * @param exchange the exchange
+     * @param path the path of the collection
+     * @param body the body
+     * @throws IOException in case of an i/o error
+     */
+    protected void handleCreate(HttpExchange exchange, String path, JsonObject body) throws IOException {
+        final String objectPath = path + "/" + body.getAsJsonObject(METADATA).get("name").getAsString();
+        if (objectMap.containsKey(objectPath)) {
+            sendStatus(exchange, 409, "AlreadyExists");
+            return;
+        }
+        
+        store(objectPath, body);
+        send(exchange, 201, body.toString());
+    }
+
+    
+    /**
+     * Replace an object
+     *
+     * @param exchange the exchange
+     * @param path the path of the object
+     * @param body the body
+     * @throws IOException in case of an i/o error
+     */
+    protected void handleReplace(HttpExchange exchange, String path, JsonObject body) throws IOException {
+        final JsonObject object = objectMap.get(path);
+        if (object == null) {
+            sendStatus(exchange, 404, "NotFound");
+            return;
+        }
+        
+        final JsonElement expectedResourceVersion = body.getAsJsonObject(METADATA).get(RESOURCE_VERSION);
+        if (expectedResourceVersion != null && !expectedResourceVersion.getAsString().equals(object.getAsJsonObject(METADATA).get(RESOURCE_VERSION).getAsString())) {
+            sendStatus(exchange, 409, "Conflict");
+            return;
+        }
+        
+        store(path, body);
+        send(exchange, 200, body.toString());
+    }
+
+    
+    /**
+     * Store an object with a new resource version
+     *
+     * @param path the path
+     * @param object the object
+     */
+    protected void store(String path, JsonObject object) {
+        resourceVersion++;
+        object.getAsJsonObject(METADATA).addProperty(RESOURCE_VERSION, "" + resourceVersion);
+        if (objectMap.put(path, object) == null) {
+            notifyWatchers("ADDED", path, object);
+        } else {
+            notifyWatchers("MODIFIED", path, object);
+        }
+    }
+
+    
+    /**
+     * Notify the watchers of the collection of an object
+     *
+     * @param type the type of the change
+     * @param path the path of the object
+     * @param object the object
+     */
+    protected void notifyWatchers(String type, String path, JsonObject object) {
+        for (Watcher watcher : watcherList) {
+            if (path.startsWith(watcher.getPathPrefix())) {
+                watcher.send(type, object);
+            }
+        }
+    }
+
+    
+    /**
+     * Read the body
+     *
+     * @param exchange the exchange
+     * @return the body
+     * @throws IOException in case of an i/o error
+     */
+    protected JsonObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return JsonParser.parseString(new String(in.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+
+    
+    /**
+     * Send a status
+     *
+     * @param exchange the exchange
+     * @param code the http code
+     * @param reason the reason
+     * @throws IOException in case of an i/o error
+     */
+    protected void sendStatus(HttpExchange exchange, int code, String reason) throws IOException {
+        send(exchange, code, "{\"kind\":\"Status\",\"apiVersion\":\"v1\",\"metadata\":{},\"status\":\"Failure\",\"reason\":\"" + reason + "\",\"code\":" + code + "}");
+    }
+
+    
+    /**
+     * Send a response
+     *
+     * @param exchange the exchange
+     * @param code the http code
+     * @param content the content
+     * @throws IOException in case of an i/o error
+     */
+    protected void send(HttpExchange exchange, int code, String content) throws IOException {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    
+    /**
+     * An open watch of a collection
+     * 
+     * @author patrick
+     */
+    private static class Watcher {
+        private final String pathPrefix;
+        private final OutputStream out;
+        private final CountDownLatch closed;
+        
+
+        /**
+         * Constructor for Watcher
+         *
+         * @param pathPrefix the path prefix of the watched objects
+         * @param out the output stream of the response
+         */
+        Watcher(String pathPrefix, OutputStream out) {
+            this.pathPrefix = pathPrefix;
+            this.out = out;
+            this.closed = new CountDownLatch(1);
+        }
+
+        
+        /**
+         * Get the path prefix of the watched objects
+         *
+         * @return the path prefix
+         */
+        String getPathPrefix() {
+            return pathPrefix;
+        }
+
+        
+        /**
+         * Send a change, the watch gets closed in case of an error
+         *
+         * @param type the type of the change
+         * @param object the object
+         */
+        void send(String type, JsonObject object) {
+            final JsonObject event = new JsonObject();
+            event.addProperty("type", type);
+            event.add("object", object.deepCopy());
+            try {
+                out.write((event.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        
+        /**
+         * Wait until the watch is closed or timed out
+         *
+         * @param timeoutSeconds the timeout in seconds
+         * @throws InterruptedException in case of an interruption
+         */
+        void await(long timeoutSeconds) throws InterruptedException {
+            closed.await(timeoutSeconds, TimeUnit.SECONDS);
+        }
+
+        
+        /**
+         * Close the watch
+         */
+        void close() {
+            closed.countDown();
+        }
+    }
+}
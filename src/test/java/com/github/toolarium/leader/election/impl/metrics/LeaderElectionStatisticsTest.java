@@ -0,0 +1,89 @@
+/*
+ * LeaderElectionStatisticsTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link LeaderElectionStatistics} and the {@link LatencyHistogram}.
+ *  
+ * @author patrick
+ */
+public class LeaderElectionStatisticsTest {
+
+    /**
+     * Test the transitions
+     */
+    @Test
+    public void testTransitions() {
+        final long start = System.nanoTime() - Duration.ofSeconds(10).toNanos();
+        final LeaderElectionStatistics statistics = new LeaderElectionStatistics(start);
+        
+        // 1s without leader at startup, 3s in lead, 2s failover, 4s other leader
+        statistics.onTransition(true, "me", start + Duration.ofSeconds(1).toNanos());
+        statistics.onTransition(false, null, start + Duration.ofSeconds(4).toNanos());
+        statistics.onTransition(false, "other", start + Duration.ofSeconds(6).toNanos());
+        
+        assertEquals(1, statistics.getElectedCount());
+        assertEquals(1, statistics.getRevokedCount());
+        assertEquals(1, statistics.getLeaderChangedCount());
+        assertEquals("other", statistics.getLeaderIdentity());
+        assertEquals(Duration.ofSeconds(3), statistics.getTimeInLeadership());
+        assertEquals(Duration.ofSeconds(3), statistics.getTimeWithoutLeader());
+        
+        // only the gap after a known leader is a failover
+        assertEquals(1, statistics.getFailoverDuration().getCount());
+        assertEquals(Duration.ofSeconds(2), statistics.getFailoverDuration().getMax());
+    }
+
+    
+    /**
+     * Test the renewals
+     */
+    @Test
+    public void testRenewals() {
+        final LeaderElectionStatistics statistics = new LeaderElectionStatistics(System.nanoTime());
+        statistics.onRenewal(true, Duration.ofMillis(2).toNanos());
+        statistics.onRenewal(true, Duration.ofMillis(3).toNanos());
+        statistics.onRenewal(false, Duration.ofMillis(500).toNanos());
+        
+        assertEquals(3, statistics.getRenewalCount());
+        assertEquals(1, statistics.getFailedRenewalCount());
+        assertEquals(3, statistics.getRenewalLatency().getCount());
+        assertEquals(Duration.ofMillis(500), statistics.getRenewalLatency().getMax());
+    }
+
+    
+    /**
+     * Test the histogram
+     */
+    @Test
+    public void testHistogram() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(Duration.ZERO, histogram.getPercentile(99));
+        
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(Duration.ofMillis(i).toNanos());
+        }
+        
+        assertEquals(100, histogram.getCount());
+        assertEquals(Duration.ofMillis(100), histogram.getMax());
+        assertEquals(Duration.ofNanos(Duration.ofMillis(5050).toNanos() / 100), histogram.getMean());
+
+        // the percentile is the upper bound of the power of two bucket
+        final Duration p50 = histogram.getPercentile(50);
+        assertTrue(p50.compareTo(Duration.ofMillis(50)) >= 0);
+        assertTrue(p50.compareTo(Duration.ofMillis(100)) <= 0);
+        assertEquals(Duration.ofMillis(100), histogram.getPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * LeaderElectionSimulationTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.leader.election.impl.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.leader.election.ILeaderElectionListener;
+import com.github.toolarium.leader.election.ILeaderElector;
+import com.github.toolarium.leader.election.dto.LeaderElectionConfiguration;
+import com.github.toolarium.leader.election.dto.LeaderElectionInformation;
+import com.github.toolarium.leader.election.impl.metrics.LeaderElectionMetrics;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Test the {@link LeaderElectionSimulation}.
+ *
+ * @author patrick
+ */
+public class LeaderElectionSimulationTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LeaderElectionSimulationTest.class);
+    private static final Duration STEP = Duration.ofMillis(100);
+
+    
+    /**
+     * Test the failover of a paused leader out of 1000 candidates: at no time there is more than one leader
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testPausedLeader() throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(42);
+        final List<ILeaderElector> leaderElectorList = createCandidates(simulation, "job", 1000);
+        assertTrue(simulation.runUntil(() -> countLeaders(leaderElectorList) == 1, Duration.ofSeconds(10)));
+        final ILeaderElector leader = getLeader(leaderElectorList);
+        final String leaderIdentity = leader.getLeader().getIdentity();
+        assertEquals(1L, leader.getEpoch());
+        assertEquals(leaderIdentity, simulation.getLeaseHolder("simulation.job"));
+        
+        // the paused leader steps down locally after the renew deadline, a follower takes over after the timeout
+        simulation.pause(leaderIdentity, Duration.ofSeconds(30));
+        final long pauseNanos = simulation.getScheduler().nanoTime();
+        for (int i = 0; i < 200 && simulation.getLeaseHolder("simulation.job").equals(leaderIdentity); i++) {
+            simulation.runFor(STEP);
+            assertTrue(countLeaders(leaderElectorList) <= 1);
+        }
+        
+        final long failoverMillis = TimeUnit.NANOSECONDS.toMillis(simulation.getScheduler().nanoTime() - pauseNanos);
+        LOG.info("Failover after " + failoverMillis + "ms virtual time.");
+        assertFalse(leader.isLeader());
+        // the lease expires 10 seconds after the last renewal, which was at most one retry period before the pause
+        assertTrue(failoverMillis >= 5000);
+        assertTrue(failoverMillis <= 10000 + 5000 + STEP.toMillis());
+        
+        // the resumed candidate follows the new leader
+        simulation.runFor(Duration.ofSeconds(30));
+        assertEquals(1, countLeaders(leaderElectorList));
+        final ILeaderElector newLeader = getLeader(leaderElectorList);
+        assertNotEquals(leader, newLeader);
+        assertEquals(2L, newLeader.getEpoch());
+        assertFalse(leader.isLeader());
+        assertEquals(newLeader.getLeader().getIdentity(), leader.getLeader().getIdentity());
+        assertTrue(Duration.between(leader.getLeader().getObservedTimestamp(), simulation.getScheduler().currentTime()).compareTo(Duration.ofSeconds(5)) <= 0);
+    }
+
+    
+    /**
+     * Test the revocation of a stalled leader: the listeners get notified at the renew deadline, not with the next 
+     * election of the leader
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testStalledRenewal() throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(3);
+        final List<ILeaderElector> leaderElectorList = createCandidates(simulation, "job", 2);
+        assertTrue(simulation.runUntil(() -> countLeaders(leaderElectorList) == 1, Duration.ofSeconds(10)));
+        final ILeaderElector leader = getLeader(leaderElectorList);
+        final long[] revokedNanos = new long[] {-1};
+        leader.addLeaderElectionListener(new ILeaderElectionListener() {
+            @Override
+            public void onElected(LeaderElectionInformation leaderElectionInformation) {
+                // NOP
+            }
+
+            @Override
+            public void onRevoked(LeaderElectionInformation leaderElectionInformation) {
+                revokedNanos[0] = simulation.getScheduler().nanoTime();
+            }
+
+            @Override
+            public void onLeaderChanged(LeaderElectionInformation leaderElectionInformation, String leaderIdentity) {
+                // NOP
+            }
+        });
+        
+        // the paused leader doesn't run its election anymore, the revocation comes from the deadline check
+        simulation.pause(leader.getLeader().getIdentity(), Duration.ofSeconds(60));
+        final long pauseNanos = simulation.getScheduler().nanoTime();
+        assertTrue(simulation.runUntil(() -> revokedNanos[0] >= 0, Duration.ofSeconds(30)));
+        assertFalse(leader.isLeader());
+        assertNull(leader.getLeader());
+        assertTrue(revokedNanos[0] - pauseNanos <= new LeaderElectionConfiguration(10).getRenewDeadline().toNanos());
+    }
+
+    
+    /**
+     * Test a partitioned leader and the healing of the partition
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testPartitionedLeader() throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(7);
+        final List<ILeaderElector> leaderElectorList = createCandidates(simulation, "job", 3);
+        assertTrue(simulation.runUntil(() -> countLeaders(leaderElectorList) == 1, Duration.ofSeconds(10)));
+        final ILeaderElector leader = getLeader(leaderElectorList);
+        
+        simulation.partition(leader.getLeader().getIdentity());
+        for (int i = 0; i < 300; i++) {
+            simulation.runFor(STEP);
+            assertTrue(countLeaders(leaderElectorList) <= 1);
+        }
+        
+        assertFalse(leader.isLeader());
+        assertEquals(1, countLeaders(leaderElectorList));
+        
+        // the partitioned candidate doesn't know the current leader, it doesn't route to itself anymore
+        assertNull(leader.getLeader());
+        
+        // after the healing the old leader stays a follower
+        simulation.heal();
+        simulation.runFor(Duration.ofSeconds(30));
+        assertFalse(leader.isLeader());
+        assertEquals(1, countLeaders(leaderElectorList));
+        assertEquals(2L, getLeader(leaderElectorList).getEpoch());
+    }
+
+    
+    /**
+     * Test the handover on close: the follower takes over with its next attempt. The statistics of the simulation use 
+     * the virtual time and the statistics of the closed leader are removed.
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testCloseHandover() throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(1);
+        final List<ILeaderElector> leaderElectorList = createCandidates(simulation, "job", 2);
+        assertTrue(simulation.runUntil(() -> countLeaders(leaderElectorList) == 1, Duration.ofSeconds(10)));
+        final ILeaderElector leader = getLeader(leaderElectorList);
+        
+        simulation.runFor(Duration.ofMinutes(10));
+        assertTrue(simulation.getMetrics().getStatistics(leader).getTimeInLeadership().compareTo(Duration.ofMinutes(10)) >= 0);
+        assertFalse(LeaderElectionMetrics.getInstance().getStatistics().containsKey(leader));
+        
+        leader.close();
+        leaderElectorList.remove(leader);
+        assertFalse(simulation.getMetrics().getStatistics().containsKey(leader));
+        assertEquals(1, simulation.getMetrics().getStatistics().size());
+        
+        final long closeNanos = simulation.getScheduler().nanoTime();
+        assertTrue(simulation.runUntil(() -> countLeaders(leaderElectorList) == 1, Duration.ofSeconds(10)));
+        assertTrue(simulation.getScheduler().nanoTime() - closeNanos <= new LeaderElectionConfiguration(10).getRetryPeriod().toNanos());
+    }
+
+    
+    /**
+     * Test the statistics of two candidates with the same leader election information: each candidate has its own
+     * statistics and the close of one candidate keeps the statistics of the other.
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testStatisticsOfEqualCandidates() throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(1);
+        final LeaderElectionInformation leaderElectionInformation = new LeaderElectionInformation("simulation", "job", "member");
+        final ILeaderElector first = simulation.createLeaderElector(leaderElectionInformation, new LeaderElectionConfiguration(10));
+        final ILeaderElector second = simulation.createLeaderElector(new LeaderElectionInformation("simulation", "job", "member"), new LeaderElectionConfiguration(10));
+        simulation.runFor(Duration.ofSeconds(30));
+        
+        assertEquals(2, simulation.getMetrics().getStatistics().size());
+        assertTrue(simulation.getMetrics().getStatistics(first) != simulation.getMetrics().getStatistics(second));
+        
+        first.close();
+        assertNull(simulation.getMetrics().getStatistics(first));
+        assertTrue(simulation.getMetrics().getStatistics(second).getRenewalCount() > 0);
+        second.close();
+        assertTrue(simulation.getMetrics().getStatistics().isEmpty());
+    }
+
+    
+    /**
+     * Test many elections: each has exactly one leader and the same seed leads to the same leaders
+     *
+     * @throws IOException In case of an i/o error
+     */
+    @Test
+    public void testManyElections() throws IOException {
+        final long start = System.nanoTime();
+        final List<String> leaderList = runElections(99);
+        assertEquals(leaderList, runElections(99));
+        LOG.info("Simulated 3000 candidates in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    }
+
+    
+    /**
+     * Run 1000 elections with 3 candidates for 10 minutes of virtual time
+     *
+     * @param seed the seed
+     * @return the leaders of the elections
+     * @throws IOException In case of an i/o error
+     */
+    private List<String> runElections(long seed) throws IOException {
+        final LeaderElectionSimulation simulation = new LeaderElectionSimulation(seed);
+        final List<List<ILeaderElector>> electionList = new ArrayList<List<ILeaderElector>>();
+        for (int i = 0; i < 1000; i++) {
+            electionList.add(createCandidates(simulation, "job-" + i, 3));
+        }
+        
+        simulation.runFor(Duration.ofMinutes(10));
+        assertEquals(1000, simulation.size());
+        
+        final List<String> leaderList = new ArrayList<String>();
+        for (List<ILeaderElector> leaderElectorList : electionList) {
+            assertEquals(1, countLeaders(leaderElectorList));
+            assertNotNull(getLeader(leaderElectorList).getLeader());
+            leaderList.add(getLeader(leaderElectorList).getLeader().getIdentity());
+        }
+        
+        return leaderList;
+    }
+
+    
+    /**
+     * Create the candidates of an election with a timeout of 10 seconds
+     *
+     * @param simulation the simulation
+     * @param name the name of the election
+     * @param count the number of candidates
+     * @return the candidates
+     * @throws IOException In case of an i/o error
+     */
+    private List<ILeaderElector> createCandidates(LeaderElectionSimulation simulation, String name, int count) throws IOException {
+        final List<ILeaderElector> leaderElectorList = new ArrayList<ILeaderElector>();
+        for (int i = 0; i < count; i++) {
+            leaderElectorList.add(simulation.createLeaderElector(new LeaderElectionInformation("simulation", name, "member" + i), new LeaderElectionConfiguration(10)));
+        }
+        
+        return leaderElectorList;
+    }
+
+    
+    /**
+     * Count the leaders
+     *
+     * @param leaderElectorList the candidates
+     * @return the number of leaders
+     */
+    private static int countLeaders(List<ILeaderElector> leaderElectorList) {
+        int count = 0;
+        for (ILeaderElector leaderElector : leaderElectorList) {
+            if (leaderElector.isLeader()) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+
+    
+    /**
+     * Get the leader
+     *
+     * @param leaderElectorList the candidates
+     * @return the leader or null
+     */
+    private static ILeaderElector getLeader(List<ILeaderElector> leaderElectorList) {
+        for (ILeaderElector leaderElector : leaderElectorList) {
+            if (leaderElector.isLeader()) {
+                return leaderElector;
+            }
+        }
+        
+        return null;
+    }
+}